@@ -0,0 +1,117 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 根据屏幕状态决定刷新节奏的调度策略。
+ * <ul>
+ *     <li>亮屏可交互：按用户设置的刷新率完整刷新；</li>
+ *     <li>熄屏显示 (AoD)：图标仍可见，但降到较低的频率；</li>
+ *     <li>熄屏 / Doze：没人看得到状态栏，只低频采样写入指标日志，
+ *     同时保持网络字节计数的基线，保证亮屏后第一帧网速依然正确。</li>
+ * </ul>
+ * 省电模式下可见状态的间隔翻倍。时钟和设备状态都通过接口注入，方便在 JVM 上测试。
+ */
+public final class AdaptiveScheduler {
+
+    public enum Mode {
+        INTERACTIVE,
+        AMBIENT,
+        HIDDEN
+    }
+
+    /** 单调时钟 (毫秒) */
+    public interface Clock {
+        long now();
+    }
+
+    /** 设备状态来源 */
+    public interface StateSource {
+        boolean isInteractive();
+
+        /** 熄屏显示 (Doze 显示状态) */
+        boolean isAmbient();
+
+        boolean isPowerSaveMode();
+
+        boolean isDeviceIdleMode();
+    }
+
+    public static final long DEFAULT_AMBIENT_INTERVAL = 10_000;
+    public static final long DEFAULT_HIDDEN_INTERVAL = 60_000;
+
+    private final Clock clock;
+    private final StateSource state;
+
+    private long interactiveInterval = 3000;
+    private long ambientInterval = DEFAULT_AMBIENT_INTERVAL;
+    private long hiddenInterval = DEFAULT_HIDDEN_INTERVAL;
+
+    private Mode lastMode;
+    private long lastTickAt;
+    private boolean ticked;
+
+    public AdaptiveScheduler(Clock clock, StateSource state) {
+        this.clock = clock;
+        this.state = state;
+    }
+
+    /**
+     * @param interactive 用户设置的刷新间隔
+     * AoD 和隐藏状态的间隔不会比它更短
+     */
+    public void setIntervals(long interactive, long ambient, long hidden) {
+        this.interactiveInterval = interactive;
+        this.ambientInterval = Math.max(interactive, ambient);
+        this.hiddenInterval = Math.max(interactive, hidden);
+    }
+
+    /** 按当前设备状态求出的模式 */
+    public Mode currentMode() {
+        if (state.isDeviceIdleMode()) return Mode.HIDDEN;
+        if (state.isInteractive()) return Mode.INTERACTIVE;
+        if (state.isAmbient()) return Mode.AMBIENT;
+        return Mode.HIDDEN;
+    }
+
+    /** 指定模式下的刷新间隔 */
+    public long intervalFor(Mode mode) {
+        switch (mode) {
+            case INTERACTIVE:
+                return state.isPowerSaveMode() ? interactiveInterval * 2 : interactiveInterval;
+            case AMBIENT:
+                return state.isPowerSaveMode() ? ambientInterval * 2 : ambientInterval;
+            default:
+                return hiddenInterval;
+        }
+    }
+
+    /**
+     * 在每次 tick 开始时调用，记录时间并返回本次 tick 应使用的模式。
+     */
+    public Mode onTick() {
+        lastMode = currentMode();
+        lastTickAt = clock.now();
+        ticked = true;
+        return lastMode;
+    }
+
+    /**
+     * 距离下一次 tick 的延迟，以上一次 tick 的开始时间为基准，不会为负。
+     */
+    public long delayUntilNextTick() {
+        if (!ticked) return 0;
+        long due = lastTickAt + intervalFor(currentMode());
+        return Math.max(0, due - clock.now());
+    }
+
+    /**
+     * 设备状态变化时调用。
+     *
+     * @return true 表示状态变得“更可见” (例如亮屏)，应立即补一次 tick，
+     * 不必等到按旧模式排好的下一次
+     */
+    public boolean onStateChanged() {
+        if (!ticked) return false;
+        Mode mode = currentMode();
+        return mode.ordinal() < lastMode.ordinal();
+    }
+}
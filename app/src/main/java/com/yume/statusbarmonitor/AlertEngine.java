@@ -0,0 +1,518 @@
+package com.yume.statusbarmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 阈值提醒规则引擎。
+ * <p>
+ * 规则在配置变化时由 {@link #compile} 解析一次，展开成按规则序号排列的扁平数组：
+ * 子句 (指标序号、比较符、阈值) 连续存放，各规则的窗口状态也都是预先分配好的基本类型数组。
+ * 每个 tick {@link #evaluate} 先按用到的指标序号取一次值，再逐条规则判断，
+ * 窗口状态的更新都是 O(1) 的，整个过程不分配对象。
+ * <p>
+ * 规则写法 (多条用 ';' 或换行分隔，key 与图标数据项相同)：
+ * <pre>
+ * temperature &gt; 45 for 30s              持续 30 秒
+ * watt &lt; 5 &amp; plugged for 10s           多个条件用 &amp; 连接，plugged / unplugged 为充电器状态
+ * current &gt; 3000000 count 5 in 60s      60 秒内至少 5 个 tick 满足
+ * thermal_max rise 5 in 60s             60 秒内上升至少 5 (drop 为下降)
+ * </pre>
+ * 数值单位与图标显示一致：温度 °C、功率 W、电压 V、网速 KB/s、频率 GHz、百分比 %。
+ * <p>
+ * 一条规则从不满足变为满足时触发一次 (去重)，持续满足不会重复触发；
+ * 距上次触发不到冷却时间的新一轮满足整轮不再提醒。
+ */
+public final class AlertEngine {
+
+    public static final int MAX_RULES = 16;
+    // 计数窗口记录最近 N 次满足的时间，N 的上限
+    static final int MAX_COUNT = 64;
+    // 变化率窗口的检查点数，检查点间隔为窗口长度 / RATE_CHECKPOINTS
+    static final int RATE_CHECKPOINTS = 8;
+
+    private static final int OP_GT = 0;
+    private static final int OP_GE = 1;
+    private static final int OP_LT = 2;
+    private static final int OP_LE = 3;
+
+    // 子句的指标序号，负数为充电器状态
+    private static final int METRIC_PLUGGED = -1;
+    private static final int METRIC_UNPLUGGED = -2;
+
+    private static final int WINDOW_NONE = 0;
+    private static final int WINDOW_FOR = 1;
+    private static final int WINDOW_COUNT = 2;
+    private static final int WINDOW_RISE = 3;
+    private static final int WINDOW_DROP = 4;
+
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final MetricKey[] KEYS = MetricKey.values();
+    private static final Pattern TOKEN = Pattern.compile("<=|>=|<|>|&&?|[A-Za-z_][A-Za-z0-9_]*|-?\\d+(?:\\.\\d+)?[smh]?");
+
+    public static final AlertEngine EMPTY = compile(null);
+
+    private final String[] sources;
+    private final int ruleCount;
+    private final List<String> invalid;
+
+    // 规则 r 的子句为 [clauseStart[r], clauseStart[r + 1])
+    private final int[] clauseStart;
+    private final int[] clauseMetric;
+    private final int[] clauseOp;
+    private final double[] clauseThreshold;
+
+    private final int[] windowKind;
+    private final long[] windowMs;
+    // 提醒里显示的指标；变化率规则即被观察的指标
+    private final int[] primaryMetric;
+    private final double[] rateThreshold;
+
+    // 计数窗口：规则 r 的环形缓冲为 countTimes[countOffset[r], countOffset[r] + countN[r])
+    private final int[] countN;
+    private final int[] countOffset;
+    private final long[] countTimes;
+    private final int[] countHead;
+    private final int[] countFilled;
+
+    // 变化率窗口：每条规则 RATE_CHECKPOINTS 个检查点
+    private final long[] checkpointTime;
+    private final double[] checkpointValue;
+    private final int[] checkpointHead;
+    private final int[] checkpointFilled;
+
+    private final long[] trueSince;
+    private final boolean[] active;
+    private final long[] lastFired;
+
+    // 每个 tick 只取一次值的指标
+    private final int[] usedMetrics;
+    private final double[] values = new double[KEYS.length];
+
+    private final int[] fired;
+    private final double[] firedValue;
+    private int firedCount;
+    private long cooldownMs = 10 * 60_000L;
+
+    private AlertEngine(List<Rule> rules, List<String> invalid) {
+        this.invalid = invalid;
+        ruleCount = rules.size();
+        sources = new String[ruleCount];
+        clauseStart = new int[ruleCount + 1];
+        windowKind = new int[ruleCount];
+        windowMs = new long[ruleCount];
+        primaryMetric = new int[ruleCount];
+        rateThreshold = new double[ruleCount];
+        countN = new int[ruleCount];
+        countOffset = new int[ruleCount];
+        countHead = new int[ruleCount];
+        countFilled = new int[ruleCount];
+        checkpointHead = new int[ruleCount];
+        checkpointFilled = new int[ruleCount];
+        trueSince = new long[ruleCount];
+        active = new boolean[ruleCount];
+        lastFired = new long[ruleCount];
+        fired = new int[ruleCount];
+        firedValue = new double[ruleCount];
+
+        int clauses = 0;
+        int countSlots = 0;
+        boolean[] used = new boolean[KEYS.length];
+        for (int r = 0; r < ruleCount; r++) {
+            Rule rule = rules.get(r);
+            clauseStart[r] = clauses;
+            clauses += rule.metrics.size();
+            countOffset[r] = countSlots;
+            countSlots += rule.count;
+        }
+        clauseStart[ruleCount] = clauses;
+        clauseMetric = new int[clauses];
+        clauseOp = new int[clauses];
+        clauseThreshold = new double[clauses];
+        countTimes = new long[countSlots];
+        checkpointTime = new long[ruleCount * RATE_CHECKPOINTS];
+        checkpointValue = new double[ruleCount * RATE_CHECKPOINTS];
+
+        for (int r = 0; r < ruleCount; r++) {
+            Rule rule = rules.get(r);
+            sources[r] = rule.source;
+            windowKind[r] = rule.window;
+            windowMs[r] = rule.windowMs;
+            countN[r] = rule.count;
+            primaryMetric[r] = rule.primary;
+            rateThreshold[r] = rule.rate;
+            if (rule.primary >= 0) used[rule.primary] = true;
+            for (int i = 0; i < rule.metrics.size(); i++) {
+                int c = clauseStart[r] + i;
+                clauseMetric[c] = rule.metrics.get(i);
+                clauseOp[c] = rule.ops.get(i);
+                clauseThreshold[c] = rule.thresholds.get(i);
+                if (clauseMetric[c] >= 0) used[clauseMetric[c]] = true;
+            }
+        }
+        int n = 0;
+        for (boolean u : used) if (u) n++;
+        usedMetrics = new int[n];
+        n = 0;
+        for (int m = 0; m < used.length; m++) if (used[m]) usedMetrics[n++] = m;
+
+        Arrays.fill(trueSince, NEVER);
+        Arrays.fill(lastFired, NEVER);
+    }
+
+    // --- 编译 ---
+
+    /** 编译期的一条规则，只在 compile 中使用 */
+    private static final class Rule {
+        String source;
+        final List<Integer> metrics = new ArrayList<>();
+        final List<Integer> ops = new ArrayList<>();
+        final List<Double> thresholds = new ArrayList<>();
+        int window = WINDOW_NONE;
+        long windowMs;
+        int count;
+        int primary = -1;
+        double rate;
+    }
+
+    /**
+     * 解析规则文本。无法解析的规则被跳过，见 {@link #getInvalidRules}；最多 {@link #MAX_RULES} 条。
+     */
+    public static AlertEngine compile(String text) {
+        List<Rule> rules = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        if (text != null) {
+            for (String line : text.split("[;\\n]")) {
+                String source = line.trim();
+                if (source.isEmpty()) continue;
+                Rule rule = parse(source);
+                if (rule == null || rules.size() == MAX_RULES) {
+                    invalid.add(source);
+                } else {
+                    rules.add(rule);
+                }
+            }
+        }
+        return new AlertEngine(rules, invalid);
+    }
+
+    private static Rule parse(String source) {
+        List<String> tokens = new ArrayList<>();
+        String lower = source.toLowerCase(Locale.ROOT);
+        Matcher m = TOKEN.matcher(lower);
+        int end = 0;
+        while (m.find()) {
+            // 记号之间只能是空白
+            if (!lower.substring(end, m.start()).trim().isEmpty()) return null;
+            tokens.add(m.group());
+            end = m.end();
+        }
+        if (!lower.substring(end).trim().isEmpty() || tokens.isEmpty()) return null;
+
+        Rule rule = new Rule();
+        rule.source = source;
+        int i = 0;
+        while (true) {
+            if (i >= tokens.size()) return null;
+            String t = tokens.get(i++);
+            if (t.equals("plugged") || t.equals("unplugged")) {
+                rule.metrics.add(t.equals("plugged") ? METRIC_PLUGGED : METRIC_UNPLUGGED);
+                rule.ops.add(OP_GT);
+                rule.thresholds.add(0.0);
+            } else {
+                MetricKey key = MetricKey.fromKey(t);
+                if (!hasValue(key) || i + 1 >= tokens.size()) return null;
+                String op = tokens.get(i++);
+                Double number = number(tokens.get(i++));
+                if (number == null) return null;
+                if (op.equals("rise") || op.equals("drop")) {
+                    // 变化率：key rise X in 60s，每条规则只能有一个
+                    if (rule.window != WINDOW_NONE || i + 1 >= tokens.size() || !tokens.get(i++).equals("in")) {
+                        return null;
+                    }
+                    long ms = duration(tokens.get(i++));
+                    if (ms <= 0 || number <= 0) return null;
+                    rule.window = op.equals("rise") ? WINDOW_RISE : WINDOW_DROP;
+                    rule.windowMs = ms;
+                    rule.rate = number;
+                    rule.primary = key.ordinal();
+                } else {
+                    int code = op(op);
+                    if (code < 0) return null;
+                    rule.metrics.add(key.ordinal());
+                    rule.ops.add(code);
+                    rule.thresholds.add(number);
+                    if (rule.primary < 0) rule.primary = key.ordinal();
+                }
+            }
+            if (i < tokens.size() && (tokens.get(i).equals("&") || tokens.get(i).equals("&&")
+                    || tokens.get(i).equals("and"))) {
+                i++;
+                continue;
+            }
+            break;
+        }
+
+        if (i < tokens.size()) {
+            if (rule.window != WINDOW_NONE) return null;
+            String kind = tokens.get(i++);
+            if (kind.equals("for") && i < tokens.size()) {
+                rule.window = WINDOW_FOR;
+                rule.windowMs = duration(tokens.get(i++));
+            } else if (kind.equals("count") && i + 2 < tokens.size() && tokens.get(i + 1).equals("in")) {
+                Double n = number(tokens.get(i));
+                if (n == null || n < 1 || n > MAX_COUNT || n != Math.floor(n)) return null;
+                rule.window = WINDOW_COUNT;
+                rule.count = n.intValue();
+                rule.windowMs = duration(tokens.get(i + 2));
+                i += 3;
+            } else {
+                return null;
+            }
+            if (rule.windowMs <= 0 || i != tokens.size()) return null;
+        }
+        return rule;
+    }
+
+    private static int op(String op) {
+        switch (op) {
+            case ">": return OP_GT;
+            case ">=": return OP_GE;
+            case "<": return OP_LT;
+            case "<=": return OP_LE;
+            default: return -1;
+        }
+    }
+
+    private static Double number(String token) {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** "30s"、"5m"、"1h"，不带单位为秒；无法解析返回 -1 */
+    static long duration(String token) {
+        char unit = token.charAt(token.length() - 1);
+        long scale = 1000;
+        String digits = token;
+        if (unit == 's' || unit == 'm' || unit == 'h') {
+            scale = unit == 's' ? 1000 : unit == 'm' ? 60_000 : 3_600_000;
+            digits = token.substring(0, token.length() - 1);
+        }
+        Double n = number(digits);
+        return n == null || n <= 0 ? -1 : (long) (n * scale);
+    }
+
+    // --- 指标取值 ---
+
+    /** 规则里能使用的 key：有对应数值的数据项，只用于圆环的 key 除外 */
+    static boolean hasValue(MetricKey key) {
+        switch (key) {
+            case NONE:
+            case TEMPERATURE_64:
+            case TEMPERATURE_50:
+            case TEMPERATURE_40:
+            case DOWNLOAD_LOG:
+            case UPLOAD_LOG:
+            case THERMAL_100:
+            case THERMAL_80:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 指标的数值，单位与图标显示一致；没有读数时为 NaN，任何比较都不成立。
+     */
+    static double valueOf(MetricKey key, MetricSnapshot s, int wattsDivisor) {
+        switch (key) {
+            case WATT: return s.watts(wattsDivisor);
+            case WATT_PEAK: return s.peakWatts(wattsDivisor);
+            case TEMPERATURE: return s.temperatureTenths / 10.0;
+            case CURRENT: return Math.abs(s.currentNow);
+            case VOLTAGE: return s.voltage / 1000.0;
+            case BATTERY_PERCENT: return s.batteryPercent;
+            case MEMORY_MB: return s.memUsedMB;
+            case MEMORY_PERCENT: return s.memPercent;
+            case STORAGE_PERCENT: return s.storagePercent;
+            case STORAGE_FREE: return s.storageFreeGiB;
+            case DOWNLOAD_SPEED: return s.downloadSpeed / 1024.0;
+            case UPLOAD_SPEED: return s.uploadSpeed / 1024.0;
+            case WIFI_DOWNLOAD: return s.wifiDownloadSpeed / 1024.0;
+            case WIFI_UPLOAD: return s.wifiUploadSpeed / 1024.0;
+            case MOBILE_DOWNLOAD: return s.mobileDownloadSpeed / 1024.0;
+            case MOBILE_UPLOAD: return s.mobileUploadSpeed / 1024.0;
+            case CPU_PERCENT: return percent(s.cpuPercent);
+            case CPU_CLUSTER_0: return percent(s.cpuCluster0Percent);
+            case CPU_CLUSTER_1: return percent(s.cpuCluster1Percent);
+            case CPU_CLUSTER_2: return percent(s.cpuCluster2Percent);
+            case CPU_FREQ: return s.cpuFreqKHz > 0 ? s.cpuFreqKHz / 1e6 : Double.NaN;
+            case THERMAL_MAX: return degrees(s.thermalTenths);
+            case THERMAL_ZONE1: return degrees(s.thermalZone1Tenths);
+            case THERMAL_ZONE2: return degrees(s.thermalZone2Tenths);
+            default: return Double.NaN;
+        }
+    }
+
+    private static double percent(int value) {
+        return value == CpuUsage.UNKNOWN ? Double.NaN : value;
+    }
+
+    private static double degrees(int tenths) {
+        return tenths == ThermalZones.UNKNOWN ? Double.NaN : tenths / 10.0;
+    }
+
+    // --- 求值 ---
+
+    /** 连续满足的两次提醒之间的最短间隔 */
+    public void setCooldown(long ms) {
+        cooldownMs = Math.max(0, ms);
+    }
+
+    /**
+     * 用本 tick 的快照更新所有规则。
+     *
+     * @param now 单调时钟 (elapsedRealtime)
+     * @return 本次触发的规则数，用 {@link #getFiredRule} 取得
+     */
+    public int evaluate(MetricSnapshot s, int wattsDivisor, long now) {
+        firedCount = 0;
+        if (ruleCount == 0) return 0;
+        for (int m : usedMetrics) {
+            values[m] = valueOf(KEYS[m], s, wattsDivisor);
+        }
+        for (int r = 0; r < ruleCount; r++) {
+            boolean ok = true;
+            for (int c = clauseStart[r]; c < clauseStart[r + 1] && ok; c++) {
+                ok = test(c, s);
+            }
+            boolean satisfied;
+            switch (windowKind[r]) {
+                case WINDOW_FOR:
+                    if (!ok) {
+                        trueSince[r] = NEVER;
+                        satisfied = false;
+                    } else {
+                        if (trueSince[r] == NEVER) trueSince[r] = now;
+                        satisfied = now - trueSince[r] >= windowMs[r];
+                    }
+                    break;
+                case WINDOW_COUNT:
+                    satisfied = ok && countEvent(r, now);
+                    break;
+                case WINDOW_RISE:
+                case WINDOW_DROP:
+                    double change = rateChange(r, values[primaryMetric[r]], now);
+                    if (windowKind[r] == WINDOW_DROP) change = -change;
+                    satisfied = ok && change >= rateThreshold[r];
+                    break;
+                default:
+                    satisfied = ok;
+                    break;
+            }
+            if (satisfied && !active[r] && (lastFired[r] == NEVER || now - lastFired[r] >= cooldownMs)) {
+                lastFired[r] = now;
+                firedValue[firedCount] = primaryMetric[r] >= 0 ? values[primaryMetric[r]] : Double.NaN;
+                fired[firedCount++] = r;
+            }
+            active[r] = satisfied;
+        }
+        return firedCount;
+    }
+
+    private boolean test(int c, MetricSnapshot s) {
+        int metric = clauseMetric[c];
+        if (metric == METRIC_PLUGGED) return s.plugged;
+        if (metric == METRIC_UNPLUGGED) return !s.plugged;
+        double v = values[metric];
+        double t = clauseThreshold[c];
+        switch (clauseOp[c]) {
+            case OP_GT: return v > t;
+            case OP_GE: return v >= t;
+            case OP_LT: return v < t;
+            case OP_LE: return v <= t;
+            default: return false;
+        }
+    }
+
+    // 记录一次满足，返回窗口内是否已有 N 次
+    private boolean countEvent(int r, long now) {
+        int n = countN[r];
+        int base = countOffset[r];
+        countTimes[base + countHead[r]] = now;
+        countHead[r] = (countHead[r] + 1) % n;
+        if (countFilled[r] < n) countFilled[r]++;
+        // 环满时 head 指向最早的一次
+        return countFilled[r] == n && now - countTimes[base + countHead[r] % n] <= windowMs[r];
+    }
+
+    /**
+     * 按检查点估算窗口内的变化量：每隔 窗口 / {@link #RATE_CHECKPOINTS} 记一个检查点，
+     * 与不超过窗口长度的最早检查点比较。历史不足半个窗口时返回 0。
+     */
+    private double rateChange(int r, double v, long now) {
+        if (Double.isNaN(v)) return 0;
+        int base = r * RATE_CHECKPOINTS;
+        long interval = Math.max(1, windowMs[r] / RATE_CHECKPOINTS);
+        int filled = checkpointFilled[r];
+        int newest = (checkpointHead[r] + RATE_CHECKPOINTS - 1) % RATE_CHECKPOINTS;
+        if (filled == 0 || now - checkpointTime[base + newest] >= interval) {
+            checkpointTime[base + checkpointHead[r]] = now;
+            checkpointValue[base + checkpointHead[r]] = v;
+            checkpointHead[r] = (checkpointHead[r] + 1) % RATE_CHECKPOINTS;
+            if (filled < RATE_CHECKPOINTS) checkpointFilled[r] = ++filled;
+        }
+        // 从最早的检查点往后找第一个仍在窗口内的
+        int oldest = filled < RATE_CHECKPOINTS ? 0 : checkpointHead[r];
+        for (int k = 0; k < filled; k++) {
+            int i = base + (oldest + k) % RATE_CHECKPOINTS;
+            long age = now - checkpointTime[i];
+            if (age > windowMs[r]) continue;
+            return age * 2 >= windowMs[r] ? v - checkpointValue[i] : 0;
+        }
+        return 0;
+    }
+
+    // --- 结果 ---
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /** 最近一次 {@link #evaluate} 触发的规则数 */
+    public int getFiredCount() {
+        return firedCount;
+    }
+
+    /** 第 i 个本次触发的规则序号 */
+    public int getFiredRule(int i) {
+        return fired[i];
+    }
+
+    /** 第 i 个本次触发的规则在触发时的指标值，只有充电器条件的规则为 NaN */
+    public double getFiredValue(int i) {
+        return firedValue[i];
+    }
+
+    /** 规则的原始文本 */
+    public String getSource(int rule) {
+        return sources[rule];
+    }
+
+    /** 规则的主要指标，只有充电器条件时为 {@link MetricKey#NONE} */
+    public MetricKey getMetric(int rule) {
+        return primaryMetric[rule] >= 0 ? KEYS[primaryMetric[rule]] : MetricKey.NONE;
+    }
+
+    /** 无法解析 (或超出条数上限) 而被跳过的规则文本 */
+    public List<String> getInvalidRules() {
+        return invalid;
+    }
+}
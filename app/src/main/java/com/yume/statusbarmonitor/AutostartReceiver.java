@@ -14,7 +14,7 @@ import androidx.annotation.RequiresPermission;
 public class AutostartReceiver extends BroadcastReceiver {
 
     private static final String TAG = "AutostartReceiver";
-    // 延迟 5 秒执行
+    // 直接启动被系统拒绝时，改用闹钟延迟 5 秒执行
     private static final long DELAY_MILLIS = 5 * 1000;
     // 唯一的 Alarm ID
     private static final int ALARM_REQUEST_CODE = 12345;
@@ -29,30 +29,43 @@ public class AutostartReceiver extends BroadcastReceiver {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction()) ||
                 Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(intent.getAction())) {
 
-            Log.d(TAG, "Boot completed received. Setting up delayed start alarm.");
+            // 开机广播属于允许从后台启动前台服务的情形，直接启动，不再固定等待 5 秒。
+            // 服务先发占位通知，配置和字体在它自己的后台线程上加载
+            Intent serviceIntent = new Intent(context, MonitorService.class)
+                    .setAction(MonitorService.ACTION_BOOT_START);
+            try {
+                context.startForegroundService(serviceIntent);
+                Log.d(TAG, "Boot completed received. Service started.");
+            } catch (IllegalStateException | SecurityException e) {
+                // 部分 ROM 仍会拦截 (ForegroundServiceStartNotAllowedException)，退回延迟启动
+                Log.w(TAG, "Direct start refused, setting up delayed start alarm.", e);
+                scheduleDelayedStart(context, serviceIntent);
+            }
 
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            Intent serviceIntent = new Intent(context, MonitorService.class);
-
-            // 使用 FLAG_IMMUTABLE 或 FLAG_UPDATE_CURRENT
-            int flags = PendingIntent.FLAG_IMMUTABLE;
-            PendingIntent pendingIntent = PendingIntent.getService(
-                    context,
-                    ALARM_REQUEST_CODE,
-                    serviceIntent,
-                    flags
-            );
-
-            long triggerAtMillis = System.currentTimeMillis() + DELAY_MILLIS;
-
-            // 使用 setExactAndAllowWhileIdle 或 setAndAllowWhileIdle
-            // 在 Doze 模式下也允许运行的精确闹钟
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-
-            // Toast 提示设置了延迟启动
+            // Toast 提示
             Toast.makeText(context.getApplicationContext(),
                     "状态栏监控服务已启动",
                     Toast.LENGTH_SHORT).show();
         }
     }
+
+    @RequiresPermission(Manifest.permission.SCHEDULE_EXACT_ALARM)
+    private static void scheduleDelayedStart(Context context, Intent serviceIntent) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        // 使用 FLAG_IMMUTABLE 或 FLAG_UPDATE_CURRENT
+        int flags = PendingIntent.FLAG_IMMUTABLE;
+        PendingIntent pendingIntent = PendingIntent.getForegroundService(
+                context,
+                ALARM_REQUEST_CODE,
+                serviceIntent,
+                flags
+        );
+
+        long triggerAtMillis = System.currentTimeMillis() + DELAY_MILLIS;
+
+        // 使用 setExactAndAllowWhileIdle 或 setAndAllowWhileIdle
+        // 在 Doze 模式下也允许运行的精确闹钟
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.yume.statusbarmonitor;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+
+/**
+ * 在服务生命周期内常驻注册的 ACTION_BATTERY_CHANGED 接收器。
+ * 系统每次广播时把温度 (0.1°C)、电压 (mV)、电量和充电器连接状态写入基本类型字段，
+ * tick 只读取这些缓存值，不再每次通过 registerReceiver(null, ...) 取粘性广播。
+ * 回调投递到传入的 Handler (流水线线程) 上，带上哪些字段变了，
+ * 调用方据此决定是否值得为它立即刷新。
+ */
+public class BatteryStateReceiver {
+
+    public interface Listener {
+        /** @param changed 变化字段的 CHANGED_* 组合，不会为 0 */
+        void onBatteryStateChanged(int changed);
+    }
+
+    public static final int CHANGED_TEMPERATURE = 1;
+    public static final int CHANGED_VOLTAGE = 1 << 1;
+    public static final int CHANGED_LEVEL = 1 << 2;
+    public static final int CHANGED_PLUGGED = 1 << 3;
+    private static final int CHANGED_ALL = CHANGED_TEMPERATURE | CHANGED_VOLTAGE | CHANGED_LEVEL | CHANGED_PLUGGED;
+
+    private static final IntentFilter FILTER = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+
+    private final Context context;
+    private final Listener listener;
+
+    private volatile int temperatureTenths;
+    private volatile int voltage;
+    private volatile int level;
+    private volatile boolean plugged;
+    private volatile boolean hasState;
+    private boolean registered;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context c, Intent intent) {
+            int changed = update(intent);
+            if (changed != 0) {
+                listener.onBatteryStateChanged(changed);
+            }
+        }
+    };
+
+    public BatteryStateReceiver(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    public void register(Handler handler) {
+        if (registered) return;
+        // 返回值就是当前的粘性广播，注册后立即有数据可读
+        Intent sticky = context.registerReceiver(receiver, FILTER, null, handler);
+        registered = true;
+        if (sticky != null) {
+            update(sticky);
+        }
+    }
+
+    public void unregister() {
+        if (!registered) return;
+        context.unregisterReceiver(receiver);
+        registered = false;
+        hasState = false;
+    }
+
+    /**
+     * @return 与上次不同的字段，CHANGED_* 的组合；第一次收到时为全部字段
+     */
+    private int update(Intent intent) {
+        int newTemperature = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+        int newVoltage = intent.getIntExtra(BatteryManager.EXTRA_VOLTAGE, 0);
+        int newLevel = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
+        boolean newPlugged = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        int changed = 0;
+        if (newTemperature != temperatureTenths) changed |= CHANGED_TEMPERATURE;
+        if (newVoltage != voltage) changed |= CHANGED_VOLTAGE;
+        if (newLevel != level) changed |= CHANGED_LEVEL;
+        if (newPlugged != plugged) changed |= CHANGED_PLUGGED;
+        if (!hasState) changed = CHANGED_ALL;
+        temperatureTenths = newTemperature;
+        voltage = newVoltage;
+        level = newLevel;
+        plugged = newPlugged;
+        hasState = true;
+        return changed;
+    }
+
+    /** 是否已收到过广播；未注册或尚无数据时调用方应自行回退 */
+    public boolean hasState() {
+        return hasState;
+    }
+
+    /** 电池温度，单位 0.1°C */
+    public int getTemperatureTenths() {
+        return temperatureTenths;
+    }
+
+    /** 电池电压，单位 mV */
+    public int getVoltage() {
+        return voltage;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /** 是否连接了充电器 (AC、USB、无线……) */
+    public boolean isPlugged() {
+        return plugged;
+    }
+}
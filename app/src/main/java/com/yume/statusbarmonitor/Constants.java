@@ -24,6 +24,32 @@ public final class Constants {
     public static final String KEY_DASH_LENGTH = "pref_dash_length";
     public static final String KEY_DASH_GAP = "pref_dashed_gap";
 
+    // 刷新阈值：电流/电压至少变化几个显示位才重新发布通知，0 为关闭
+    public static final String KEY_HYSTERESIS = "pref_hysteresis_digits";
+
+    // 曲线模式：在图标第二行的位置画出该指标最近的走势，"none" 为关闭
+    public static final String KEY_SPARKLINE = "sparkline_key";
+
+    // 亮屏时电流的高频采样频率 (Hz)，显示窗口平均值和峰值，0 为关闭
+    public static final String KEY_CURRENT_BURST_HZ = "pref_current_burst_hz";
+
+    // 网速统计哪些接口：physical / all / wifi / mobile / vpn，或一个接口名 (如 wlan0)
+    public static final String KEY_NET_SCOPE = "pref_net_scope";
+
+    // 跟踪的热区：逗号分隔的 type 前缀 (如 cpu,skin)，空为全部热区，图标可显示其中的最高温度
+    public static final String KEY_THERMAL_ZONES = "pref_thermal_zones";
+
+    // 多图标模式：主图标之外的附加图标，"第一行,第二行,圆环"，多个用 ; 分隔，空为只有主图标
+    public static final String KEY_EXTRA_ICONS = "pref_extra_icons";
+
+    // 提醒规则：如 "temperature > 45 for 30s"，多条用 ; 或换行分隔，满足时发出横幅通知
+    public static final String KEY_ALERT_RULES = "pref_alert_rules";
+    // 同一条规则两次提醒的最短间隔 (秒)
+    public static final String KEY_ALERT_COOLDOWN = "pref_alert_cooldown_s";
+
+    // 诊断：记录每个 tick 各阶段的耗时直方图，关闭时不读时钟
+    public static final String KEY_DIAGNOSTICS = "pref_diagnostics";
+
     // 字体文件名列表，与 arrays.xml 中的顺序对应
     public static final String[] FONT_FILENAMES = {
             null, // 默认字体 (索引 0)
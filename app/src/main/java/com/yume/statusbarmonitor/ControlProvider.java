@@ -0,0 +1,94 @@
+package com.yume.statusbarmonitor;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 设置页到 :monitor 进程的控制通道，只提供 {@link #call}，不导出 (exported=false)，
+ * 只有本应用自身能访问，因此不需要再检查调用方。
+ * <ul>
+ *     <li>{@value #METHOD_APPLY_CONFIG}：把设置页的新配置交给本进程 ({@link MonitorConfig#publish})；</li>
+ *     <li>{@value #METHOD_LATENCY} / {@value #METHOD_RESET_LATENCY}：读取或清空本进程的
+ *     {@link TickStats}，供设置页的诊断区使用。</li>
+ * </ul>
+ * 对外的只读历史导出见 {@link HistoryProvider}。
+ */
+public class ControlProvider extends ContentProvider {
+
+    public static final String AUTHORITY = "com.yume.statusbarmonitor.control";
+    public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY);
+
+    public static final String METHOD_APPLY_CONFIG = "apply_config";
+    public static final String METHOD_LATENCY = "latency";
+    public static final String METHOD_RESET_LATENCY = "reset_latency";
+    /** apply_config 的返回值：服务是否正在运行并已换用新配置 */
+    public static final String EXTRA_RUNNING = "running";
+    /** latency 返回的 Bundle 中报表文字的键 */
+    public static final String EXTRA_TEXT = "text";
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        switch (method) {
+            case METHOD_APPLY_CONFIG: {
+                if (extras == null) throw new IllegalArgumentException("missing config");
+                Bundle result = new Bundle();
+                result.putBoolean(EXTRA_RUNNING, MonitorConfig.publish(MonitorConfig.fromBundle(extras)));
+                return result;
+            }
+            case METHOD_RESET_LATENCY:
+                TickStats.get().reset();
+                // 清空后返回空报表
+            case METHOD_LATENCY: {
+                StringBuilder sb = new StringBuilder();
+                TickStats.get().appendSummary(sb);
+                Bundle result = new Bundle();
+                result.putString(EXTRA_TEXT, sb.toString());
+                return result;
+            }
+            default:
+                return super.call(method, arg, extras);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        throw new UnsupportedOperationException("call only");
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException("call only");
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("call only");
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("call only");
+    }
+}
@@ -0,0 +1,121 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * 解析 /proc/stat 开头的 cpu 行，记录累计的总 jiffies 与空闲 jiffies。
+ * <pre>
+ * cpu  10132153 290696 3084719 46828483 16683 0 25195 0 0 0
+ * cpu0 1393280 32966 572056 13343292 6130 0 17875 0 0 0
+ * ...
+ * intr 199292843 ...
+ * </pre>
+ * 槽位 0 是汇总行，槽位 i + 1 是 cpu i；离线的核心不出现在文件里，对应槽位标记为不在线。
+ * 只读到最后一个 cpu 行为止，后面很长的 intr、softirq 行既不生成也不解析。
+ */
+public class CpuStatReader extends ProcReader {
+
+    public static final File DEFAULT_FILE = new File("/proc/stat");
+
+    private static final byte[] CPU = ascii("cpu");
+    // user nice system idle iowait irq softirq steal；guest 已计入 user，不再相加
+    private static final int FIELDS = 8;
+    private static final int IDLE_FIELD = 3;
+    private static final int IOWAIT_FIELD = 4;
+
+    private long[] total = new long[9];
+    private long[] idle = new long[9];
+    private boolean[] online = new boolean[9];
+    private int slots;
+    // 首次读取时不知道有几个核心，cpu 行被截断时加倍后重读
+    private int limit = 4096;
+
+    public CpuStatReader(File file) {
+        super(file);
+    }
+
+    /**
+     * 本进程能否读取 /proc/stat。Android 8 起 SELinux 不允许普通应用读取，
+     * 设置页据此把依赖它的占用率选项标为不可用。会读一次文件，不要在 tick 中调用。
+     */
+    public static boolean isReadable(File file) {
+        CpuStatReader reader = new CpuStatReader(file);
+        try {
+            // 首次读取可能因核心多而截断，再读一次
+            return reader.read() || reader.read();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    protected int readLimit() {
+        return limit;
+    }
+
+    @Override
+    protected boolean parse(byte[] buf, int length) {
+        Arrays.fill(online, false);
+        int maxSlot = -1;
+        int pos = 0;
+        while (pos < length && startsWith(buf, pos, length, CPU)) {
+            int lineEnd = nextLine(buf, pos, length);
+            if (lineEnd == length && (length == 0 || buf[length - 1] != '\n')) {
+                // 行被读取上限截断，下次读多一些；这一行本次放弃
+                if (length >= limit) limit *= 2;
+                break;
+            }
+            int p = pos + CPU.length;
+            int slot = 0;
+            if (p < length && buf[p] >= '0' && buf[p] <= '9') {
+                slot = (int) parseLong(buf, p, length) + 1;
+            }
+            if (slot >= total.length) grow(slot + 1);
+
+            long sum = 0;
+            long idleSum = 0;
+            for (int i = 0; i < FIELDS; i++) {
+                p = skipSpaces(buf, skipToken(buf, p, length), length);
+                if (p >= length || buf[p] == '\n') break;
+                long v = parseLong(buf, p, length);
+                sum += v;
+                if (i == IDLE_FIELD || i == IOWAIT_FIELD) idleSum += v;
+            }
+            total[slot] = sum;
+            idle[slot] = idleSum;
+            online[slot] = true;
+            maxSlot = Math.max(maxSlot, slot);
+            pos = lineEnd;
+        }
+        if (maxSlot < 0 || !online[0]) return false;
+        slots = maxSlot + 1;
+        return true;
+    }
+
+    private void grow(int size) {
+        size = Math.max(size, total.length * 2);
+        total = Arrays.copyOf(total, size);
+        idle = Arrays.copyOf(idle, size);
+        online = Arrays.copyOf(online, size);
+    }
+
+    /** 有效槽位数，即最大的在线 cpu 序号 + 2 */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    public boolean isOnline(int slot) {
+        return online[slot];
+    }
+
+    /** 累计总 jiffies */
+    public long getTotal(int slot) {
+        return total[slot];
+    }
+
+    /** 累计空闲 jiffies (idle + iowait) */
+    public long getIdle(int slot) {
+        return idle[slot];
+    }
+}
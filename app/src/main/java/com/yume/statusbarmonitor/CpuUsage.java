@@ -0,0 +1,272 @@
+package com.yume.statusbarmonitor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * CPU 占用率与频率。
+ * <p>
+ * 占用率来自 /proc/stat 两次读数的 jiffies 差值 (见 {@link CpuStatReader})：
+ * 汇总行给出整体占用，各核心按 cpufreq 的 related_cpus 归入簇 (小核、大核……) 后分别汇总。
+ * 频率取每簇 scaling_cur_freq，单位 kHz：优先读 cpufreq/policyN (核心离线时仍在)，
+ * 读不到时依次读簇内各核心的 cpuK/cpufreq，簇里只要有一个核心在线就有读数。
+ * <p>
+ * 簇的划分和频率文件在第一次 {@link #update} 时扫描一次，之后只重读保持打开的文件；
+ * 上次的读数保存在复用的基本类型数组里，每次更新不分配对象。
+ * 读不到 /proc/stat (Android 8 起 SELinux 对普通应用关闭了它，见 {@link CpuStatReader#isReadable})
+ * 时占用率为 {@link #UNKNOWN}，频率照常读取。
+ * 只在流水线线程上使用。
+ */
+public class CpuUsage {
+
+    public static final File DEFAULT_CPU_DIR = new File("/sys/devices/system/cpu");
+    public static final int MAX_CLUSTERS = 3;
+    public static final int UNKNOWN = -1;
+
+    private final CpuStatReader statReader;
+    private final File cpuDir;
+
+    private boolean discovered;
+    // cpu 序号到簇序号，未知为 -1
+    private int[] clusterOf = new int[0];
+    private int clusterCount;
+    // 每簇的频率文件候选，按优先级排列
+    private final SysfsLongReader[][] freqReaders = new SysfsLongReader[MAX_CLUSTERS][];
+
+    // 上次的累计读数，按 CpuStatReader 的槽位
+    private long[] lastTotal = new long[0];
+    private long[] lastIdle = new long[0];
+    private boolean[] lastOnline = new boolean[0];
+
+    private final long[] clusterTotalDelta = new long[MAX_CLUSTERS];
+    private final long[] clusterIdleDelta = new long[MAX_CLUSTERS];
+
+    private int totalPercent = UNKNOWN;
+    private final int[] clusterPercent = new int[MAX_CLUSTERS];
+    private final long[] clusterFreqKHz = new long[MAX_CLUSTERS];
+
+    public CpuUsage() {
+        this(CpuStatReader.DEFAULT_FILE, DEFAULT_CPU_DIR);
+    }
+
+    public CpuUsage(File procStat, File cpuDir) {
+        this.statReader = new CpuStatReader(procStat);
+        this.cpuDir = cpuDir;
+        Arrays.fill(clusterPercent, UNKNOWN);
+    }
+
+    public void update() {
+        if (!discovered) {
+            discover();
+            discovered = true;
+        }
+        if (statReader.read()) {
+            computeUtilization();
+        } else {
+            totalPercent = UNKNOWN;
+            Arrays.fill(clusterPercent, UNKNOWN);
+        }
+        for (int c = 0; c < MAX_CLUSTERS; c++) {
+            clusterFreqKHz[c] = readFreq(freqReaders[c]);
+        }
+    }
+
+    // 第一个读得到的候选；整簇离线时为 0
+    private static long readFreq(SysfsLongReader[] candidates) {
+        if (candidates == null) return 0;
+        for (SysfsLongReader reader : candidates) {
+            if (reader.read()) return reader.getValue();
+        }
+        return 0;
+    }
+
+    private void computeUtilization() {
+        int slots = statReader.getSlotCount();
+        if (lastTotal.length < slots) {
+            lastTotal = Arrays.copyOf(lastTotal, slots);
+            lastIdle = Arrays.copyOf(lastIdle, slots);
+            lastOnline = Arrays.copyOf(lastOnline, slots);
+        }
+        Arrays.fill(clusterTotalDelta, 0);
+        Arrays.fill(clusterIdleDelta, 0);
+
+        totalPercent = UNKNOWN;
+        for (int slot = 0; slot < slots; slot++) {
+            boolean online = statReader.isOnline(slot);
+            long total = statReader.getTotal(slot);
+            long idle = statReader.getIdle(slot);
+            // 核心离线再上线时计数可能归零，变小的读数只用来重建基线
+            if (online && lastOnline[slot] && total > lastTotal[slot] && idle >= lastIdle[slot]) {
+                long dTotal = total - lastTotal[slot];
+                long dIdle = Math.min(idle - lastIdle[slot], dTotal);
+                if (slot == 0) {
+                    totalPercent = percent(dTotal - dIdle, dTotal);
+                } else {
+                    int cpu = slot - 1;
+                    int cluster = cpu < clusterOf.length ? clusterOf[cpu] : -1;
+                    if (cluster >= 0) {
+                        clusterTotalDelta[cluster] += dTotal;
+                        clusterIdleDelta[cluster] += dIdle;
+                    }
+                }
+            }
+            lastTotal[slot] = total;
+            lastIdle[slot] = idle;
+            lastOnline[slot] = online;
+        }
+        // 槽位数变少说明末尾的核心离线了
+        for (int slot = slots; slot < lastOnline.length; slot++) {
+            lastOnline[slot] = false;
+        }
+
+        for (int c = 0; c < MAX_CLUSTERS; c++) {
+            long dTotal = clusterTotalDelta[c];
+            // 整簇离线时没有数据，按 0% 显示；没有这个簇时为 UNKNOWN
+            clusterPercent[c] = c >= clusterCount || totalPercent == UNKNOWN ? UNKNOWN
+                    : dTotal > 0 ? percent(dTotal - clusterIdleDelta[c], dTotal) : 0;
+        }
+    }
+
+    private static int percent(long busy, long total) {
+        return (int) ((busy * 100 + total / 2) / total);
+    }
+
+    /**
+     * 扫描 cpuN/cpufreq/related_cpus，同一个频率策略下的核心为一簇，簇按首个核心的序号排列。
+     * 没有 cpufreq 时全部核心为一簇。簇超过 {@link #MAX_CLUSTERS} 时多出的归入最后一簇。
+     */
+    private void discover() {
+        int cpuCount = 0;
+        File[] entries = cpuDir.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                int n = cpuNumber(entry.getName());
+                if (n >= 0) cpuCount = Math.max(cpuCount, n + 1);
+            }
+        }
+        clusterOf = new int[cpuCount];
+        Arrays.fill(clusterOf, -1);
+
+        for (int cpu = 0; cpu < cpuCount; cpu++) {
+            if (clusterOf[cpu] >= 0) continue;
+            File freqDir = new File(cpuDir, "cpu" + cpu + "/cpufreq");
+            int[] related = readCpuList(new File(freqDir, "related_cpus"));
+            if (related == null) continue;
+            int cluster = Math.min(clusterCount, MAX_CLUSTERS - 1);
+            if (cluster == clusterCount) {
+                clusterCount++;
+                freqReaders[cluster] = freqCandidates(cpu, related);
+            }
+            clusterOf[cpu] = cluster;
+            for (int other : related) {
+                if (other >= 0 && other < cpuCount && clusterOf[other] < 0) clusterOf[other] = cluster;
+            }
+        }
+        if (clusterCount == 0 && cpuCount > 0) {
+            Arrays.fill(clusterOf, 0);
+            clusterCount = 1;
+        }
+    }
+
+    /**
+     * 簇的频率文件候选：cpufreq/policyN (N 为策略内最小的核心序号) 在核心离线时保留，排在最前；
+     * 各核心的 cpuK/cpufreq 是指向策略的链接，核心离线时消失，作为后备。
+     * 扫描时首个核心可能已离线 (related 里没有 firstCpu 之前的核心也要算上)。
+     */
+    private SysfsLongReader[] freqCandidates(int firstCpu, int[] related) {
+        SysfsLongReader[] candidates = new SysfsLongReader[related.length + 2];
+        int n = 0;
+        int policyCpu = firstCpu;
+        for (int cpu : related) policyCpu = Math.min(policyCpu, cpu);
+        File policy = new File(cpuDir, "cpufreq/policy" + policyCpu);
+        if (policy.isDirectory()) {
+            candidates[n++] = new SysfsLongReader(new File(policy, "scaling_cur_freq"));
+        }
+        candidates[n++] = new SysfsLongReader(new File(cpuDir, "cpu" + firstCpu + "/cpufreq/scaling_cur_freq"));
+        for (int cpu : related) {
+            if (cpu == firstCpu) continue;
+            candidates[n++] = new SysfsLongReader(new File(cpuDir, "cpu" + cpu + "/cpufreq/scaling_cur_freq"));
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    // "cpu12" -> 12，其他名字 (cpufreq、cpuidle……) -> -1
+    private static int cpuNumber(String name) {
+        if (!name.startsWith("cpu") || name.length() == 3) return -1;
+        int n = 0;
+        for (int i = 3; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    /** 读取 "0 1 2 3" 或 "0-3" 形式的核心列表，读不到返回 null。只在扫描时调用一次 */
+    static int[] readCpuList(File file) {
+        String line;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            line = reader.readLine();
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        if (line == null) return null;
+        return parseCpuList(line);
+    }
+
+    static int[] parseCpuList(String text) {
+        int[] cpus = new int[0];
+        for (String part : text.trim().split("[\\s,]+")) {
+            if (part.isEmpty()) continue;
+            try {
+                int dash = part.indexOf('-');
+                int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash));
+                int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1));
+                for (int cpu = from; cpu <= to; cpu++) {
+                    cpus = Arrays.copyOf(cpus, cpus.length + 1);
+                    cpus[cpus.length - 1] = cpu;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return cpus.length > 0 ? cpus : null;
+    }
+
+    public void close() {
+        statReader.close();
+        for (SysfsLongReader[] candidates : freqReaders) {
+            if (candidates == null) continue;
+            for (SysfsLongReader reader : candidates) reader.close();
+        }
+    }
+
+    /** 整体占用率 0~100，首次读数或不可读时为 {@link #UNKNOWN} */
+    public int getTotalPercent() {
+        return totalPercent;
+    }
+
+    /** 第 cluster 簇的占用率 0~100，没有这个簇或不可读时为 {@link #UNKNOWN} */
+    public int getClusterPercent(int cluster) {
+        return clusterPercent[cluster];
+    }
+
+    /** 第 cluster 簇的当前频率 (kHz)，读不到为 0 */
+    public long getClusterFreqKHz(int cluster) {
+        return clusterFreqKHz[cluster];
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /** 各簇当前频率的最大值 (kHz) */
+    public long getMaxFreqKHz() {
+        long max = 0;
+        for (long f : clusterFreqKHz) max = Math.max(max, f);
+        return max;
+    }
+}
@@ -0,0 +1,127 @@
+package com.yume.statusbarmonitor;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.view.Display;
+
+/**
+ * 监听亮灭屏、熄屏显示、省电模式和 Doze 状态，并把结果缓存成基本类型字段，
+ * 供 {@link AdaptiveScheduler} 每个 tick 读取而无需跨进程查询。
+ * 所有回调都投递到传入的 Handler (流水线线程) 上。
+ */
+public class DeviceStateMonitor implements AdaptiveScheduler.StateSource {
+
+    public interface Listener {
+        void onDeviceStateChanged();
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final DisplayManager displayManager;
+    private final Listener listener;
+
+    private volatile boolean interactive = true;
+    private volatile boolean ambient;
+    private volatile boolean powerSave;
+    private volatile boolean deviceIdle;
+    private boolean registered;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context c, Intent intent) {
+            refresh();
+        }
+    };
+
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            // AoD 的进入/退出只体现在显示状态上，没有单独的广播
+            if (displayId == Display.DEFAULT_DISPLAY) {
+                refresh();
+            }
+        }
+    };
+
+    public DeviceStateMonitor(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        this.listener = listener;
+    }
+
+    public void register(Handler handler) {
+        if (registered) return;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+        context.registerReceiver(receiver, filter, null, handler);
+        displayManager.registerDisplayListener(displayListener, handler);
+        registered = true;
+        update();
+    }
+
+    public void unregister() {
+        if (!registered) return;
+        context.unregisterReceiver(receiver);
+        displayManager.unregisterDisplayListener(displayListener);
+        registered = false;
+    }
+
+    private void refresh() {
+        boolean wasInteractive = interactive;
+        boolean wasAmbient = ambient;
+        boolean wasPowerSave = powerSave;
+        boolean wasIdle = deviceIdle;
+        update();
+        if (wasInteractive != interactive || wasAmbient != ambient
+                || wasPowerSave != powerSave || wasIdle != deviceIdle) {
+            listener.onDeviceStateChanged();
+        }
+    }
+
+    private void update() {
+        interactive = powerManager.isInteractive();
+        powerSave = powerManager.isPowerSaveMode();
+        deviceIdle = powerManager.isDeviceIdleMode();
+        Display display = displayManager.getDisplay(Display.DEFAULT_DISPLAY);
+        int state = display != null ? display.getState() : Display.STATE_UNKNOWN;
+        ambient = !interactive
+                && (state == Display.STATE_DOZE || state == Display.STATE_DOZE_SUSPEND);
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    @Override
+    public boolean isAmbient() {
+        return ambient;
+    }
+
+    @Override
+    public boolean isPowerSaveMode() {
+        return powerSave;
+    }
+
+    @Override
+    public boolean isDeviceIdleMode() {
+        return deviceIdle;
+    }
+}
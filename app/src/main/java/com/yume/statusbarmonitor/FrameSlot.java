@@ -0,0 +1,29 @@
+package com.yume.statusbarmonitor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 流水线两个阶段之间的无锁单槽交换。
+ * <p>
+ * 生产者 (流水线线程) 用 {@link #offer} 放入最新一帧；如果上一帧还没被消费，
+ * 它会被直接顶掉并返回给生产者回收——迟到的帧被丢弃而不是排队。
+ * 消费者 (发布线程) 用 {@link #poll} 取走当前帧。
+ */
+public final class FrameSlot<T> {
+
+    private final AtomicReference<T> slot = new AtomicReference<>();
+
+    /**
+     * @return 被顶掉、从未被消费的旧帧；槽原本为空时返回 null
+     */
+    public T offer(T frame) {
+        return slot.getAndSet(frame);
+    }
+
+    /**
+     * @return 当前帧，槽为空时返回 null
+     */
+    public T poll() {
+        return slot.getAndSet(null);
+    }
+}
@@ -0,0 +1,118 @@
+package com.yume.statusbarmonitor;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.Arrays;
+
+/**
+ * 图标文字的字形图集。
+ * <p>
+ * 图标上只会出现数字和少数几个符号 ({@link #CHARSET})，字体或字号变化时用文字画笔把它们
+ * 逐个光栅化进一张 ALPHA_8 小图，并记录各自的步进宽度；之后每帧按步进把字形贴到图标上，
+ * 不再经过 drawText 的字形排版。因为步进已知，{@link #measure} 可以零成本算出行宽，
+ * 行宽超出图标时横向压缩 (自动适配)。
+ * <p>
+ * 文字里有图集之外的字符时 {@link #draw} 返回 false，由调用方回退到 drawText。
+ * 只在流水线线程上使用。
+ */
+final class GlyphAtlas {
+
+    /** 图标文字可能出现的全部字符，见 {@link MetricFormatter#appendValue} */
+    static final String CHARSET = "0123456789.-°%GKMVW";
+
+    // 字符到图集序号的查表，只覆盖 Latin-1 (° 为 0xB0)
+    private static final byte[] INDEX = new byte[256];
+
+    static {
+        Arrays.fill(INDEX, (byte) -1);
+        for (int i = 0; i < CHARSET.length(); i++) {
+            INDEX[CHARSET.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final float[] advances = new float[CHARSET.length()];
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+    private final Paint blitPaint = new Paint();
+
+    private Bitmap atlas;
+    private int cellWidth;
+    private int cellHeight;
+    // 字形在格子里的原点：左边留出 pad，基线在 baseline 处
+    private int pad;
+    private int baseline;
+
+    GlyphAtlas() {
+        blitPaint.setColor(Color.WHITE);
+    }
+
+    static boolean covers(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= INDEX.length || INDEX[c] < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按文字画笔当前的字体和字号重新光栅化。字体、字号变化时调用。
+     */
+    void rebuild(Paint textPaint) {
+        Paint.FontMetricsInt fm = textPaint.getFontMetricsInt();
+        // 字形可能略微伸出步进范围 (左右侧支距、斜体)，格子四周留白
+        pad = Math.max(1, Math.round(textPaint.getTextSize() / 8));
+        float maxAdvance = 0;
+        for (int i = 0; i < CHARSET.length(); i++) {
+            advances[i] = textPaint.measureText(CHARSET, i, i + 1);
+            maxAdvance = Math.max(maxAdvance, advances[i]);
+        }
+        cellWidth = (int) Math.ceil(maxAdvance) + 2 * pad;
+        cellHeight = fm.bottom - fm.top + 2 * pad;
+        baseline = pad - fm.top;
+
+        if (atlas != null) atlas.recycle();
+        atlas = Bitmap.createBitmap(cellWidth * CHARSET.length(), cellHeight, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(atlas);
+        for (int i = 0; i < CHARSET.length(); i++) {
+            canvas.drawText(CHARSET, i, i + 1, i * cellWidth + pad, baseline, textPaint);
+        }
+    }
+
+    /** 行宽 (像素)；含图集之外的字符时结果没有意义 */
+    float measure(CharSequence text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += advances[INDEX[text.charAt(i)]];
+        }
+        return width;
+    }
+
+    /**
+     * 从 (x, y) 开始按基线 y 绘制一行。行宽超过 maxWidth 时整体横向压缩到 maxWidth。
+     *
+     * @return false 表示文字含有图集之外的字符，什么也没画
+     */
+    boolean draw(Canvas canvas, CharSequence text, float x, float y, float maxWidth) {
+        if (atlas == null || !covers(text)) return false;
+        float width = measure(text);
+        float scale = width > maxWidth && maxWidth > 0 ? maxWidth / width : 1f;
+        // 压缩时需要插值，原尺寸贴图保持像素对齐
+        blitPaint.setFilterBitmap(scale != 1f);
+        float pen = 0;
+        float top = y - baseline;
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = INDEX[text.charAt(i)];
+            src.set(glyph * cellWidth, 0, (glyph + 1) * cellWidth, cellHeight);
+            float left = scale == 1f ? Math.round(x + pen) - pad : x + (pen - pad) * scale;
+            dst.set(left, Math.round(top), left + cellWidth * scale, Math.round(top) + cellHeight);
+            canvas.drawBitmap(atlas, src, dst, blitPaint);
+            pen += advances[glyph];
+        }
+        return true;
+    }
+}
@@ -0,0 +1,354 @@
+package com.yume.statusbarmonitor;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 只读的指标历史导出，运行在 :monitor 进程中，与服务共用同一个 {@link MetricLogStore}。
+ * <p>
+ * URI：{@code content://com.yume.statusbarmonitor.history/<raw|minute|hour>[.csv|.bin]}，
+ * 参数 {@code from} / {@code to} (毫秒时间戳，默认最近 24 小时)、
+ * {@code max_points} (超过时在服务端降采样)。
+ * <ul>
+ *     <li>query：返回按需读取的 Cursor，跨进程时按 CursorWindow 分页传输；</li>
+ *     <li>openFile (.csv / .bin)：通过管道边读边写，.bin 为连续的
+ *     {@link MetricLogRecord#SIZE} 字节大端记录。</li>
+ * </ul>
+ * 例：
+ * <pre>
+ * adb shell content query --uri "content://com.yume.statusbarmonitor.history/minute?max_points=500"
+ * adb shell content read --uri "content://com.yume.statusbarmonitor.history/hour.csv?from=0" > hour.csv
+ * </pre>
+ * 访问需要 android.permission.DUMP (adb shell 具备)，本应用自身不受限制。
+ * 配置下发和诊断统计走不导出的 {@link ControlProvider}，本 Provider 不改变任何状态。
+ */
+public class HistoryProvider extends ContentProvider {
+
+    private static final String TAG = "HistoryProvider";
+    public static final String AUTHORITY = "com.yume.statusbarmonitor.history";
+
+    public static final String PARAM_FROM = "from";
+    public static final String PARAM_TO = "to";
+    public static final String PARAM_MAX_POINTS = "max_points";
+
+    private static final long DEFAULT_SPAN_MS = 24 * 3_600_000L;
+
+    static final String[] COLUMNS = {
+            "time", "samples", "watt_avg_mw", "watt_max_mw", "temperature_avg", "temperature_max",
+            "voltage_mv", "battery_percent", "memory_percent", "download_bps", "upload_bps"
+    };
+
+    private static final int FORMAT_CURSOR = 0;
+    private static final int FORMAT_CSV = 1;
+    private static final int FORMAT_BINARY = 2;
+
+    private static final UriMatcher MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        for (MetricLogStore.Tier tier : MetricLogStore.Tier.values()) {
+            int base = tier.ordinal() * 3;
+            MATCHER.addURI(AUTHORITY, tier.fileName, base + FORMAT_CURSOR);
+            MATCHER.addURI(AUTHORITY, tier.fileName + ".csv", base + FORMAT_CSV);
+            MATCHER.addURI(AUTHORITY, tier.fileName + ".bin", base + FORMAT_BINARY);
+        }
+    }
+
+    @Override
+    public boolean onCreate() {
+        // 日志在第一次查询时才打开，不拖慢进程启动
+        return true;
+    }
+
+    private MetricLogStore acquireStore() throws IOException {
+        return MetricLogStore.acquire(new File(getContext().getFilesDir(), MetricLogStore.DIR_NAME));
+    }
+
+    private static void releaseStore(MetricLogStore store) {
+        try {
+            MetricLogStore.release(store);
+        } catch (IOException e) {
+            Log.e(TAG, "release failed", e);
+        }
+    }
+
+    private static MetricLogStore.Tier tierOf(int match) {
+        return MetricLogStore.Tier.values()[match / 3];
+    }
+
+    private static HistoryQuery buildQuery(MetricLogStore store, MetricLogStore.Tier tier, Uri uri)
+            throws IOException {
+        long to = parseLong(uri.getQueryParameter(PARAM_TO), System.currentTimeMillis());
+        long from = parseLong(uri.getQueryParameter(PARAM_FROM), to - DEFAULT_SPAN_MS);
+        int maxPoints = (int) parseLong(uri.getQueryParameter(PARAM_MAX_POINTS), 0);
+        return new HistoryQuery(store, tier, from, to, Math.max(0, maxPoints));
+    }
+
+    private static long parseLong(String value, long fallback) {
+        if (value == null) return fallback;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number: " + value);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        int match = MATCHER.match(uri);
+        if (match < 0 || match % 3 != FORMAT_CURSOR) {
+            throw new IllegalArgumentException("Unknown URI " + uri);
+        }
+        MetricLogStore store;
+        try {
+            store = acquireStore();
+        } catch (IOException e) {
+            Log.e(TAG, "open failed", e);
+            return null;
+        }
+        try {
+            return new HistoryCursor(store, buildQuery(store, tierOf(match), uri));
+        } catch (IOException | RuntimeException e) {
+            releaseStore(store);
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            Log.e(TAG, "query failed", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        int match = MATCHER.match(uri);
+        if (match < 0 || match % 3 == FORMAT_CURSOR || !"r".equals(mode)) {
+            throw new FileNotFoundException("Unsupported " + uri + " mode " + mode);
+        }
+        MetricLogStore store;
+        HistoryQuery query;
+        try {
+            store = acquireStore();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Can't open metric log: " + e.getMessage());
+        }
+        try {
+            query = buildQuery(store, tierOf(match), uri);
+        } catch (IOException | RuntimeException e) {
+            releaseStore(store);
+            throw new FileNotFoundException(e.getMessage());
+        }
+        boolean csv = match % 3 == FORMAT_CSV;
+        return openPipeHelper(uri, getType(uri), null, query, (output, u, mimeType, opts, q) -> {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output.getFileDescriptor()), 16 * 1024)) {
+                if (csv) {
+                    writeCsv(q, out);
+                } else {
+                    writeBinary(q, out);
+                }
+            } catch (IOException e) {
+                // 读取方提前关闭管道属于正常情况
+                Log.w(TAG, "export aborted: " + e.getMessage());
+            } finally {
+                releaseStore(store);
+            }
+        });
+    }
+
+    static void writeCsv(HistoryQuery query, OutputStream out) throws IOException {
+        MetricLogRecord r = new MetricLogRecord();
+        StringBuilder line = new StringBuilder(128);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) line.append(',');
+            line.append(COLUMNS[i]);
+        }
+        line.append('\n');
+        writeAscii(line, out);
+        for (int i = 0; i < query.getCount(); i++) {
+            if (!query.read(i, r)) continue;
+            line.setLength(0);
+            line.append(r.timeMs).append(',')
+                    .append(r.samples).append(',')
+                    .append(r.wattAvgMw).append(',')
+                    .append(r.wattMaxMw).append(',')
+                    .append(r.temperatureAvg).append(',')
+                    .append(r.temperatureMax).append(',')
+                    .append(r.voltageAvg).append(',')
+                    .append(r.batteryPercent).append(',')
+                    .append(r.memPercent).append(',')
+                    .append(r.downloadAvg).append(',')
+                    .append(r.uploadAvg).append('\n');
+            writeAscii(line, out);
+        }
+    }
+
+    // 每行都是 ASCII，逐字符写入缓冲流，不生成中间 String
+    private static void writeAscii(CharSequence cs, OutputStream out) throws IOException {
+        for (int i = 0; i < cs.length(); i++) {
+            out.write(cs.charAt(i));
+        }
+    }
+
+    static void writeBinary(HistoryQuery query, OutputStream out) throws IOException {
+        MetricLogRecord r = new MetricLogRecord();
+        ByteBuffer buf = ByteBuffer.allocate(MetricLogRecord.SIZE);
+        for (int i = 0; i < query.getCount(); i++) {
+            if (!query.read(i, r)) continue;
+            buf.clear();
+            r.write(buf);
+            out.write(buf.array(), 0, MetricLogRecord.SIZE);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        int match = MATCHER.match(uri);
+        if (match < 0) return null;
+        switch (match % 3) {
+            case FORMAT_CSV:
+                return "text/csv";
+            case FORMAT_BINARY:
+                return "application/octet-stream";
+            default:
+                return "vnd.android.cursor.dir/vnd." + AUTHORITY + "." + tierOf(match).fileName;
+        }
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    /**
+     * 按需读取的 Cursor：只在移动到某一行时读取该点，
+     * 跨进程时由框架按 CursorWindow 大小分批填充。关闭时释放日志引用。
+     */
+    private static final class HistoryCursor extends AbstractCursor {
+        private static final MetricLogRecord EMPTY = new MetricLogRecord();
+
+        private final MetricLogStore store;
+        private final HistoryQuery query;
+        private final MetricLogRecord row = new MetricLogRecord();
+        private boolean released;
+
+        HistoryCursor(MetricLogStore store, HistoryQuery query) {
+            this.store = store;
+            this.query = query;
+        }
+
+        @Override
+        public int getCount() {
+            return query.getCount();
+        }
+
+        @Override
+        public String[] getColumnNames() {
+            return COLUMNS;
+        }
+
+        @Override
+        public boolean onMove(int oldPosition, int newPosition) {
+            try {
+                if (!query.read(newPosition, row)) {
+                    // 已被覆盖的点以空样本返回，保持行数不变
+                    row.copyFrom(EMPTY);
+                }
+                return true;
+            } catch (IOException e) {
+                Log.e(TAG, "read failed", e);
+                return false;
+            }
+        }
+
+        @Override
+        public long getLong(int column) {
+            switch (column) {
+                case 0: return row.timeMs;
+                case 1: return row.samples;
+                case 2: return row.wattAvgMw;
+                case 3: return row.wattMaxMw;
+                case 4: return row.temperatureAvg;
+                case 5: return row.temperatureMax;
+                case 6: return row.voltageAvg;
+                case 7: return row.batteryPercent;
+                case 8: return row.memPercent;
+                case 9: return row.downloadAvg;
+                case 10: return row.uploadAvg;
+                default: throw new IllegalArgumentException("column " + column);
+            }
+        }
+
+        @Override
+        public int getType(int column) {
+            return FIELD_TYPE_INTEGER;
+        }
+
+        @Override
+        public String getString(int column) {
+            return Long.toString(getLong(column));
+        }
+
+        @Override
+        public short getShort(int column) {
+            return (short) getLong(column);
+        }
+
+        @Override
+        public int getInt(int column) {
+            return (int) getLong(column);
+        }
+
+        @Override
+        public float getFloat(int column) {
+            return getLong(column);
+        }
+
+        @Override
+        public double getDouble(int column) {
+            return getLong(column);
+        }
+
+        @Override
+        public boolean isNull(int column) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            if (!released) {
+                released = true;
+                releaseStore(store);
+            }
+        }
+    }
+}
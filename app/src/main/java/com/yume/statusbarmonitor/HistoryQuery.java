@@ -0,0 +1,76 @@
+package com.yume.statusbarmonitor;
+
+import java.io.IOException;
+
+/**
+ * 指标日志上的一次时间范围查询，按需逐点读取，不把结果整体载入内存。
+ * <p>
+ * 范围在构造时换算成记录序号，之后即使日志继续写入、最旧的记录被覆盖，
+ * 已确定的点也不会错位 (被覆盖的点读取失败)。
+ * 指定最大点数且记录更多时在这里降采样：把相邻的若干条记录合并为一个点，
+ * 平均值按样本数加权，峰值取最大，时间取组内第一条。
+ */
+public final class HistoryQuery {
+
+    private final MetricLogStore store;
+    private final MetricLogStore.Tier tier;
+    private final long start;
+    private final long end;
+    private final int group;
+    private final int count;
+    private final MetricLogStore.Rollup rollup;
+    private final MetricLogRecord scratch = new MetricLogRecord();
+
+    /**
+     * @param fromMs    起始时间 (含)
+     * @param toMs      结束时间 (不含)
+     * @param maxPoints 最多返回的点数，0 表示不降采样
+     */
+    public HistoryQuery(MetricLogStore store, MetricLogStore.Tier tier,
+                        long fromMs, long toMs, int maxPoints) throws IOException {
+        this.store = store;
+        this.tier = tier;
+        this.rollup = new MetricLogStore.Rollup(tier.bucketMs);
+        start = store.seekSequence(tier, fromMs, scratch);
+        end = Math.max(start, store.seekSequence(tier, toMs, scratch));
+        long records = end - start;
+        group = maxPoints > 0 && records > maxPoints
+                ? (int) ((records + maxPoints - 1) / maxPoints) : 1;
+        count = (int) ((records + group - 1) / group);
+    }
+
+    public MetricLogStore.Tier getTier() {
+        return tier;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 读取第 point 个点。
+     *
+     * @return false 表示这个点的记录在查询后已全部被覆盖
+     */
+    public boolean read(int point, MetricLogRecord out) throws IOException {
+        if (point < 0 || point >= count) return false;
+        long first = start + (long) point * group;
+        long last = Math.min(end, first + group);
+        if (group == 1) {
+            return store.readSequence(tier, first, out);
+        }
+        boolean any = false;
+        for (long seq = first; seq < last; seq++) {
+            if (!store.readSequence(tier, seq, scratch)) continue;
+            if (!any) {
+                rollup.bucket = scratch.timeMs;
+                any = true;
+            }
+            rollup.add(scratch);
+        }
+        if (!any) return false;
+        rollup.emit();
+        out.copyFrom(rollup.emitted);
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 单个指标的定长历史：long[] 环形缓冲区，满了以后覆盖最旧的值。
+ * <p>
+ * 追加是 O(1) (均摊)，不装箱、不扩容，内存只取决于容量。
+ * 窗口 (即当前保留的全部样本) 的最小值、最大值、平均值都是 O(1) 查询：
+ * 平均值靠滑动和，最值靠两个单调队列——队列里存样本序号，
+ * 按值单调排列，队头就是窗口内的最值，过期的序号从队头弹出。
+ */
+public final class HistorySeries {
+
+    private final int capacity;
+    private final long[] values;
+    // 单调队列，存放样本序号；两者容量都不会超过窗口大小
+    private final long[] maxQueue;
+    private final long[] minQueue;
+    private int maxHead, maxSize;
+    private int minHead, minSize;
+
+    private long count; // 累计追加的样本数，也是下一个样本的序号
+    private long sum;
+
+    public HistorySeries(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        values = new long[capacity];
+        maxQueue = new long[capacity];
+        minQueue = new long[capacity];
+    }
+
+    public void append(long value) {
+        long seq = count;
+        int slot = (int) (seq % capacity);
+        if (seq >= capacity) {
+            // 覆盖最旧的样本，先把它移出窗口
+            long expired = seq - capacity;
+            sum -= values[slot];
+            if (maxSize > 0 && maxQueue[maxHead] == expired) {
+                maxHead = (maxHead + 1) % capacity;
+                maxSize--;
+            }
+            if (minSize > 0 && minQueue[minHead] == expired) {
+                minHead = (minHead + 1) % capacity;
+                minSize--;
+            }
+        }
+        values[slot] = value;
+        sum += value;
+
+        // 队尾比新值“更差”的样本永远不会再成为最值，直接丢弃
+        while (maxSize > 0 && valueAt(maxQueue[(maxHead + maxSize - 1) % capacity]) <= value) {
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize) % capacity] = seq;
+        maxSize++;
+        while (minSize > 0 && valueAt(minQueue[(minHead + minSize - 1) % capacity]) >= value) {
+            minSize--;
+        }
+        minQueue[(minHead + minSize) % capacity] = seq;
+        minSize++;
+
+        count = seq + 1;
+    }
+
+    private long valueAt(long seq) {
+        return values[(int) (seq % capacity)];
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        maxHead = maxSize = 0;
+        minHead = minSize = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** 当前保留的样本数 */
+    public int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param age 0 为最新的样本，size()-1 为最旧的
+     */
+    public long get(int age) {
+        if (age < 0 || age >= size()) throw new IndexOutOfBoundsException("age " + age);
+        return valueAt(count - 1 - age);
+    }
+
+    /** 最新的样本；为空时返回 0 */
+    public long latest() {
+        return count == 0 ? 0 : valueAt(count - 1);
+    }
+
+    /** 窗口内最小值；为空时返回 0 */
+    public long min() {
+        return minSize == 0 ? 0 : valueAt(minQueue[minHead]);
+    }
+
+    /** 窗口内最大值；为空时返回 0 */
+    public long max() {
+        return maxSize == 0 ? 0 : valueAt(maxQueue[maxHead]);
+    }
+
+    /** 窗口内平均值；为空时返回 0 */
+    public double average() {
+        int n = size();
+        return n == 0 ? 0 : (double) sum / n;
+    }
+
+    /**
+     * 把最近的至多 n 个样本按从旧到新的顺序复制到 out 开头。
+     *
+     * @return 实际复制的个数
+     */
+    public int copyRecent(long[] out, int n) {
+        int k = Math.min(Math.min(n, out.length), size());
+        long first = count - k;
+        for (int i = 0; i < k; i++) {
+            out[i] = valueAt(first + i);
+        }
+        return k;
+    }
+}
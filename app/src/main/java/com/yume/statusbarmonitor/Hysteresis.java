@@ -0,0 +1,28 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 数值迟滞：新值与当前保持值相差至少 threshold 才更新。
+ * 用于电流、电压这类噪声大的读数，避免数字在显示位的边界上来回跳动，
+ * 从而让没有可见变化的帧能被 {@link PublishGate} 拦下。
+ */
+public final class Hysteresis {
+
+    private boolean primed;
+    private long held;
+
+    /**
+     * @param threshold 小于等于 0 表示不做迟滞，直接返回原值
+     * @return 当前应当显示的值
+     */
+    public long apply(long value, long threshold) {
+        if (!primed || threshold <= 0 || Math.abs(value - held) >= threshold) {
+            held = value;
+            primed = true;
+        }
+        return held;
+    }
+
+    public void reset() {
+        primed = false;
+    }
+}
@@ -0,0 +1,268 @@
+package com.yume.statusbarmonitor;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Typeface;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 状态栏图标的绘制面。
+ * <p>
+ * Bitmap、Canvas、Paint、圆环几何 ({@link RingGeometry})、虚线效果都在 {@link #configure} 时按
+ * 图标尺寸 / 字体 / 虚线设置一次性创建，之后每帧只复用，不再分配对象。
+ * Bitmap 轮换使用：{@link #render} 只会选一张没有被占用的缓冲区，
+ * 交给通知的那一张要等发布线程调用 {@link #release} 后才会被再次改写，
+ * 避免系统仍在读取时被覆盖。流水线里最多同时有“待发布”和“发布中”两帧，
+ * 所以三张缓冲区就能保证总有一张空闲。
+ * <p>
+ * 图标尺寸变化时整组缓冲区换新，代数 (generation) 加一。{@link #render} 返回的序号带着代数，
+ * 旧一代的帧稍后 release 时对不上当前占用者，直接忽略，不会把新缓冲区误标为空闲。
+ * <p>
+ * 文字优先用 {@link GlyphAtlas} 贴图绘制，行宽超出图标时自动横向压缩；
+ * 出现图集之外的字符时回退到 drawText。
+ */
+public class IconRenderer {
+
+    private static final int BUFFER_COUNT = 3;
+    /** 没有空闲缓冲区，本帧没有绘制 */
+    public static final int NO_BUFFER = -1;
+    // 虚线相位循环的上限，防止极端的长度/间隔组合生成过多 DashPathEffect
+    private static final int MAX_DASH_STEPS = 256;
+    // 曲线模式显示的样本数
+    public static final int SPARKLINE_POINTS = 24;
+
+    private final Bitmap[] buffers = new Bitmap[BUFFER_COUNT];
+    private final Canvas[] canvases = new Canvas[BUFFER_COUNT];
+    // 0 表示空闲；否则为占用它的帧所属的代数，该帧尚未发布完，不能改写
+    private final AtomicIntegerArray busy = new AtomicIntegerArray(BUFFER_COUNT);
+    private int nextBuffer = 0;
+    // 当前这组缓冲区的代数，从 1 开始；只在绘制线程上读写
+    private int generation = 0;
+
+    private final Paint strokePaint = new Paint();
+    private final Paint textPaint = new Paint();
+    private final GlyphAtlas glyphs = new GlyphAtlas();
+    private RingGeometry ring;
+
+    // 曲线模式：本帧要画的样本及纵轴范围，由 setSparkline 载入
+    private final Paint sparkPaint = new Paint();
+    private final Path sparkPath = new Path();
+    private final long[] sparkValues = new long[SPARKLINE_POINTS];
+    private int sparkCount;
+    private long sparkMin;
+    private long sparkMax;
+    private float textCenterY;
+
+    // 按相位步数预生成的虚线效果，dashEffects[k] 的相位为 k * dashLength
+    private DashPathEffect[] dashEffects;
+
+    // 当前生效的配置，变化时才重建
+    private int bitmapSize = -1;
+    private Typeface typeface;
+    private int fontSize = -1;
+    private boolean dashed;
+    private int dashLength = -1;
+    private int dashGap = -1;
+
+    public IconRenderer() {
+        strokePaint.setAntiAlias(true);
+        strokePaint.setStyle(Paint.Style.STROKE);
+        // 改用 BUTT 以获得精准的自定义控制
+        strokePaint.setStrokeCap(Paint.Cap.BUTT);
+        strokePaint.setColor(Color.WHITE); // 纯白，交给系统变色
+
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.LEFT);
+
+        sparkPaint.setAntiAlias(true);
+        sparkPaint.setStyle(Paint.Style.STROKE);
+        sparkPaint.setStrokeJoin(Paint.Join.ROUND);
+        sparkPaint.setColor(Color.WHITE);
+    }
+
+    /**
+     * 应用绘制配置。只有与当前配置不同的部分才会重建，可以每帧调用。
+     */
+    public void configure(int bitmapSize, Typeface typeface, int fontSize,
+                          boolean dashed, int dashLength, int dashGap) {
+        if (bitmapSize != this.bitmapSize) {
+            this.bitmapSize = bitmapSize;
+            // 旧 Bitmap 仍被未发布的通知引用也没关系，新缓冲区是全新对象；
+            // 旧一代的帧之后 release 时代数对不上，不会影响新缓冲区
+            generation = generation == Integer.MAX_VALUE / BUFFER_COUNT ? 1 : generation + 1;
+            for (int i = 0; i < BUFFER_COUNT; i++) {
+                buffers[i] = Bitmap.createBitmap(bitmapSize, bitmapSize, Bitmap.Config.ARGB_8888);
+                canvases[i] = new Canvas(buffers[i]);
+                busy.set(i, 0);
+            }
+            strokePaint.setStrokeWidth(bitmapSize / 10f);
+            sparkPaint.setStrokeWidth(Math.max(1f, bitmapSize / 20f));
+            ring = new RingGeometry(bitmapSize);
+        }
+
+        if (typeface != this.typeface || fontSize != this.fontSize) {
+            this.typeface = typeface;
+            this.fontSize = fontSize;
+            textPaint.setTextSize(fontSize);
+            textPaint.setTypeface(typeface);
+            glyphs.rebuild(textPaint);
+        }
+        textCenterY = (bitmapSize / 2f) - (textPaint.descent() + textPaint.ascent()) / 2;
+
+        if (dashed != this.dashed || dashLength != this.dashLength || dashGap != this.dashGap) {
+            this.dashed = dashed;
+            this.dashLength = dashLength;
+            this.dashGap = dashGap;
+            dashEffects = dashed ? buildDashEffects(dashLength, dashGap) : null;
+        }
+    }
+
+    /**
+     * 相位每帧前进一个线段长度，以 (长度 + 间隔) 为周期循环，
+     * 所以只需要 周期 / gcd(长度, 周期) 个不同的 DashPathEffect。
+     */
+    private static DashPathEffect[] buildDashEffects(int dashLength, int dashGap) {
+        int period = dashLength + dashGap;
+        if (dashLength <= 0 || dashGap < 0 || period <= 0) {
+            return null;
+        }
+        int steps = Math.min(period / gcd(dashLength, period), MAX_DASH_STEPS);
+        float[] intervals = {(float) dashLength, (float) dashGap};
+        DashPathEffect[] effects = new DashPathEffect[steps];
+        for (int k = 0; k < steps; k++) {
+            // 这里的第二个参数就是相位（动画的核心）
+            effects[k] = new DashPathEffect(intervals, (float) ((long) k * dashLength % period));
+        }
+        return effects;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * 本帧实际使用的虚线相位序号，供变化检测比较；实线或不画圆环时为 -1。
+     */
+    public int dashIndex(int dashStep, int progress) {
+        if (progress < 0 || dashEffects == null) return -1;
+        return Math.floorMod(dashStep, dashEffects.length);
+    }
+
+    /**
+     * 载入曲线模式本帧要画的最近 {@link #SPARKLINE_POINTS} 个样本。
+     * 纵轴范围取整个历史窗口的最值，曲线不会随每个新样本忽大忽小。
+     *
+     * @param series null 表示不画曲线
+     * @return 曲线按像素量化后的签名，画面不变时签名不变，供变化检测比较；不画时为 0
+     */
+    public int setSparkline(HistorySeries series) {
+        if (series == null || series.size() < 2) {
+            sparkCount = 0;
+            return 0;
+        }
+        sparkCount = series.copyRecent(sparkValues, SPARKLINE_POINTS);
+        sparkMin = series.min();
+        sparkMax = series.max();
+        int signature = sparkCount;
+        for (int i = 0; i < sparkCount; i++) {
+            signature = signature * 31 + Math.round(sparkY(i));
+        }
+        return signature;
+    }
+
+    // 曲线占据图标下半部分，最新的样本在最右侧
+    private float sparkX(int i) {
+        float margin = bitmapSize / 10f;
+        float step = (bitmapSize - 2 * margin) / (SPARKLINE_POINTS - 1);
+        return bitmapSize - margin - (sparkCount - 1 - i) * step;
+    }
+
+    private float sparkY(int i) {
+        float margin = bitmapSize / 10f;
+        float top = bitmapSize / 2f + margin / 2;
+        float bottom = bitmapSize - margin;
+        if (sparkMax == sparkMin) return (top + bottom) / 2;
+        float t = (float) ((double) (sparkValues[i] - sparkMin) / (sparkMax - sparkMin));
+        return bottom - (bottom - top) * t;
+    }
+
+    /**
+     * 绘制一帧到下一个空闲缓冲区，并把它标记为占用。
+     *
+     * @param line2     第二行文字，null 表示只有一行；曲线模式下应传 null，曲线画在第二行的位置
+     * @param progress  圆环进度 0~100，负数代表不画
+     * @param dashStep  虚线流动的帧计数
+     * @return 带代数的缓冲区序号，用 {@link #getBitmap} 取得 Bitmap，发布完后必须 {@link #release}；
+     *         三张都被占用时为 {@link #NO_BUFFER}，本帧应跳过 (正常不会发生，说明有帧没有 release)
+     */
+    public int render(String line1, String line2, int progress, int dashStep,
+                      int offset, int paddingX, int paddingY) {
+        int index = nextBuffer;
+        int tries = 0;
+        while (!busy.compareAndSet(index, 0, generation)) {
+            if (++tries == BUFFER_COUNT) return NO_BUFFER;
+            index = (index + 1) % BUFFER_COUNT;
+        }
+        nextBuffer = (index + 1) % BUFFER_COUNT;
+        Bitmap bitmap = buffers[index];
+        Canvas canvas = canvases[index];
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+
+        // 绘制方形圆环
+        if (progress >= 0) {
+            // 根据开关应用虚线效果，确保实线模式下没有残余效果
+            int dashIndex = dashIndex(dashStep, progress);
+            strokePaint.setPathEffect(dashIndex >= 0 ? dashEffects[dashIndex] : null);
+            canvas.drawPath(ring.pathFor(progress), strokePaint);
+        }
+
+        // 绘制曲线
+        if (sparkCount >= 2) {
+            sparkPath.rewind();
+            sparkPath.moveTo(sparkX(0), sparkY(0));
+            for (int i = 1; i < sparkCount; i++) {
+                sparkPath.lineTo(sparkX(i), sparkY(i));
+            }
+            canvas.drawPath(sparkPath, sparkPaint);
+        }
+
+        // 绘制文字
+        if (line1 != null) {
+            drawLine(canvas, line1, paddingX, textCenterY - offset + paddingY);
+        }
+        if (line2 != null) {
+            drawLine(canvas, line2, paddingX, textCenterY + offset + paddingY);
+        }
+        return generation * BUFFER_COUNT + index;
+    }
+
+    private void drawLine(Canvas canvas, String text, float x, float baseline) {
+        if (!glyphs.draw(canvas, text, x, baseline, bitmapSize - x)) {
+            canvas.drawText(text, x, baseline, textPaint);
+        }
+    }
+
+    /** 只能在 render 之后、下一次 configure 之前调用 */
+    public Bitmap getBitmap(int token) {
+        return buffers[token % BUFFER_COUNT];
+    }
+
+    /**
+     * 帧已发布 (或被丢弃)，缓冲区可以再次绘制。可以在任意线程调用；
+     * 缓冲区已换代时什么也不做。
+     */
+    public void release(int token) {
+        busy.compareAndSet(token % BUFFER_COUNT, token / BUFFER_COUNT, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.yume.statusbarmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多图标模式下一个附加图标的内容：两行文字和一个圆环。
+ * <p>
+ * 设置里写成 "第一行,第二行,圆环"，多个图标用 ';' 分隔，例如
+ * {@code cpu_percent,thermal_max;download_speed,upload_speed,download_log}。
+ * 省略的项和无法识别的 key 为 {@link MetricKey#NONE}；什么都不显示的图标被丢弃。
+ */
+public final class IconSpec {
+
+    /** 主图标之外最多的附加图标数 */
+    public static final int MAX_EXTRA = 3;
+
+    public final MetricKey line1;
+    public final MetricKey line2;
+    /** 不画圆环时为 {@link MetricKey#NONE} */
+    public final MetricKey ring;
+
+    public IconSpec(MetricKey line1, MetricKey line2, MetricKey ring) {
+        this.line1 = line1;
+        this.line2 = line2;
+        this.ring = ring.ring != RingMapping.NONE ? ring : MetricKey.NONE;
+    }
+
+    boolean isEmpty() {
+        return line1 == MetricKey.NONE && line2 == MetricKey.NONE && ring == MetricKey.NONE;
+    }
+
+    /** 解析设置字符串，最多 {@link #MAX_EXTRA} 个，null 或空串为没有附加图标 */
+    public static IconSpec[] parseList(String spec) {
+        List<IconSpec> icons = new ArrayList<>();
+        if (spec != null) {
+            for (String icon : spec.split(";")) {
+                if (icons.size() == MAX_EXTRA) break;
+                String[] keys = icon.split(",", -1);
+                IconSpec parsed = new IconSpec(key(keys, 0), key(keys, 1), key(keys, 2));
+                if (!parsed.isEmpty()) icons.add(parsed);
+            }
+        }
+        return icons.toArray(new IconSpec[0]);
+    }
+
+    private static MetricKey key(String[] keys, int index) {
+        return index < keys.length ? MetricKey.fromKey(keys[index].trim()) : MetricKey.NONE;
+    }
+
+    /** {@link #parseList} 的逆操作，用于保存和比较 */
+    public static String toSpec(IconSpec[] icons) {
+        StringBuilder sb = new StringBuilder();
+        for (IconSpec icon : icons) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(icon.line1.key).append(',').append(icon.line2.key);
+            if (icon.ring != MetricKey.NONE) sb.append(',').append(icon.ring.key);
+        }
+        return sb.toString();
+    }
+}
@@ -3,6 +3,10 @@ package com.yume.statusbarmonitor;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.Spinner;
 import android.widget.TextView;
@@ -13,39 +17,47 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.color.DynamicColors;
 import com.google.android.material.materialswitch.MaterialSwitch;
 import com.google.android.material.textfield.TextInputEditText;
+import com.google.android.material.textfield.TextInputLayout;
 
 public class MainActivity extends AppCompatActivity {
 
-    private TextInputEditText etSize1, etOffset1, etPadding, etBitmapSize, etDivisor, etPaddingY, etDashLength,etDashGap;
+    private static final String TAG = "MainActivity";
+
+    private TextInputEditText etSize1, etOffset1, etPadding, etBitmapSize, etDivisor, etPaddingY, etDashLength,etDashGap, etHysteresis, etBurstHz, etNetScope, etThermalZones, etExtraIcons, etAlertRules, etAlertCooldown;
     private Spinner spinnerData1, spinnerData2; // 使用 Spinner 替代 RadioGroup
     private Spinner refreshRateSpinner, fontSpinner;
     private TextView statusText;
 
-    // 用于将 Spinner 选项映射为 Service 能听懂的字符串
-    private String[] dataValues;
-
     // *** 使用新的 Key 来存储 Spinner 的位置 ***
     // 这样可以彻底避开旧版本存入的 RadioButton ID 导致的类型冲突和闪退
-    private static final String PREF_KEY_IDX_1 = "pref_idx_data1_v2";
-    private static final String PREF_KEY_IDX_2 = "pref_idx_data2_v2";
+    private static final String PREF_KEY_IDX_1 = MonitorConfig.PREF_IDX_DATA1;
+    private static final String PREF_KEY_IDX_2 = MonitorConfig.PREF_IDX_DATA2;
 
     private Spinner spinnerRing; // 增加 spinnerRing
-    private String[] ringValues; // 增加 ringValues 数组
 
     // 增加圆环的存储 Key
-    private static final String PREF_KEY_IDX_RING = "pref_idx_ring_v2";
+    private static final String PREF_KEY_IDX_RING = MonitorConfig.PREF_IDX_RING;
 
     private MaterialSwitch switchDashed;
 
+    private Spinner spinnerSparkline;
+    private static final String PREF_KEY_IDX_SPARKLINE = MonitorConfig.PREF_IDX_SPARKLINE;
+
+    private MaterialSwitch switchDiagnostics;
+    private TextView tvDiagnostics;
+    private TextView tvThermalZones;
+
+    // /proc/stat 对应用不可读时 (多数 Android 8+ 设备)，占用率类选项永远没有数值
+    private boolean procStatReadable;
+    // 网速无法按接口区分时 (Android 10、11 且 /proc/net/dev 不可读)，Wi-Fi 网速没有来源
+    private boolean networkSplit;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         DynamicColors.applyToActivitiesIfAvailable(this.getApplication());
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // 加载数组资源
-        dataValues = getResources().getStringArray(R.array.data_values);
-
         // 初始化控件
         statusText = findViewById(R.id.statusText);
         etSize1 = findViewById(R.id.et_size1);
@@ -62,8 +74,7 @@ public class MainActivity extends AppCompatActivity {
 
         // 在 onCreate 中绑定
         spinnerRing = findViewById(R.id.spinner_ring);
-        dataValues = getResources().getStringArray(R.array.data_values);
-        ringValues = getResources().getStringArray(R.array.ring_values);
+        spinnerSparkline = findViewById(R.id.spinner_sparkline);
 
         Button startButton = findViewById(R.id.startButton);
         Button stopButton = findViewById(R.id.stopButton);
@@ -71,12 +82,38 @@ public class MainActivity extends AppCompatActivity {
         switchDashed = findViewById(R.id.switch_dashed_ring);
         etDashLength = findViewById(R.id.et_dash_length);
         etDashGap = findViewById(R.id.et_dash_gap);
+        etHysteresis = findViewById(R.id.et_hysteresis);
+        etBurstHz = findViewById(R.id.et_burst_hz);
+        etNetScope = findViewById(R.id.et_net_scope);
+        etThermalZones = findViewById(R.id.et_thermal_zones);
+        etExtraIcons = findViewById(R.id.et_extra_icons);
+        etAlertRules = findViewById(R.id.et_alert_rules);
+        etAlertCooldown = findViewById(R.id.et_alert_cooldown);
+        switchDiagnostics = findViewById(R.id.switch_diagnostics);
+        tvDiagnostics = findViewById(R.id.tv_diagnostics);
+        tvThermalZones = findViewById(R.id.tv_thermal_zones);
+        Button diagnosticsButton = findViewById(R.id.btn_diagnostics);
+
+        // 服务进程与本进程的 SELinux 域相同，在这里探测即可
+        procStatReadable = CpuStatReader.isReadable(CpuStatReader.DEFAULT_FILE);
+        networkSplit = MetricSampler.canSplitNetwork();
+        if (!procStatReadable || !networkSplit) {
+            disableUnavailableItems(spinnerData1, R.array.data_labels, MetricKey.DATA_POSITIONS);
+            disableUnavailableItems(spinnerData2, R.array.data_labels, MetricKey.DATA_POSITIONS);
+            disableUnavailableItems(spinnerRing, R.array.ring_labels, MetricKey.RING_POSITIONS);
+        }
+        if (!networkSplit) {
+            TextInputLayout netScopeLayout = findViewById(R.id.til_net_scope);
+            netScopeLayout.setHelperText("本机只能区分移动数据和总量：wifi、vpn 和接口名无效，开着 VPN 时 physical 会重复计数");
+        }
 
         loadSettings();
+        showThermalZones();
 
         startButton.setOnClickListener(v -> {
             saveSettings(); // 先保存
             startServiceWithSettings(); // 再启动
+            showThermalZones();
         });
 
         stopButton.setOnClickListener(v -> {
@@ -84,6 +121,77 @@ public class MainActivity extends AppCompatActivity {
             stopService(serviceIntent);
             statusText.setText("服务已停止");
         });
+
+        diagnosticsButton.setOnClickListener(v -> showDiagnostics());
+    }
+
+    // 列出本机热区的 type 和当前温度，标出按输入框里的前缀会跟踪哪些，方便用户挑选
+    private void showThermalZones() {
+        ThermalZones zones = new ThermalZones();
+        try {
+            zones.select(etThermalZones.getText().toString());
+            zones.update();
+            StringBuilder sb = new StringBuilder();
+            sb.append("本机热区 (* 为会跟踪的，最多 ").append(ThermalZones.MAX_SELECTED).append(" 个)：\n");
+            int header = sb.length();
+            zones.appendAllZones(sb);
+            if (sb.length() == header) sb.append("(无，/sys/class/thermal 不可读)");
+            tvThermalZones.setText(sb);
+        } finally {
+            zones.close();
+        }
+    }
+
+    // 把本机没有数据来源的选项标为不可选并注明原因，位置不变，已保存的位置仍然有效
+    private void disableUnavailableItems(Spinner spinner, int labelsRes, MetricKey[] table) {
+        String[] labels = getResources().getStringArray(labelsRes);
+        for (int i = 0; i < labels.length; i++) {
+            MetricKey key = MetricKey.atPosition(table, i);
+            if (isUnavailable(key)) {
+                labels[i] = labels[i] + (key.needsProcStat() ? "（本机不可读）" : "（本机无法区分）");
+            }
+        }
+        ArrayAdapter<String> adapter = new ArrayAdapter<String>(this,
+                android.R.layout.simple_spinner_item, labels) {
+            @Override
+            public boolean areAllItemsEnabled() {
+                return false;
+            }
+
+            @Override
+            public boolean isEnabled(int position) {
+                return !isUnavailable(MetricKey.atPosition(table, position));
+            }
+
+            @Override
+            public View getDropDownView(int position, View convertView, ViewGroup parent) {
+                View view = super.getDropDownView(position, convertView, parent);
+                view.setEnabled(isEnabled(position));
+                return view;
+            }
+        };
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+    }
+
+    private boolean isUnavailable(MetricKey key) {
+        return (!procStatReadable && key.needsProcStat()) || (!networkSplit && key.needsInterfaceSplit());
+    }
+
+    // 旧配置里本机没有来源的选项按"无"处理
+    private MetricKey available(MetricKey key) {
+        return isUnavailable(key) ? MetricKey.NONE : key;
+    }
+
+    // 统计在服务所在的 :monitor 进程里，通过 ControlProvider 取回文字报表
+    private void showDiagnostics() {
+        try {
+            Bundle result = getContentResolver().call(ControlProvider.CONTENT_URI,
+                    ControlProvider.METHOD_LATENCY, null, null);
+            tvDiagnostics.setText(result != null ? result.getString(ControlProvider.EXTRA_TEXT) : "");
+        } catch (Exception e) {
+            tvDiagnostics.setText("读取失败: " + e.getMessage());
+        }
     }
 
     @Override
@@ -106,6 +214,7 @@ public class MainActivity extends AppCompatActivity {
         editor.putInt(Constants.KEY_FONT_CHOICE, fontSpinner.getSelectedItemPosition());
 
         editor.putInt(PREF_KEY_IDX_RING, spinnerRing.getSelectedItemPosition());
+        editor.putInt(PREF_KEY_IDX_SPARKLINE, spinnerSparkline.getSelectedItemPosition());
 
         // *** 关键：保存 Spinner 的选中位置到新的 Key ***
         editor.putInt(PREF_KEY_IDX_1, spinnerData1.getSelectedItemPosition());
@@ -114,6 +223,14 @@ public class MainActivity extends AppCompatActivity {
         editor.putBoolean(Constants.KEY_RING_DASHED, switchDashed.isChecked());
         editor.putString(Constants.KEY_DASH_LENGTH, etDashLength.getText().toString());
         editor.putString(Constants.KEY_DASH_GAP, etDashGap.getText().toString());
+        editor.putString(Constants.KEY_HYSTERESIS, etHysteresis.getText().toString());
+        editor.putString(Constants.KEY_CURRENT_BURST_HZ, etBurstHz.getText().toString());
+        editor.putString(Constants.KEY_NET_SCOPE, etNetScope.getText().toString().trim());
+        editor.putString(Constants.KEY_THERMAL_ZONES, etThermalZones.getText().toString().trim());
+        editor.putString(Constants.KEY_EXTRA_ICONS, etExtraIcons.getText().toString().trim());
+        editor.putString(Constants.KEY_ALERT_RULES, etAlertRules.getText().toString().trim());
+        editor.putString(Constants.KEY_ALERT_COOLDOWN, etAlertCooldown.getText().toString());
+        editor.putBoolean(Constants.KEY_DIAGNOSTICS, switchDiagnostics.isChecked());
 
         editor.apply();
     }
@@ -130,6 +247,13 @@ public class MainActivity extends AppCompatActivity {
         setSafeText(etDivisor, prefs, Constants.KEY_DIVISOR, "1000000000");
         setSafeText(etDashLength, prefs, Constants.KEY_DASH_LENGTH, "6");
         setSafeText(etDashGap, prefs, Constants.KEY_DASH_GAP, "2");
+        setSafeText(etHysteresis, prefs, Constants.KEY_HYSTERESIS, "1");
+        setSafeText(etBurstHz, prefs, Constants.KEY_CURRENT_BURST_HZ, "10");
+        setSafeText(etNetScope, prefs, Constants.KEY_NET_SCOPE, "physical");
+        setSafeText(etThermalZones, prefs, Constants.KEY_THERMAL_ZONES, "");
+        setSafeText(etExtraIcons, prefs, Constants.KEY_EXTRA_ICONS, "");
+        setSafeText(etAlertRules, prefs, Constants.KEY_ALERT_RULES, "");
+        setSafeText(etAlertCooldown, prefs, Constants.KEY_ALERT_COOLDOWN, "600");
 
         refreshRateSpinner.setSelection(prefs.getInt(Constants.KEY_REFRESH_RATE_POS, 2));
         fontSpinner.setSelection(prefs.getInt(Constants.KEY_FONT_CHOICE, 0));
@@ -139,66 +263,78 @@ public class MainActivity extends AppCompatActivity {
         spinnerData2.setSelection(prefs.getInt(PREF_KEY_IDX_2, 3)); // 默认 Memory
 
         spinnerRing.setSelection(prefs.getInt(PREF_KEY_IDX_RING, 0)); // 默认选“无”
+        spinnerSparkline.setSelection(prefs.getInt(PREF_KEY_IDX_SPARKLINE, 0));
 
         switchDashed.setChecked(prefs.getBoolean(Constants.KEY_RING_DASHED, false));
+        switchDiagnostics.setChecked(prefs.getBoolean(Constants.KEY_DIAGNOSTICS, false));
     }
 
     private void startServiceWithSettings() {
-        Intent serviceIntent = new Intent(this, MonitorService.class);
-
+        MonitorConfig config;
         try {
-            // 1. 获取 Spinner 选中的位置
-            int pos1 = spinnerData1.getSelectedItemPosition();
-            int pos2 = spinnerData2.getSelectedItemPosition();
-
-            // 2. 将位置转换为 Service 能看懂的 String Key (例如 "watt", "temp")
-            // 这一步解决了 "通知无法显示" 的问题
-            String key1 = (pos1 >= 0 && pos1 < dataValues.length) ? dataValues[pos1] : "none";
-            String key2 = (pos2 >= 0 && pos2 < dataValues.length) ? dataValues[pos2] : "none";
-
-            serviceIntent.putExtra(Constants.KEY_DATA1, key1);
-            serviceIntent.putExtra(Constants.KEY_DATA2, key2);
-
-            // 3. 传递数字参数
-            serviceIntent.putExtra(Constants.KEY_FONT_SIZE, Integer.parseInt(etSize1.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_OFFSET, Integer.parseInt(etOffset1.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_BITMAP_SIZE, Integer.parseInt(etBitmapSize.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_PADDING_X, Integer.parseInt(etPadding.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_PADDING_Y, Integer.parseInt(etPaddingY.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_DIVISOR, Integer.parseInt(etDivisor.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_RING_DASHED, switchDashed.isChecked());
-            serviceIntent.putExtra(Constants.KEY_DASH_LENGTH, Integer.parseInt(etDashLength.getText().toString()));
-            serviceIntent.putExtra(Constants.KEY_DASH_GAP, Integer.parseInt(etDashGap.getText().toString()));
-
-            // 4. 处理刷新率 (保留你的 "1s" 去掉 "s" 的逻辑)
-            String selectedRate = refreshRateSpinner.getSelectedItem().toString();
-            int interval = 3000;
-            try {
-                interval = Integer.parseInt(selectedRate.replace("s", "")) * 1000;
-            } catch (Exception e) {
-                interval = 3000; // 默认值防止解析失败
-            }
-            serviceIntent.putExtra("interval", interval);
-
-            serviceIntent.putExtra(Constants.KEY_FONT_CHOICE, fontSpinner.getSelectedItemPosition());
-
-
-            int posRing = spinnerRing.getSelectedItemPosition();
-            String keyRing = (posRing >= 0 && posRing < ringValues.length) ? ringValues[posRing] : "none";
-
-            // 传给 Service，Key 必须和 MonitorService 脚本里解析的对应（通常是 "ring_key" 或 Constants.KEY_RING）
-            serviceIntent.putExtra("ring_key", keyRing);
-
-
-            startForegroundService(serviceIntent);
-            statusText.setText("服务已启动: \n" + key1 + " & " + key2 + " & " + keyRing);
-
+            config = buildConfig();
         } catch (NumberFormatException e) {
             Toast.makeText(this, "参数错误：请输入有效的数字", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        try {
+            // 先把配置交给服务所在的 :monitor 进程；服务已在运行时就地换配置，不重启
+            Bundle result = getContentResolver().call(ControlProvider.CONTENT_URI,
+                    ControlProvider.METHOD_APPLY_CONFIG, null, config.toBundle());
+            if (result != null && result.getBoolean(ControlProvider.EXTRA_RUNNING)) {
+                statusText.setText("配置已更新: \n" + config.data1.key + " & " + config.data2.key + " & " + config.ring.key);
+                return;
+            }
+            // 服务没在运行：启动后读取刚发布的配置
+            startForegroundService(new Intent(this, MonitorService.class));
         } catch (Exception e) {
-            Toast.makeText(this, "启动失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            e.printStackTrace();
+            // Provider 不可用时退回旧方式，用 extras 传配置
+            Log.w(TAG, "apply_config failed, passing config by intent", e);
+            try {
+                startForegroundService(new Intent(this, MonitorService.class).putExtras(config.toBundle()));
+            } catch (Exception ex) {
+                Toast.makeText(this, "启动失败: " + ex.getMessage(), Toast.LENGTH_SHORT).show();
+                return;
+            }
         }
+        statusText.setText("服务已启动: \n" + config.data1.key + " & " + config.data2.key + " & " + config.ring.key);
+    }
+
+    // 从界面读取配置；数字输入无效时抛出 NumberFormatException
+    private MonitorConfig buildConfig() {
+        // Spinner 位置转换为数据项，对照表与 arrays.xml 的顺序一致
+        MetricKey key1 = available(MetricKey.atPosition(MetricKey.DATA_POSITIONS,
+                spinnerData1.getSelectedItemPosition()));
+        MetricKey key2 = available(MetricKey.atPosition(MetricKey.DATA_POSITIONS,
+                spinnerData2.getSelectedItemPosition()));
+        MetricKey keyRing = available(MetricKey.atPosition(MetricKey.RING_POSITIONS,
+                spinnerRing.getSelectedItemPosition()));
+        MetricKey keySparkline = MetricKey.atPosition(MetricKey.SPARKLINE_POSITIONS,
+                spinnerSparkline.getSelectedItemPosition());
+
+        return new MonitorConfig.Builder()
+                .interval(MonitorConfig.intervalForPosition(refreshRateSpinner.getSelectedItemPosition()))
+                .fontChoice(fontSpinner.getSelectedItemPosition())
+                .keys(key1, key2, keyRing, keySparkline)
+                .icon(Integer.parseInt(etBitmapSize.getText().toString()),
+                        Integer.parseInt(etSize1.getText().toString()),
+                        Integer.parseInt(etOffset1.getText().toString()),
+                        Integer.parseInt(etPadding.getText().toString()),
+                        Integer.parseInt(etPaddingY.getText().toString()))
+                .divisor(Integer.parseInt(etDivisor.getText().toString()))
+                .dash(switchDashed.isChecked(),
+                        Integer.parseInt(etDashLength.getText().toString()),
+                        Integer.parseInt(etDashGap.getText().toString()))
+                .hysteresis(Integer.parseInt(etHysteresis.getText().toString()))
+                .currentBurst(Integer.parseInt(etBurstHz.getText().toString()))
+                .network(etNetScope.getText().toString())
+                .thermalZones(etThermalZones.getText().toString())
+                .extraIcons(etExtraIcons.getText().toString())
+                .alerts(etAlertRules.getText().toString(),
+                        Integer.parseInt(etAlertCooldown.getText().toString()))
+                .diagnostics(switchDiagnostics.isChecked())
+                .build();
     }
 
     // 辅助方法：安全设置文本，防止 Null 或 类型错误
@@ -0,0 +1,48 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+
+/**
+ * 解析 /proc/meminfo 中的 MemTotal 与 MemAvailable (单位 kB)。
+ */
+public class MemInfoReader extends ProcReader {
+
+    public static final File DEFAULT_FILE = new File("/proc/meminfo");
+
+    private static final byte[] MEM_TOTAL = ascii("MemTotal:");
+    private static final byte[] MEM_AVAILABLE = ascii("MemAvailable:");
+
+    private long totalKb;
+    private long availableKb;
+
+    public MemInfoReader(File file) {
+        super(file);
+    }
+
+    @Override
+    protected boolean parse(byte[] buf, int length) {
+        long total = -1;
+        long available = -1;
+        int pos = 0;
+        while (pos < length && (total < 0 || available < 0)) {
+            if (startsWith(buf, pos, length, MEM_TOTAL)) {
+                total = parseLong(buf, skipToNumber(buf, pos + MEM_TOTAL.length, length), length);
+            } else if (startsWith(buf, pos, length, MEM_AVAILABLE)) {
+                available = parseLong(buf, skipToNumber(buf, pos + MEM_AVAILABLE.length, length), length);
+            }
+            pos = nextLine(buf, pos, length);
+        }
+        if (total <= 0 || available < 0) return false;
+        totalKb = total;
+        availableKb = available;
+        return true;
+    }
+
+    public long getTotalBytes() {
+        return totalKb * 1024;
+    }
+
+    public long getAvailableBytes() {
+        return availableKb * 1024;
+    }
+}
@@ -0,0 +1,207 @@
+package com.yume.statusbarmonitor;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * 图标文字与下拉详情的格式化引擎。
+ * <p>
+ * 所有输出都直接写进调用方复用的 {@link StringBuilder}，不经过 String.format
+ * (每次调用都要解析格式串并创建 Formatter)，也不做字符串拼接。
+ * 输出与原先的 String.format("%.1f" / "%.2f") 逐字节一致：
+ * 定点小数采用与 java.util.Formatter 相同的规则——对 double 的最短十进制表示做 HALF_UP 舍入。
+ * 如果默认语言环境的数字或小数点不是 ASCII 的 0-9 和 '.'，则回退到 String.format 以保持一致。
+ */
+public final class MetricFormatter {
+
+    // 超过这个量级 long 无法精确表示 10^2 倍的值，交给 String.format
+    private static final double FAST_PATH_LIMIT = 1e15;
+
+    private final Locale locale;
+    private final boolean plainDigits;
+
+    public MetricFormatter(Locale locale) {
+        this.locale = locale;
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.plainDigits = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+
+    // --- 图标文字 ---
+
+    /**
+     * 格式化单个数据，用于图标绘制。{@link MetricKey#NONE} 和只用于圆环的 key 不输出任何字符。
+     */
+    public void appendValue(StringBuilder sb, MetricKey key, MetricSnapshot s, int wDivisor) {
+        switch (key) {
+            case TEMPERATURE: sb.append(s.temperature).append('°'); break;
+            case CURRENT: sb.append(Math.abs(s.currentNow)); break; // 图标上通常不显示负号以节省空间
+            case VOLTAGE: appendFixed(sb, s.voltage / 1000f, 1); break;
+            case BATTERY_PERCENT: sb.append(s.batteryPercent); break;
+            case MEMORY_MB: sb.append(s.memUsedMB).append('M'); break;
+            case MEMORY_PERCENT: sb.append(s.memPercent); break;
+            case STORAGE_PERCENT: sb.append(s.storagePercent); break;
+            case WATT: appendFixed(sb, s.watts(wDivisor), 1); break;
+            case WATT_PEAK: appendFixed(sb, s.peakWatts(wDivisor), 1); break;
+            case DOWNLOAD_SPEED: appendSpeedShort(sb, s.downloadSpeed); break;
+            case UPLOAD_SPEED: appendSpeedShort(sb, s.uploadSpeed); break;
+            case WIFI_DOWNLOAD: appendSpeedShort(sb, s.wifiDownloadSpeed); break;
+            case WIFI_UPLOAD: appendSpeedShort(sb, s.wifiUploadSpeed); break;
+            case MOBILE_DOWNLOAD: appendSpeedShort(sb, s.mobileDownloadSpeed); break;
+            case MOBILE_UPLOAD: appendSpeedShort(sb, s.mobileUploadSpeed); break;
+            case CPU_PERCENT: appendPercent(sb, s.cpuPercent); break;
+            case CPU_CLUSTER_0: appendPercent(sb, s.cpuCluster0Percent); break;
+            case CPU_CLUSTER_1: appendPercent(sb, s.cpuCluster1Percent); break;
+            case CPU_CLUSTER_2: appendPercent(sb, s.cpuCluster2Percent); break;
+            case CPU_FREQ: appendFixed(sb, s.cpuFreqKHz / 1e6, 1); sb.append('G'); break;
+            case THERMAL_MAX: appendDegrees(sb, s.thermalTenths); break;
+            case THERMAL_ZONE1: appendDegrees(sb, s.thermalZone1Tenths); break;
+            case THERMAL_ZONE2: appendDegrees(sb, s.thermalZone2Tenths); break;
+            case STORAGE_FREE: appendFixed(sb, s.storageFreeGiB, 1); break;
+            default: break;
+        }
+    }
+
+    // 未知的占用率显示为 "-"
+    private static void appendPercent(StringBuilder sb, int percent) {
+        if (percent < 0) {
+            sb.append('-');
+        } else {
+            sb.append(percent);
+        }
+    }
+
+    // 与电池温度一样向零取整到整度；没有读数显示为 "-"
+    private static void appendDegrees(StringBuilder sb, int tenths) {
+        if (tenths == ThermalZones.UNKNOWN) {
+            sb.append('-');
+        } else {
+            sb.append(tenths / 10).append('°');
+        }
+    }
+
+    // 简短的网速格式化 (用于图标)
+    public void appendSpeedShort(StringBuilder sb, long bytesPerSec) {
+        if (bytesPerSec >= 1024 * 1024) {
+            appendFixed(sb, bytesPerSec / 1024f / 1024f, 1);
+            sb.append('M');
+        } else {
+            sb.append(bytesPerSec / 1024).append('K');
+        }
+    }
+
+    // --- 下拉详情 ---
+
+    // 构建所有信息的字符串，用于下拉显示
+    public void appendAllInfo(StringBuilder sb, MetricSnapshot s, int wDivisor) {
+        sb.append("电量: ").append(s.batteryPercent).append("%  ");
+        sb.append("温度: ");
+        appendFixed(sb, s.temperatureTenths / 10.0, 1);
+        sb.append("°C\n");
+
+        sb.append("功率: ");
+        appendFixed(sb, s.watts(wDivisor), 2);
+        sb.append("W  ");
+        sb.append("电压: ");
+        appendFixed(sb, s.voltage / 1000f, 2);
+        sb.append("V  ");
+        sb.append("电流: ").append(s.currentNow);
+        if (s.currentSamples > 1) {
+            // 高频采样：上面是窗口平均值，这里补上窗口内的峰值
+            sb.append(" (峰 ").append(s.currentPeak).append(')');
+        }
+        sb.append('\n');
+
+        sb.append("内存: ").append(s.memUsedMB).append("M (").append(s.memPercent).append("%)\n");
+        sb.append("存储: ").append(s.storagePercent).append("% 已用 ");
+        appendFixed(sb, s.storageFreeGiB, 2);
+        sb.append("GiB 空闲\n");
+
+        sb.append("网速: ↓");
+        appendSpeed(sb, s.downloadSpeed);
+        sb.append("  ↑");
+        appendSpeed(sb, s.uploadSpeed);
+
+        if (s.cpuPercent >= 0 || s.cpuFreqKHz > 0) {
+            sb.append("\nCPU: ");
+            appendPercent(sb, s.cpuPercent);
+            sb.append('%');
+            if (s.cpuCluster1Percent >= 0) {
+                // 多簇时按簇列出，小核在前
+                sb.append(" (").append(s.cpuCluster0Percent).append('/').append(s.cpuCluster1Percent);
+                if (s.cpuCluster2Percent >= 0) sb.append('/').append(s.cpuCluster2Percent);
+                sb.append(')');
+            }
+            if (s.cpuFreqKHz > 0) {
+                sb.append("  ");
+                appendFixed(sb, s.cpuFreqKHz / 1e6, 2);
+                sb.append("GHz");
+            }
+        }
+
+        if (s.thermalTenths != ThermalZones.UNKNOWN) {
+            sb.append("\n热区: 最高 ");
+            appendFixed(sb, s.thermalTenths / 10.0, 1);
+            sb.append("°C");
+        }
+    }
+
+    // 完整的网速格式化 (用于文本)
+    public void appendSpeed(StringBuilder sb, long bytesPerSec) {
+        if (bytesPerSec >= 1024 * 1024) {
+            appendFixed(sb, bytesPerSec / 1024f / 1024f, 2);
+            sb.append(" MB/s");
+        } else {
+            sb.append(bytesPerSec / 1024).append(" KB/s");
+        }
+    }
+
+    // --- 定点小数 ---
+
+    /**
+     * 等价于 sb.append(String.format(locale, "%.Nf", value))，N 为 1 或 2。
+     * float 参数会先扩展为 double，与 Formatter 对 Float 的处理相同。
+     */
+    public void appendFixed(StringBuilder sb, double value, int decimals) {
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+            return;
+        }
+        boolean negative = Double.compare(value, 0.0) < 0; // 与 Formatter 一致，-0.0 也带负号
+        double abs = Math.abs(value);
+        if (Double.isInfinite(abs)) {
+            sb.append(negative ? "-Infinity" : "Infinity");
+            return;
+        }
+        if (!plainDigits || abs >= FAST_PATH_LIMIT || decimals < 1 || decimals > 2) {
+            sb.append(String.format(locale, decimals == 1 ? "%.1f" : "%.2f", value));
+            return;
+        }
+
+        long scale = decimals == 1 ? 10 : 100;
+        long units = roundHalfUp(abs, scale);
+
+        if (negative) sb.append('-');
+        sb.append(units / scale).append('.');
+        long frac = units % scale;
+        if (decimals == 2 && frac < 10) sb.append('0');
+        sb.append(frac);
+    }
+
+    /**
+     * 求 abs × scale 按 Formatter 规则舍入后的整数。
+     * <p>
+     * Formatter 先取 double 的最短十进制表示，再对其 HALF_UP。
+     * 先找到 n 使 abs 落在 [n/scale, (n+1)/scale) 之间 (这里的分数都指“最接近的 double”，
+     * 由于分子分母都是精确整数，一次除法就是正确舍入的)，
+     * 然后与中点 (2n+1)/(2·scale) 比较：恰好等于中点时最短表示就是 “…5”，HALF_UP 进位；
+     * 其余情况最短表示与 abs 位于中点同侧，结果与精确值舍入相同。
+     */
+    static long roundHalfUp(double abs, long scale) {
+        long n = (long) Math.floor(abs * scale);
+        // abs * scale 本身有舍入误差，最多修正一位
+        while ((double) (n + 1) / scale <= abs) n++;
+        while (n > 0 && (double) n / scale > abs) n--;
+        double tie = (double) (2 * n + 1) / (2 * scale);
+        return abs >= tie ? n + 1 : n;
+    }
+}
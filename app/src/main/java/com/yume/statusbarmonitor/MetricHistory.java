@@ -0,0 +1,74 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 每个指标一条 {@link HistorySeries}，每次完整 tick 从快照追加一个样本。
+ * 容量固定，占用内存与运行时长无关：默认 9 条 × 120 个样本，约 26KB。
+ * 样本按 tick 记录而不是按时间，熄屏降频时曲线的时间跨度会相应拉长。
+ */
+public final class MetricHistory {
+
+    public static final int DEFAULT_CAPACITY = 120;
+
+    /** 记录的指标及其存储单位 */
+    public enum Series {
+        WATT("watt"),                       // mW
+        CURRENT("current"),                 // 与 BATTERY_PROPERTY_CURRENT_NOW 相同，取绝对值
+        VOLTAGE("voltage"),                 // mV
+        TEMPERATURE("temperature"),         // 0.1°C
+        BATTERY_PERCENT("battery_percent"),
+        MEMORY_PERCENT("memory_percent"),
+        STORAGE_PERCENT("storage_percent"),
+        DOWNLOAD_SPEED("download_speed"),   // 字节/秒
+        UPLOAD_SPEED("upload_speed");       // 字节/秒
+
+        public final String key;
+
+        Series(String key) {
+            this.key = key;
+        }
+
+        /** 未知 key 返回 null */
+        public static Series fromKey(String key) {
+            if (key != null) {
+                for (Series series : values()) {
+                    if (series.key.equals(key)) return series;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final HistorySeries[] series = new HistorySeries[Series.values().length];
+
+    public MetricHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MetricHistory(int capacity) {
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new HistorySeries(capacity);
+        }
+    }
+
+    public void record(MetricSnapshot s, int wattsDivisor) {
+        series[Series.WATT.ordinal()].append(Math.round(s.watts(wattsDivisor) * 1000));
+        series[Series.CURRENT.ordinal()].append(Math.abs(s.currentNow));
+        series[Series.VOLTAGE.ordinal()].append(s.voltage);
+        series[Series.TEMPERATURE.ordinal()].append(s.temperatureTenths);
+        series[Series.BATTERY_PERCENT.ordinal()].append(s.batteryPercent);
+        series[Series.MEMORY_PERCENT.ordinal()].append(s.memPercent);
+        series[Series.STORAGE_PERCENT.ordinal()].append(s.storagePercent);
+        series[Series.DOWNLOAD_SPEED.ordinal()].append(s.downloadSpeed);
+        series[Series.UPLOAD_SPEED.ordinal()].append(s.uploadSpeed);
+    }
+
+    public HistorySeries get(Series which) {
+        return series[which.ordinal()];
+    }
+
+    public void clear() {
+        for (HistorySeries s : series) {
+            s.clear();
+        }
+    }
+}
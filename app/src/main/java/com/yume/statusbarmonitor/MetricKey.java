@@ -0,0 +1,174 @@
+package com.yume.statusbarmonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 所有可选数据项的注册表：图标文字、圆环、曲线共用同一组 key。
+ * <p>
+ * 配置加载时把字符串 key 解析为枚举，之后每个 tick 按枚举分派 (switch 编译为按序号查表)，
+ * 不再比较字符串。每项记录它依赖的数据源 ({@link #sources})、作为圆环时的映射
+ * ({@link #ring}) 和作为曲线时的历史序列 ({@link #series})。
+ * <p>
+ * 设置页保存的是 Spinner 位置，{@link #DATA_POSITIONS} 等表与 arrays.xml 中的
+ * *_values 数组逐项对应，由单元测试保证两者一致。
+ */
+public enum MetricKey {
+    NONE("none", 0, RingMapping.NONE, null),
+    WATT("watt", MetricKey.SOURCE_BATTERY | MetricKey.SOURCE_CURRENT,
+            RingMapping.NONE, MetricHistory.Series.WATT),
+    // 两个显示 tick 之间高频采样到的最大功率，未开启高频采样时与 WATT 相同
+    WATT_PEAK("watt_peak", MetricKey.SOURCE_BATTERY | MetricKey.SOURCE_CURRENT, RingMapping.NONE, null),
+    TEMPERATURE("temperature", MetricKey.SOURCE_BATTERY, RingMapping.NONE, MetricHistory.Series.TEMPERATURE),
+    CURRENT("current", MetricKey.SOURCE_CURRENT, RingMapping.NONE, MetricHistory.Series.CURRENT),
+    VOLTAGE("voltage", MetricKey.SOURCE_BATTERY, RingMapping.NONE, MetricHistory.Series.VOLTAGE),
+    // 早期版本的 arrays.xml 写的是 "percent"，保留为别名
+    BATTERY_PERCENT("battery_percent", MetricKey.SOURCE_BATTERY,
+            RingMapping.BATTERY_PERCENT, MetricHistory.Series.BATTERY_PERCENT, "percent"),
+    MEMORY_MB("memory_mb", MetricKey.SOURCE_MEMORY, RingMapping.NONE, null),
+    MEMORY_PERCENT("memory_percent", MetricKey.SOURCE_MEMORY,
+            RingMapping.MEMORY_PERCENT, MetricHistory.Series.MEMORY_PERCENT),
+    STORAGE_PERCENT("storage_percent", MetricKey.SOURCE_STORAGE,
+            RingMapping.STORAGE_PERCENT, MetricHistory.Series.STORAGE_PERCENT),
+    STORAGE_FREE("storage_free", MetricKey.SOURCE_STORAGE, RingMapping.NONE, null),
+    DOWNLOAD_SPEED("download_speed", MetricKey.SOURCE_NETWORK, RingMapping.NONE, MetricHistory.Series.DOWNLOAD_SPEED),
+    UPLOAD_SPEED("upload_speed", MetricKey.SOURCE_NETWORK, RingMapping.NONE, MetricHistory.Series.UPLOAD_SPEED),
+    // 按接口类型拆分的网速，不受网速接口设置影响
+    WIFI_DOWNLOAD("wifi_download", MetricKey.SOURCE_NETWORK, RingMapping.NONE, null),
+    WIFI_UPLOAD("wifi_upload", MetricKey.SOURCE_NETWORK, RingMapping.NONE, null),
+    MOBILE_DOWNLOAD("mobile_download", MetricKey.SOURCE_NETWORK, RingMapping.NONE, null),
+    MOBILE_UPLOAD("mobile_upload", MetricKey.SOURCE_NETWORK, RingMapping.NONE, null),
+    CPU_PERCENT("cpu_percent", MetricKey.SOURCE_CPU, RingMapping.CPU_PERCENT, null),
+    // 簇按首个核心的序号排列，通常依次为小核、中核、大核
+    CPU_CLUSTER_0("cpu_cluster0", MetricKey.SOURCE_CPU, RingMapping.CPU_CLUSTER_0, null),
+    CPU_CLUSTER_1("cpu_cluster1", MetricKey.SOURCE_CPU, RingMapping.CPU_CLUSTER_1, null),
+    CPU_CLUSTER_2("cpu_cluster2", MetricKey.SOURCE_CPU, RingMapping.CPU_CLUSTER_2, null),
+    CPU_FREQ("cpu_freq", MetricKey.SOURCE_CPU, RingMapping.NONE, null),
+    // 热区：选中热区中的最高温度，以及前两个选中的热区
+    THERMAL_MAX("thermal_max", MetricKey.SOURCE_THERMAL, RingMapping.NONE, null),
+    THERMAL_ZONE1("thermal_zone1", MetricKey.SOURCE_THERMAL, RingMapping.NONE, null),
+    THERMAL_ZONE2("thermal_zone2", MetricKey.SOURCE_THERMAL, RingMapping.NONE, null),
+    // 只用于圆环
+    TEMPERATURE_64("temperature_64", MetricKey.SOURCE_BATTERY, RingMapping.TEMPERATURE_64, null),
+    TEMPERATURE_50("temperature_50", MetricKey.SOURCE_BATTERY, RingMapping.TEMPERATURE_50, null),
+    TEMPERATURE_40("temperature_40", MetricKey.SOURCE_BATTERY, RingMapping.TEMPERATURE_40, null),
+    DOWNLOAD_LOG("download_log", MetricKey.SOURCE_NETWORK, RingMapping.DOWNLOAD_LOG, null),
+    UPLOAD_LOG("upload_log", MetricKey.SOURCE_NETWORK, RingMapping.UPLOAD_LOG, null),
+    THERMAL_100("thermal_100", MetricKey.SOURCE_THERMAL, RingMapping.THERMAL_100, null),
+    THERMAL_80("thermal_80", MetricKey.SOURCE_THERMAL, RingMapping.THERMAL_80, null);
+
+    // 数据源标志位，见 MetricSampler.setVisibleKeys
+    public static final int SOURCE_BATTERY = 1;
+    public static final int SOURCE_CURRENT = 1 << 1;
+    public static final int SOURCE_MEMORY = 1 << 2;
+    public static final int SOURCE_STORAGE = 1 << 3;
+    public static final int SOURCE_NETWORK = 1 << 4;
+    public static final int SOURCE_CPU = 1 << 5;
+    public static final int SOURCE_THERMAL = 1 << 6;
+
+    /** 与 arrays.xml 的 data_values 逐项对应 */
+    static final MetricKey[] DATA_POSITIONS = {
+            NONE, WATT, TEMPERATURE, MEMORY_PERCENT, CURRENT, VOLTAGE, BATTERY_PERCENT,
+            UPLOAD_SPEED, DOWNLOAD_SPEED, STORAGE_PERCENT, STORAGE_FREE, WATT_PEAK,
+            WIFI_DOWNLOAD, WIFI_UPLOAD, MOBILE_DOWNLOAD, MOBILE_UPLOAD,
+            CPU_PERCENT, CPU_CLUSTER_0, CPU_CLUSTER_1, CPU_CLUSTER_2, CPU_FREQ,
+            THERMAL_MAX, THERMAL_ZONE1, THERMAL_ZONE2
+    };
+
+    /** 与 arrays.xml 的 ring_values 逐项对应 */
+    static final MetricKey[] RING_POSITIONS = {
+            NONE, BATTERY_PERCENT, MEMORY_PERCENT, STORAGE_PERCENT,
+            TEMPERATURE_64, TEMPERATURE_50, TEMPERATURE_40, DOWNLOAD_LOG, UPLOAD_LOG,
+            CPU_PERCENT, CPU_CLUSTER_0, CPU_CLUSTER_1, CPU_CLUSTER_2, THERMAL_100, THERMAL_80
+    };
+
+    /** 与 arrays.xml 的 sparkline_values 逐项对应 */
+    static final MetricKey[] SPARKLINE_POSITIONS = {
+            NONE, WATT, DOWNLOAD_SPEED, UPLOAD_SPEED, CURRENT, TEMPERATURE, MEMORY_PERCENT
+    };
+
+    private static final Map<String, MetricKey> BY_KEY = new HashMap<>();
+
+    static {
+        for (MetricKey k : values()) {
+            BY_KEY.put(k.key, k);
+            for (String alias : k.aliases) {
+                BY_KEY.put(alias, k);
+            }
+        }
+    }
+
+    public final String key;
+    /** 依赖的数据源，SOURCE_* 的组合 */
+    public final int sources;
+    /** 作为圆环时的映射，不能作为圆环时为 {@link RingMapping#NONE} */
+    public final RingMapping ring;
+    /** 作为曲线时的历史序列，不能画曲线时为 null */
+    public final MetricHistory.Series series;
+    private final String[] aliases;
+
+    MetricKey(String key, int sources, RingMapping ring, MetricHistory.Series series, String... aliases) {
+        this.key = key;
+        this.sources = sources;
+        this.ring = ring;
+        this.series = series;
+        this.aliases = aliases;
+    }
+
+    /** 占用率类的 key 依赖 /proc/stat，读不到时 (见 {@link CpuStatReader#isReadable}) 永远没有数值 */
+    public boolean needsProcStat() {
+        return this == CPU_PERCENT || this == CPU_CLUSTER_0 || this == CPU_CLUSTER_1 || this == CPU_CLUSTER_2;
+    }
+
+    /** 只统计 Wi-Fi 的 key 要能按接口区分流量，见 {@link MetricSampler#canSplitNetwork} */
+    public boolean needsInterfaceSplit() {
+        return this == WIFI_DOWNLOAD || this == WIFI_UPLOAD;
+    }
+
+    /** 未知 key 与 null 都是 {@link #NONE} */
+    public static MetricKey fromKey(String key) {
+        if (key == null) return NONE;
+        MetricKey k = BY_KEY.get(key);
+        return k != null ? k : NONE;
+    }
+
+    /** 能作为圆环的 key，否则为 {@link #NONE} */
+    public static MetricKey ringFromKey(String key) {
+        MetricKey k = fromKey(key);
+        return k.ring != RingMapping.NONE ? k : NONE;
+    }
+
+    /** 能画曲线的 key，否则为 {@link #NONE} */
+    public static MetricKey sparklineFromKey(String key) {
+        MetricKey k = fromKey(key);
+        return k.series != null ? k : NONE;
+    }
+
+    /** Spinner 位置到 key，越界为 {@link #NONE} */
+    static MetricKey atPosition(MetricKey[] table, int position) {
+        return position >= 0 && position < table.length ? table[position] : NONE;
+    }
+
+    /**
+     * 按序号建立中文名表，配置加载时调用一次。
+     * values / labels 为 arrays.xml 中成对的数组，先出现的名字优先；
+     * 没有出现在任何数组中的 key 用它自己的字符串兜底。
+     */
+    static String[] buildLabels(String[][] valueArrays, String[][] labelArrays) {
+        String[] labels = new String[values().length];
+        for (int a = 0; a < valueArrays.length; a++) {
+            String[] values = valueArrays[a];
+            String[] names = labelArrays[a];
+            for (int i = 0; i < values.length && i < names.length; i++) {
+                MetricKey k = BY_KEY.get(values[i]);
+                if (k != null && labels[k.ordinal()] == null) {
+                    labels[k.ordinal()] = names[i];
+                }
+            }
+        }
+        for (MetricKey k : values()) {
+            if (labels[k.ordinal()] == null) labels[k.ordinal()] = k.key;
+        }
+        return labels;
+    }
+}
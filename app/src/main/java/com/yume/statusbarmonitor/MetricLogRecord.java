@@ -0,0 +1,69 @@
+package com.yume.statusbarmonitor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 指标日志中的一条定长记录 ({@link #SIZE} 字节)，三个精度层级共用同一格式。
+ * 每条记录代表一个时间桶内的汇总：平均值，以及功率和温度的峰值。
+ * 对象本身可变，读取时复用同一个实例，不为每条记录分配。
+ */
+public final class MetricLogRecord {
+
+    public static final int SIZE = 40;
+
+    public long timeMs;          // 时间桶起点 (墙上时钟，UTC 毫秒)
+    public int samples;          // 桶内 tick 样本数
+    public int wattAvgMw;
+    public int wattMaxMw;
+    public short temperatureAvg; // 0.1°C
+    public short temperatureMax; // 0.1°C
+    public short voltageAvg;     // mV
+    public byte batteryPercent;
+    public byte memPercent;
+    public int downloadAvg;      // 字节/秒，超出 int 范围时截断
+    public int uploadAvg;        // 字节/秒
+
+    void write(ByteBuffer buf) {
+        buf.putLong(timeMs);
+        buf.putInt(samples);
+        buf.putInt(wattAvgMw);
+        buf.putInt(wattMaxMw);
+        buf.putShort(temperatureAvg);
+        buf.putShort(temperatureMax);
+        buf.putShort(voltageAvg);
+        buf.put(batteryPercent);
+        buf.put(memPercent);
+        buf.putInt(downloadAvg);
+        buf.putInt(uploadAvg);
+        buf.putInt(0); // 保留
+    }
+
+    void read(ByteBuffer buf) {
+        timeMs = buf.getLong();
+        samples = buf.getInt();
+        wattAvgMw = buf.getInt();
+        wattMaxMw = buf.getInt();
+        temperatureAvg = buf.getShort();
+        temperatureMax = buf.getShort();
+        voltageAvg = buf.getShort();
+        batteryPercent = buf.get();
+        memPercent = buf.get();
+        downloadAvg = buf.getInt();
+        uploadAvg = buf.getInt();
+        buf.getInt();
+    }
+
+    public void copyFrom(MetricLogRecord other) {
+        timeMs = other.timeMs;
+        samples = other.samples;
+        wattAvgMw = other.wattAvgMw;
+        wattMaxMw = other.wattMaxMw;
+        temperatureAvg = other.temperatureAvg;
+        temperatureMax = other.temperatureMax;
+        voltageAvg = other.voltageAvg;
+        batteryPercent = other.batteryPercent;
+        memPercent = other.memPercent;
+        downloadAvg = other.downloadAvg;
+        uploadAvg = other.uploadAvg;
+    }
+}
@@ -0,0 +1,455 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 落盘的指标日志，三个精度层级各一个定长环形文件：
+ * <ul>
+ *     <li>RAW：10 秒一条，保留 24 小时；</li>
+ *     <li>MINUTE：1 分钟一条，由 RAW 汇总，保留 7 天；</li>
+ *     <li>HOUR：1 小时一条，由 MINUTE 汇总，保留 365 天。</li>
+ * </ul>
+ * 文件大小在创建时就固定 (合计约 1MB)，写满后覆盖最旧的记录。
+ * <p>
+ * 每个 tick 的样本只进入内存里的汇总桶，桶结束时产生一条记录，先攒在内存缓冲中，
+ * 攒够一批或超过 {@link #MAX_FLUSH_DELAY_MS} 才用 FileChannel 一次写入，
+ * 这样闪存写入很少，也不会反过来影响测得的功耗。
+ * 进程被杀时最多丢失一批未落盘的记录。
+ * <p>
+ * 所有方法都加锁，可以在流水线线程写入的同时从其他线程读取；
+ * 读取能看到尚未落盘的记录。同一进程内服务和 {@link HistoryProvider}
+ * 通过 {@link #acquire} 共用一个实例，避免两个实例各自维护文件头。
+ */
+public final class MetricLogStore {
+
+    public enum Tier {
+        RAW("raw", 10_000, 8_640),
+        MINUTE("minute", 60_000, 10_080),
+        HOUR("hour", 3_600_000, 8_760);
+
+        public final String fileName;
+        public final long bucketMs;
+        public final int capacity;
+
+        Tier(String fileName, long bucketMs, int capacity) {
+            this.fileName = fileName;
+            this.bucketMs = bucketMs;
+            this.capacity = capacity;
+        }
+    }
+
+    /** files 目录下的日志子目录 */
+    public static final String DIR_NAME = "metrics";
+
+    static final int MAGIC = 0x53424D4C; // "SBML"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int BATCH_RECORDS = 32;
+    static final long MAX_FLUSH_DELAY_MS = 10 * 60_000;
+
+    private final RingFile[] files;
+    private final Rollup[] rollups;
+    private final MetricLogRecord sample = new MetricLogRecord();
+    private long oldestPendingAt = -1;
+    private boolean closed;
+
+    private static MetricLogStore shared;
+    private static int sharedRefs;
+
+    /**
+     * 取得进程内共享的实例 (必要时打开)，用完后必须 {@link #release}。
+     */
+    public static synchronized MetricLogStore acquire(File dir) throws IOException {
+        if (shared == null) {
+            shared = new MetricLogStore(dir);
+        }
+        sharedRefs++;
+        return shared;
+    }
+
+    /** 释放 acquire 取得的引用，最后一个引用释放时关闭文件 */
+    public static synchronized void release(MetricLogStore store) throws IOException {
+        if (store != shared || sharedRefs == 0) return;
+        if (--sharedRefs == 0) {
+            shared = null;
+            store.close();
+        }
+    }
+
+    public MetricLogStore(File dir) throws IOException {
+        this(dir, null);
+    }
+
+    /**
+     * @param capacities 各层级的容量，按 Tier 顺序；null 使用默认值 (测试用)
+     */
+    MetricLogStore(File dir, int[] capacities) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        Tier[] tiers = Tier.values();
+        files = new RingFile[tiers.length];
+        rollups = new Rollup[tiers.length];
+        try {
+            for (int i = 0; i < tiers.length; i++) {
+                int capacity = capacities != null ? capacities[i] : tiers[i].capacity;
+                files[i] = new RingFile(new File(dir, tiers[i].fileName + ".bin"), capacity);
+                rollups[i] = new Rollup(tiers[i].bucketMs);
+            }
+        } catch (IOException e) {
+            closeFiles();
+            throw e;
+        }
+    }
+
+    /**
+     * 记录一个 tick 的样本。
+     *
+     * @param wallTimeMs 墙上时钟 (System.currentTimeMillis)，用于对齐汇总桶
+     */
+    public synchronized void append(long wallTimeMs, MetricSnapshot s, int wattsDivisor) throws IOException {
+        if (closed) return;
+        int watt = clampInt(Math.round(s.watts(wattsDivisor) * 1000));
+        sample.timeMs = wallTimeMs;
+        sample.samples = 1;
+        sample.wattAvgMw = watt;
+        // 开启高频采样时峰值来自两个 tick 之间的全部样本
+        sample.wattMaxMw = Math.max(watt, clampInt(Math.round(s.peakWatts(wattsDivisor) * 1000)));
+        sample.temperatureAvg = clampShort(s.temperatureTenths);
+        sample.temperatureMax = sample.temperatureAvg;
+        sample.voltageAvg = clampShort(s.voltage);
+        sample.batteryPercent = (byte) s.batteryPercent;
+        sample.memPercent = (byte) s.memPercent;
+        sample.downloadAvg = clampInt(s.downloadSpeed);
+        sample.uploadAvg = clampInt(s.uploadSpeed);
+        offer(0, sample, wallTimeMs);
+
+        if (files[0].pendingCount >= BATCH_RECORDS
+                || (oldestPendingAt >= 0 && Math.abs(wallTimeMs - oldestPendingAt) >= MAX_FLUSH_DELAY_MS)) {
+            flush();
+        }
+    }
+
+    private void offer(int tier, MetricLogRecord r, long now) throws IOException {
+        Rollup rollup = rollups[tier];
+        long bucket = rollup.bucketOf(r.timeMs);
+        if (!rollup.isEmpty() && bucket != rollup.bucket) {
+            emit(tier, now);
+        }
+        if (rollup.isEmpty()) {
+            rollup.bucket = bucket;
+        }
+        rollup.add(r);
+    }
+
+    // 结束当前桶：写入本层级，并汇总进上一层级
+    private void emit(int tier, long now) throws IOException {
+        Rollup rollup = rollups[tier];
+        rollup.emit();
+        files[tier].add(rollup.emitted);
+        if (oldestPendingAt < 0) {
+            oldestPendingAt = now;
+        }
+        if (tier + 1 < rollups.length) {
+            offer(tier + 1, rollup.emitted, now);
+        }
+    }
+
+    /** 把所有层级攒下的记录写入文件 */
+    public synchronized void flush() throws IOException {
+        if (closed) return;
+        for (RingFile file : files) {
+            file.flush();
+        }
+        oldestPendingAt = -1;
+    }
+
+    /**
+     * 结束所有未完成的桶并落盘，然后关闭文件。
+     * 下次打开后同一个桶可能再出现一条记录，读取方按时间顺序处理即可。
+     */
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        try {
+            for (int i = 0; i < rollups.length; i++) {
+                if (!rollups[i].isEmpty()) {
+                    emit(i, 0);
+                }
+            }
+            flush();
+        } finally {
+            closed = true;
+            closeFiles();
+        }
+    }
+
+    private void closeFiles() {
+        for (RingFile file : files) {
+            if (file != null) {
+                try {
+                    file.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // --- 读取 ---
+
+    // 序号：记录在本实例中的绝对位置，不随最旧记录被覆盖而移动，
+    // 供需要长时间分页读取的导出使用。打开前已存在的记录序号为负。
+
+    /** 当前最旧记录的序号 */
+    public synchronized long firstSequence(Tier tier) {
+        RingFile file = files[tier.ordinal()];
+        return file.appended - file.size();
+    }
+
+    /**
+     * 按序号读取。
+     *
+     * @return false 表示该记录已被覆盖或尚未产生
+     */
+    public synchronized boolean readSequence(Tier tier, long sequence, MetricLogRecord out) throws IOException {
+        long index = sequence - firstSequence(tier);
+        if (index < 0 || index >= size(tier)) return false;
+        files[tier.ordinal()].read((int) index, out);
+        return true;
+    }
+
+    /** 与 {@link #lowerBound} 相同，但返回序号 */
+    public synchronized long seekSequence(Tier tier, long timeMs, MetricLogRecord scratch) throws IOException {
+        return firstSequence(tier) + lowerBound(tier, timeMs, scratch);
+    }
+
+    /** 该层级可读的记录数 (含未落盘的) */
+    public synchronized int size(Tier tier) {
+        return files[tier.ordinal()].size();
+    }
+
+    /**
+     * @param index 0 为最旧的记录
+     */
+    public synchronized void read(Tier tier, int index, MetricLogRecord out) throws IOException {
+        files[tier.ordinal()].read(index, out);
+    }
+
+    /**
+     * 二分查找第一条时间不早于 timeMs 的记录，全部更早时返回 size。
+     * 假定记录按时间递增；墙上时钟被往回调过时结果只是近似。
+     */
+    public synchronized int lowerBound(Tier tier, long timeMs, MetricLogRecord scratch) throws IOException {
+        RingFile file = files[tier.ordinal()];
+        int lo = 0;
+        int hi = file.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            file.read(mid, scratch);
+            if (scratch.timeMs < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int clampInt(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    private static short clampShort(int v) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+    }
+
+    /**
+     * 一个层级的汇总桶：按样本数加权求平均，峰值取最大。
+     */
+    static final class Rollup {
+        final long bucketMs;
+        final MetricLogRecord emitted = new MetricLogRecord();
+        long bucket;
+        int samples;
+        long wattSum;
+        int wattMax;
+        long temperatureSum;
+        int temperatureMax;
+        long voltageSum;
+        long batterySum;
+        long memSum;
+        long downloadSum;
+        long uploadSum;
+
+        Rollup(long bucketMs) {
+            this.bucketMs = bucketMs;
+        }
+
+        boolean isEmpty() {
+            return samples == 0;
+        }
+
+        long bucketOf(long timeMs) {
+            return timeMs - Math.floorMod(timeMs, bucketMs);
+        }
+
+        void add(MetricLogRecord r) {
+            int w = r.samples;
+            if (samples == 0) {
+                wattMax = r.wattMaxMw;
+                temperatureMax = r.temperatureMax;
+            } else {
+                wattMax = Math.max(wattMax, r.wattMaxMw);
+                temperatureMax = Math.max(temperatureMax, r.temperatureMax);
+            }
+            samples += w;
+            wattSum += (long) r.wattAvgMw * w;
+            temperatureSum += (long) r.temperatureAvg * w;
+            voltageSum += (long) r.voltageAvg * w;
+            batterySum += (long) r.batteryPercent * w;
+            memSum += (long) r.memPercent * w;
+            downloadSum += (long) r.downloadAvg * w;
+            uploadSum += (long) r.uploadAvg * w;
+        }
+
+        void emit() {
+            emitted.timeMs = bucket;
+            emitted.samples = samples;
+            emitted.wattAvgMw = (int) Math.round((double) wattSum / samples);
+            emitted.wattMaxMw = wattMax;
+            emitted.temperatureAvg = (short) Math.round((double) temperatureSum / samples);
+            emitted.temperatureMax = (short) temperatureMax;
+            emitted.voltageAvg = (short) Math.round((double) voltageSum / samples);
+            emitted.batteryPercent = (byte) Math.round((double) batterySum / samples);
+            emitted.memPercent = (byte) Math.round((double) memSum / samples);
+            emitted.downloadAvg = (int) Math.round((double) downloadSum / samples);
+            emitted.uploadAvg = (int) Math.round((double) uploadSum / samples);
+            samples = 0;
+            wattSum = temperatureSum = voltageSum = batterySum = memSum = downloadSum = uploadSum = 0;
+        }
+    }
+
+    /**
+     * 定长环形记录文件：32 字节文件头 + capacity 条记录。
+     * 新记录先进入 pending 缓冲，flush 时最多分两段 (环绕处) 写入，然后更新文件头。
+     */
+    private static final class RingFile {
+        final FileChannel channel;
+        final int capacity;
+        final int batch;
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        final ByteBuffer pending;
+        final ByteBuffer pendingView;
+        final ByteBuffer one = ByteBuffer.allocate(MetricLogRecord.SIZE);
+        int head;  // 下一条记录写入的槽位
+        int count; // 文件中的有效记录数
+        int pendingCount;
+        long appended;
+
+        RingFile(File file, int capacity) throws IOException {
+            this.capacity = capacity;
+            this.batch = Math.min(BATCH_RECORDS, capacity);
+            pending = ByteBuffer.allocate(batch * MetricLogRecord.SIZE);
+            pendingView = pending.duplicate();
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            if (!loadHeader()) {
+                // 新文件或格式不符：从头开始
+                channel.truncate(0);
+                head = 0;
+                count = 0;
+                writeHeader();
+            }
+        }
+
+        private boolean loadHeader() throws IOException {
+            if (channel.size() < HEADER_SIZE) return false;
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // 读满文件头
+            }
+            if (header.hasRemaining()) return false;
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != MetricLogRecord.SIZE || header.getInt() != capacity) {
+                return false;
+            }
+            int h = header.getInt();
+            int c = header.getInt();
+            if (h < 0 || h >= capacity || c < 0 || c > capacity
+                    || channel.size() < HEADER_SIZE + (long) c * MetricLogRecord.SIZE) {
+                return false;
+            }
+            head = h;
+            count = c;
+            return true;
+        }
+
+        private void writeHeader() throws IOException {
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).putInt(MetricLogRecord.SIZE).putInt(capacity)
+                    .putInt(head).putInt(count).putLong(0);
+            header.flip();
+            writeFully(header, 0);
+        }
+
+        void add(MetricLogRecord r) throws IOException {
+            if (pendingCount >= batch) {
+                flush();
+            }
+            r.write(pending);
+            pendingCount++;
+            appended++;
+        }
+
+        void flush() throws IOException {
+            if (pendingCount == 0) return;
+            int first = Math.min(pendingCount, capacity - head);
+            pending.flip();
+            pending.limit(first * MetricLogRecord.SIZE);
+            writeFully(pending, HEADER_SIZE + (long) head * MetricLogRecord.SIZE);
+            if (first < pendingCount) {
+                pending.limit(pendingCount * MetricLogRecord.SIZE);
+                writeFully(pending, HEADER_SIZE);
+            }
+            head = (head + pendingCount) % capacity;
+            count = Math.min(capacity, count + pendingCount);
+            pending.clear();
+            pendingCount = 0;
+            writeHeader();
+        }
+
+        private void writeFully(ByteBuffer buf, long position) throws IOException {
+            while (buf.hasRemaining()) {
+                position += channel.write(buf, position);
+            }
+        }
+
+        int size() {
+            return Math.min(capacity, count + pendingCount);
+        }
+
+        void read(int index, MetricLogRecord out) throws IOException {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("index " + index);
+            // 文件加缓冲超出容量时，文件中最旧的几条在逻辑上已被覆盖
+            int logical = index + Math.max(0, count + pendingCount - capacity);
+            if (logical < count) {
+                int slot = Math.floorMod(head - count + logical, capacity);
+                one.clear();
+                long position = HEADER_SIZE + (long) slot * MetricLogRecord.SIZE;
+                while (one.hasRemaining()) {
+                    int n = channel.read(one, position + one.position());
+                    if (n < 0) throw new IOException("Truncated log");
+                }
+                one.flip();
+                out.read(one);
+            } else {
+                pendingView.clear();
+                pendingView.position((logical - count) * MetricLogRecord.SIZE);
+                out.read(pendingView);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.yume.statusbarmonitor;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.TrafficStats;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Environment;
+import android.os.StatFs;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * 采样阶段：每个 tick 把系统数据收集进一个 {@link MetricSnapshot}。
+ * <p>
+ * 数据按来源拆成若干 {@link MetricSource}，各自有采样周期；
+ * 每个 tick 只运行到期的数据源，其余沿用缓存值。
+ * 系统服务句柄和可复用对象 (MemoryInfo、StatFs、IntentFilter) 在构造时一次性获取。
+ * 内存、网络字节数和电流优先直接读 /proc、/sys (见 {@link ProcReader})，
+ * 省掉 Binder 调用；文件不可读时自动回退到系统 API。
+ * 网络的回退按 {@link NetworkInterfaceMonitor} 给出的接口逐个查询 TrafficStats (API 31+)，
+ * 更早的系统只能区分移动数据和总量 (见 {@link #canSplitNetwork})。
+ */
+public class MetricSampler {
+
+    private static final String TAG = "MetricSampler";
+    private static final IntentFilter BATTERY_FILTER = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+
+    private final Context context;
+    private final BatteryStateReceiver batteryState;
+    private final NetworkInterfaceMonitor networkInterfaces;
+    private final BatteryManager batteryManager;
+    private final ActivityManager activityManager;
+    private final ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+    private final String dataPath;
+    private StatFs statFs;
+
+    // 直接读取的内核文件，通道保持打开，close() 时释放
+    private final MemInfoReader memInfoReader = new MemInfoReader(MemInfoReader.DEFAULT_FILE);
+    private final NetDevReader netDevReader = new NetDevReader(NetDevReader.DEFAULT_FILE);
+    private final SysfsLongReader currentReader = new SysfsLongReader(SysfsLongReader.BATTERY_CURRENT_NOW);
+
+    // 只能区分移动数据和总量时的两个伪接口名
+    private static final String FALLBACK_MOBILE = "mobile";
+    private static final String FALLBACK_OTHER = "other";
+
+    // 网速计数的来源
+    private static final int NET_PROC = 0;
+    private static final int NET_INTERFACES = 1;
+    private static final int NET_TOTALS = 2;
+
+    private final MetricSnapshot.Builder builder = new MetricSnapshot.Builder();
+
+    // 电流、电压的显示迟滞，见 setHysteresis
+    private final Hysteresis currentHysteresis = new Hysteresis();
+    private final Hysteresis voltageHysteresis = new Hysteresis();
+    private int hysteresisDigits = 0;
+    private int wattsDivisor = 1000000000;
+
+    // 读取的是广播接收器缓存的字段，代价可以忽略，每个 tick 都取最新值
+    private final MetricSource batterySource = new MetricSource("battery", 0, 0) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            sampleBattery(b);
+        }
+    };
+
+    // 两个显示 tick 之间高频采样的电流，显示时取平均值和峰值
+    private final RunningStats currentWindow = new RunningStats();
+
+    private final MetricSource currentSource = new MetricSource("current", 0, 0) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            long raw = readCurrent();
+            if (currentWindow.count() == 0) {
+                b.current(currentHysteresis.apply(raw, currentThreshold(b.voltage)));
+                return;
+            }
+            currentWindow.add(raw);
+            b.current(currentHysteresis.apply(currentWindow.mean(), currentThreshold(b.voltage)),
+                    currentWindow.peakMagnitude(), currentWindow.count());
+            currentWindow.reset();
+        }
+    };
+
+    private final MetricSource memorySource = new MetricSource("memory", 10_000, 0) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            if (memInfoReader.read()) {
+                b.memory(memInfoReader.getTotalBytes(), memInfoReader.getAvailableBytes());
+            } else {
+                activityManager.getMemoryInfo(memoryInfo);
+                b.memory(memoryInfo.totalMem, memoryInfo.availMem);
+            }
+        }
+    };
+
+    // 剩余空间几分钟内几乎不变，即使显示在图标上也每分钟采一次
+    private final MetricSource storageSource = new MetricSource("storage", 60_000, 60_000) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            sampleStorage(b);
+        }
+    };
+
+    // 网速按接口计算增量，见 NetworkThroughput
+    private final NetworkThroughput throughput = new NetworkThroughput();
+
+    // 网速是两次采样间的差值，必须每个 tick 采样才能和显示节奏对齐
+    private final MetricSource networkSource = new MetricSource("network", 0, 0) {
+        private int lastSource = -1;
+
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            // 只有 /proc/net/dev 被拒绝访问 (永久停用) 才换用 TrafficStats；
+            // 偶尔读失败 (含之后的退避) 时这个 tick 不采样，沿用上次的网速，基线保留到下次读到为止
+            int source = netDevReader.isAvailable() ? NET_PROC
+                    : Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && networkInterfaces.isRegistered()
+                    ? NET_INTERFACES : NET_TOTALS;
+            if (source == NET_PROC && !netDevReader.read()) return;
+            // 各来源的计数口径不同，切换来源时重新建立基线，避免算出一个跳变的网速
+            if (source != lastSource) {
+                throughput.clear();
+                lastSource = source;
+            }
+            // 毫秒级的 now 在 1 秒间隔下有千分之几的误差，这里用纳秒单调时钟
+            throughput.begin(SystemClock.elapsedRealtimeNanos());
+            if (source == NET_PROC) {
+                for (int i = 0; i < netDevReader.getInterfaceCount(); i++) {
+                    throughput.offer(netDevReader.getName(i),
+                            netDevReader.getRxBytes(i), netDevReader.getTxBytes(i));
+                }
+            } else if (source == NET_INTERFACES) {
+                // 接口名和类型来自 ConnectivityManager，VPN、以太网各归其类
+                for (int i = 0; i < networkInterfaces.getInterfaceCount(); i++) {
+                    String name = networkInterfaces.getName(i);
+                    throughput.offer(name, networkInterfaces.getKind(i),
+                            Math.max(0, TrafficStats.getRxBytes(name)), Math.max(0, TrafficStats.getTxBytes(name)));
+                }
+            } else {
+                // 只能区分移动数据和总量：其余部分可能是 Wi-Fi、以太网或 VPN (会重复计数)，类型记为未知，
+                // 不冒充 Wi-Fi；设置页据 canSplitNetwork 标出无法按接口区分的选项
+                long mobileRx = Math.max(0, TrafficStats.getMobileRxBytes());
+                long mobileTx = Math.max(0, TrafficStats.getMobileTxBytes());
+                long totalRx = Math.max(0, TrafficStats.getTotalRxBytes());
+                long totalTx = Math.max(0, TrafficStats.getTotalTxBytes());
+                throughput.offer(FALLBACK_MOBILE, NetworkThroughput.Kind.MOBILE, mobileRx, mobileTx);
+                throughput.offer(FALLBACK_OTHER, NetworkThroughput.Kind.OTHER,
+                        Math.max(0, totalRx - mobileRx), Math.max(0, totalTx - mobileTx));
+            }
+            throughput.end();
+            b.network(throughput.getRxRate(), throughput.getTxRate());
+            b.networkByKind(throughput.getRxRate(NetworkThroughput.Kind.WIFI),
+                    throughput.getTxRate(NetworkThroughput.Kind.WIFI),
+                    throughput.getRxRate(NetworkThroughput.Kind.MOBILE),
+                    throughput.getTxRate(NetworkThroughput.Kind.MOBILE));
+        }
+    };
+
+    private final CpuUsage cpuUsage = new CpuUsage();
+
+    // 占用率是两次读数间的平均值，不显示在图标上时拉长周期，只是让平均窗口变长
+    private final MetricSource cpuSource = new MetricSource("cpu", 5_000, 0) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            cpuUsage.update();
+            b.cpu(cpuUsage.getTotalPercent(), cpuUsage.getClusterPercent(0),
+                    cpuUsage.getClusterPercent(1), cpuUsage.getClusterPercent(2), cpuUsage.getMaxFreqKHz());
+        }
+    };
+
+    private final ThermalZones thermalZones = new ThermalZones();
+
+    // 热区温度变化较慢，但作为图标数字时每个 tick 都取
+    private final MetricSource thermalSource = new MetricSource("thermal", 5_000, 0) {
+        @Override
+        protected void sample(MetricSnapshot.Builder b, long now) {
+            thermalZones.update();
+            b.thermal(thermalZones.getHottestTenths(), thermalZones.getTenths(0), thermalZones.getTenths(1));
+        }
+    };
+
+    private final MetricSource[] sources = {
+            batterySource, currentSource, memorySource, storageSource, networkSource, cpuSource, thermalSource
+    };
+
+    /**
+     * @param batteryState 常驻的电池广播接收器；尚未收到广播时回退到粘性广播
+     */
+    public MetricSampler(Context context, BatteryStateReceiver batteryState,
+                         NetworkInterfaceMonitor networkInterfaces) {
+        this.context = context.getApplicationContext();
+        this.batteryState = batteryState;
+        this.networkInterfaces = networkInterfaces;
+        batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        dataPath = Environment.getDataDirectory().getPath();
+    }
+
+    /**
+     * 根据图标两行和圆环选中的 key 标记哪些数据源是“一眼可见”的，
+     * 可见的数据源按 staleBudget 收紧采样周期。
+     */
+    public void setVisibleKeys(MetricKey... keys) {
+        int visible = 0;
+        for (MetricKey key : keys) {
+            visible |= key.sources;
+        }
+        batterySource.setVisible((visible & MetricKey.SOURCE_BATTERY) != 0);
+        currentSource.setVisible((visible & MetricKey.SOURCE_CURRENT) != 0);
+        memorySource.setVisible((visible & MetricKey.SOURCE_MEMORY) != 0);
+        storageSource.setVisible((visible & MetricKey.SOURCE_STORAGE) != 0);
+        networkSource.setVisible((visible & MetricKey.SOURCE_NETWORK) != 0);
+        cpuSource.setVisible((visible & MetricKey.SOURCE_CPU) != 0);
+        thermalSource.setVisible((visible & MetricKey.SOURCE_THERMAL) != 0);
+    }
+
+    /**
+     * 设置电流/电压的显示迟滞。digits 表示读数至少要变化几个“显示位”才更新：
+     * 电压以详情里的 0.01V 为一位，电流以它带来的 0.01W 功率变化为一位。
+     * 0 表示关闭迟滞。
+     */
+    public void setHysteresis(int digits, int wattsDivisor) {
+        this.hysteresisDigits = Math.max(0, digits);
+        this.wattsDivisor = wattsDivisor;
+        currentHysteresis.reset();
+        voltageHysteresis.reset();
+    }
+
+    /**
+     * 网速合计包含哪些接口，见 {@link NetworkThroughput#setSelection}。
+     */
+    public void setNetworkSelection(NetworkThroughput.Scope scope, String interfaceName) {
+        throughput.setSelection(scope, interfaceName);
+    }
+
+    /**
+     * 网速能否按接口区分：读得到 /proc/net/dev，或可以按接口查询 TrafficStats (API 31+)。
+     * 否则只有移动数据和总量，Wi-Fi 网速、vpn / wifi 范围和指定接口名都无从计算，
+     * physical 在开着 VPN 时会重复计数。会读一次文件，不要在 tick 中调用。
+     */
+    public static boolean canSplitNetwork() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.S || NetDevReader.isReadable(NetDevReader.DEFAULT_FILE);
+    }
+
+    /**
+     * 跟踪哪些热区，见 {@link ThermalZones#select}。选择变化时下一次采样立即生效。
+     */
+    public void setThermalZones(String spec) {
+        thermalZones.select(spec);
+        thermalSource.invalidate();
+    }
+
+    /** 各数据源的采样状态，供 dumpsys 使用，见 {@link MetricSource#appendStatus} */
+    public void appendSources(StringBuilder sb, long now, long tickInterval) {
+        for (MetricSource source : sources) {
+            source.appendStatus(sb, now, tickInterval);
+        }
+    }
+
+    /** 全部热区及当前选择，供 dumpsys 使用，见 {@link ThermalZones#appendAllZones} */
+    public void appendThermalZones(StringBuilder sb) {
+        thermalZones.appendAllZones(sb);
+    }
+
+    // 功率变化 0.01W × digits 对应的电流变化量 (与 divisor 同单位)
+    private long currentThreshold(int voltage) {
+        if (hysteresisDigits == 0 || voltage <= 0) return 0;
+        return (long) Math.ceil(hysteresisDigits * (double) wattsDivisor / (100.0 * voltage));
+    }
+
+    /**
+     * 运行本 tick 到期的数据源并生成快照。
+     *
+     * @param now          单调时钟 (elapsedRealtime)
+     * @param tickInterval 当前显示刷新间隔
+     */
+    public MetricSnapshot sample(long now, long tickInterval) {
+        for (MetricSource source : sources) {
+            source.sampleIfDue(builder, now, tickInterval);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 高频采样一次电流，累积到下一个显示 tick。只在流水线线程上调用；
+     * 读取的是保持打开的 sysfs 文件 (或缓存的 BatteryManager)，不分配对象。
+     */
+    public void sampleCurrentBurst() {
+        currentWindow.add(readCurrent());
+    }
+
+    /** 丢弃尚未显示的高频样本，例如停止高频采样时 */
+    public void resetCurrentBurst() {
+        currentWindow.reset();
+    }
+
+    private long readCurrent() {
+        if (currentReader.read()) {
+            return currentReader.getValue();
+        }
+        return batteryManager != null
+                ? batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW) : 0;
+    }
+
+    /** 释放保持打开的 /proc、/sys 文件通道，须在流水线线程停止后调用 */
+    public void close() {
+        memInfoReader.close();
+        netDevReader.close();
+        currentReader.close();
+        cpuUsage.close();
+        thermalZones.close();
+    }
+
+    private void sampleBattery(MetricSnapshot.Builder b) {
+        if (batteryState.hasState()) {
+            b.battery(
+                    batteryState.getTemperatureTenths(),
+                    (int) voltageHysteresis.apply(batteryState.getVoltage(), hysteresisDigits * 10L),
+                    batteryState.getLevel());
+            b.plugged(batteryState.isPlugged());
+            return;
+        }
+        Intent batteryIntent = context.registerReceiver(null, BATTERY_FILTER);
+        if (batteryIntent != null) {
+            b.battery(
+                    batteryIntent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0),
+                    (int) voltageHysteresis.apply(
+                            batteryIntent.getIntExtra(BatteryManager.EXTRA_VOLTAGE, 0), hysteresisDigits * 10L),
+                    batteryIntent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0));
+            b.plugged(batteryIntent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0);
+        } else {
+            b.battery(0, 0, 0);
+            b.plugged(false);
+        }
+    }
+
+    private void sampleStorage(MetricSnapshot.Builder b) {
+        try {
+            // StatFs 可以 restat 复用，不必每次 new
+            if (statFs == null) {
+                statFs = new StatFs(dataPath);
+            } else {
+                statFs.restat(dataPath);
+            }
+            long blockSize = statFs.getBlockSizeLong();
+            long total = MetricSnapshot.marketedCapacity(statFs.getBlockCountLong() * blockSize);
+            long free = statFs.getAvailableBlocksLong() * blockSize;
+            b.storage(total, free);
+        } catch (Exception e) {
+            Log.e(TAG, "sampleStorage error", e);
+            b.storage(0, 0);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 一次 tick 的全部采样结果。
+ * 只包含基本类型字段且不可变，由 {@link MetricSampler} 每个 tick 构建一次，
+ * 之后的文字格式化、圆环进度计算都只读取它，不再重复查询系统服务。
+ */
+public final class MetricSnapshot {
+
+    // 电池 (来自 ACTION_BATTERY_CHANGED)
+    public final int temperatureTenths; // 0.1°C，广播原值
+    public final int temperature;      // °C，向零取整，图标显示用
+    public final int voltage;          // mV
+    public final int batteryPercent;
+    public final boolean plugged;      // 是否连接了充电器
+    public final long currentNow;      // µA，来自 BATTERY_PROPERTY_CURRENT_NOW；高频采样时为窗口平均值
+    public final long currentPeak;     // µA，窗口内幅度最大的样本
+    public final int currentSamples;   // 窗口内的样本数，未开启高频采样时为 1
+
+    // 内存
+    public final long memTotalBytes;
+    public final long memAvailBytes;
+    public final long memUsedMB;       // 与旧 getMemoryUsageMB 相同：先各自换算为 MB 再相减
+    public final int memPercent;
+
+    // 存储 (总量已按常见档位取整)
+    public final long storageTotal;
+    public final long storageFree;
+    public final long storageUsed;
+    public final int storagePercent;
+    public final double storageFreeGiB;
+
+    // 网速 (字节/秒)
+    public final long downloadSpeed;
+    public final long uploadSpeed;
+    // 按接口类型拆分的网速，不受网速接口设置影响
+    public final long wifiDownloadSpeed;
+    public final long wifiUploadSpeed;
+    public final long mobileDownloadSpeed;
+    public final long mobileUploadSpeed;
+
+    // CPU (来自 /proc/stat 与 cpufreq)，占用率未知时为 CpuUsage.UNKNOWN
+    public final int cpuPercent;
+    public final int cpuCluster0Percent;
+    public final int cpuCluster1Percent;
+    public final int cpuCluster2Percent;
+    public final long cpuFreqKHz;      // 各簇当前频率的最大值，读不到为 0
+
+    // 热区 (来自 /sys/class/thermal)，0.1°C，没有读数时为 ThermalZones.UNKNOWN
+    public final int thermalTenths;       // 选中热区中的最高温度
+    public final int thermalZone1Tenths;  // 第 1 个选中的热区
+    public final int thermalZone2Tenths;  // 第 2 个选中的热区
+
+    private MetricSnapshot(Builder b) {
+        temperatureTenths = b.temperatureTenths;
+        temperature = b.temperatureTenths / 10;
+        voltage = b.voltage;
+        batteryPercent = b.batteryPercent;
+        plugged = b.plugged;
+        currentNow = b.currentNow;
+        currentPeak = b.currentPeak;
+        currentSamples = b.currentSamples;
+
+        memTotalBytes = b.memTotalBytes;
+        memAvailBytes = b.memAvailBytes;
+        memUsedMB = b.memUsedMB;
+        memPercent = b.memPercent;
+
+        storageTotal = b.storageTotal;
+        storageFree = b.storageFree;
+        storageUsed = b.storageUsed;
+        storagePercent = b.storagePercent;
+        storageFreeGiB = b.storageFreeGiB;
+
+        downloadSpeed = b.downloadSpeed;
+        uploadSpeed = b.uploadSpeed;
+        wifiDownloadSpeed = b.wifiDownloadSpeed;
+        wifiUploadSpeed = b.wifiUploadSpeed;
+        mobileDownloadSpeed = b.mobileDownloadSpeed;
+        mobileUploadSpeed = b.mobileUploadSpeed;
+
+        cpuPercent = b.cpuPercent;
+        cpuCluster0Percent = b.cpuCluster0Percent;
+        cpuCluster1Percent = b.cpuCluster1Percent;
+        cpuCluster2Percent = b.cpuCluster2Percent;
+        cpuFreqKHz = b.cpuFreqKHz;
+
+        thermalTenths = b.thermalTenths;
+        thermalZone1Tenths = b.thermalZone1Tenths;
+        thermalZone2Tenths = b.thermalZone2Tenths;
+    }
+
+    /**
+     * 功率 (W)。divisor 由用户设置，用于适配不同机型电流单位。
+     */
+    public double watts(int divisor) {
+        return (Math.abs(currentNow) * voltage) / (double) divisor;
+    }
+
+    /** 窗口内的峰值功率 (W) */
+    public double peakWatts(int divisor) {
+        return (Math.abs(currentPeak) * voltage) / (double) divisor;
+    }
+
+    // 常见手机存储档位 (单位: GiB)
+    private static final int[] STANDARD_CAPACITIES = {8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192};
+
+    /**
+     * 把 StatFs 读到的总容量换算成标称容量 (十进制 GB)。
+     * 当读取容量比标准档位略小时假定真实容量为该档位，超出所有档位则原样返回。
+     */
+    public static long marketedCapacity(long totalBytes) {
+        double realTotal = totalBytes / (1024.0 * 1024.0 * 1024.0);
+        for (int cap : STANDARD_CAPACITIES) {
+            if (realTotal <= cap) {
+                return (long) cap * 1000 * 1000 * 1000;
+            }
+        }
+        return totalBytes;
+    }
+
+    /**
+     * 采样阶段使用的可变累加器，采完一轮后调用 {@link #build()} 得到不可变快照。
+     * 它在整个服务生命周期内复用：本 tick 未到期的数据源不写入，沿用上次的值；
+     * 百分比等派生值也只在对应数据源采样时计算一次。
+     */
+    public static final class Builder {
+        int temperatureTenths;
+        int voltage;
+        int batteryPercent;
+        boolean plugged;
+        long currentNow;
+        long currentPeak;
+        int currentSamples;
+        long memTotalBytes;
+        long memAvailBytes;
+        long memUsedMB;
+        int memPercent;
+        long storageTotal;
+        long storageFree;
+        long storageUsed;
+        int storagePercent;
+        double storageFreeGiB;
+        long downloadSpeed;
+        long uploadSpeed;
+        long wifiDownloadSpeed;
+        long wifiUploadSpeed;
+        long mobileDownloadSpeed;
+        long mobileUploadSpeed;
+        int cpuPercent = CpuUsage.UNKNOWN;
+        int cpuCluster0Percent = CpuUsage.UNKNOWN;
+        int cpuCluster1Percent = CpuUsage.UNKNOWN;
+        int cpuCluster2Percent = CpuUsage.UNKNOWN;
+        long cpuFreqKHz;
+        int thermalTenths = ThermalZones.UNKNOWN;
+        int thermalZone1Tenths = ThermalZones.UNKNOWN;
+        int thermalZone2Tenths = ThermalZones.UNKNOWN;
+
+        /**
+         * @param temperatureTenths 温度，单位 0.1°C
+         */
+        public Builder battery(int temperatureTenths, int voltage, int batteryPercent) {
+            this.temperatureTenths = temperatureTenths;
+            this.voltage = voltage;
+            this.batteryPercent = batteryPercent;
+            return this;
+        }
+
+        public Builder plugged(boolean plugged) {
+            this.plugged = plugged;
+            return this;
+        }
+
+        public Builder current(long currentNow) {
+            return current(currentNow, currentNow, 1);
+        }
+
+        /**
+         * @param average 窗口平均电流
+         * @param peak    窗口内幅度最大的样本
+         * @param samples 窗口内的样本数
+         */
+        public Builder current(long average, long peak, int samples) {
+            this.currentNow = average;
+            this.currentPeak = peak;
+            this.currentSamples = samples;
+            return this;
+        }
+
+        public Builder memory(long totalBytes, long availBytes) {
+            this.memTotalBytes = totalBytes;
+            this.memAvailBytes = availBytes;
+            this.memUsedMB = totalBytes / (1024 * 1024) - availBytes / (1024 * 1024);
+            // 避免除以0
+            this.memPercent = totalBytes == 0 ? 0 : (int) ((totalBytes - availBytes) * 100 / totalBytes);
+            return this;
+        }
+
+        /**
+         * @param totalBytes 已经过 {@link #marketedCapacity(long)} 取整的总容量
+         */
+        public Builder storage(long totalBytes, long freeBytes) {
+            this.storageTotal = totalBytes;
+            this.storageFree = freeBytes;
+            this.storageUsed = totalBytes - freeBytes;
+            // 先乘100防止整数除法为0
+            this.storagePercent = totalBytes > 0 ? (int) ((storageUsed * 100) / totalBytes) : 0;
+            this.storageFreeGiB = freeBytes / 1024.0 / 1024.0 / 1024.0;
+            return this;
+        }
+
+        public Builder network(long downloadSpeed, long uploadSpeed) {
+            this.downloadSpeed = downloadSpeed;
+            this.uploadSpeed = uploadSpeed;
+            return this;
+        }
+
+        public Builder networkByKind(long wifiDownload, long wifiUpload, long mobileDownload, long mobileUpload) {
+            this.wifiDownloadSpeed = wifiDownload;
+            this.wifiUploadSpeed = wifiUpload;
+            this.mobileDownloadSpeed = mobileDownload;
+            this.mobileUploadSpeed = mobileUpload;
+            return this;
+        }
+
+        /**
+         * @param totalPercent 整体占用率，未知为 {@link CpuUsage#UNKNOWN}
+         * @param freqKHz      各簇当前频率的最大值
+         */
+        public Builder cpu(int totalPercent, int cluster0, int cluster1, int cluster2, long freqKHz) {
+            this.cpuPercent = totalPercent;
+            this.cpuCluster0Percent = cluster0;
+            this.cpuCluster1Percent = cluster1;
+            this.cpuCluster2Percent = cluster2;
+            this.cpuFreqKHz = freqKHz;
+            return this;
+        }
+
+        /**
+         * 温度单位均为 0.1°C，没有读数时为 {@link ThermalZones#UNKNOWN}
+         */
+        public Builder thermal(int hottestTenths, int zone1Tenths, int zone2Tenths) {
+            this.thermalTenths = hottestTenths;
+            this.thermalZone1Tenths = zone1Tenths;
+            this.thermalZone2Tenths = zone2Tenths;
+            return this;
+        }
+
+        public MetricSnapshot build() {
+            return new MetricSnapshot(this);
+        }
+    }
+}
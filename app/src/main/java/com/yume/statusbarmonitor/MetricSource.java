@@ -0,0 +1,85 @@
+package com.yume.statusbarmonitor;
+
+import java.util.Locale;
+
+/**
+ * 一个独立采样的数据源 (电池、内存、存储、网络……)。
+ * <p>
+ * 每个数据源有自己的采样周期：到期才真正查询系统，未到期的 tick 直接沿用
+ * {@link MetricSnapshot.Builder} 里上一次写入的值。
+ * 当它的数据正显示在图标或圆环上时，周期会被收紧到 staleBudget，
+ * 保证一眼能看到的数字不会比这个时间更旧；只出现在下拉详情里的数据则按常规周期慢慢刷新。
+ */
+public abstract class MetricSource {
+
+    private final String name;
+    private final long periodMs;
+    private final long staleBudgetMs;
+
+    private boolean visible;
+    private boolean sampled;
+    private long lastSampleAt;
+
+    /**
+     * @param periodMs      常规采样周期，0 表示每个 tick 都采样
+     * @param staleBudgetMs 显示在图标/圆环上时允许的最大陈旧时间
+     */
+    protected MetricSource(String name, long periodMs, long staleBudgetMs) {
+        this.name = name;
+        this.periodMs = periodMs;
+        this.staleBudgetMs = staleBudgetMs;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /** 当前实际生效的采样周期 */
+    public long effectivePeriod() {
+        return visible ? Math.min(periodMs, staleBudgetMs) : periodMs;
+    }
+
+    /**
+     * 判断此 tick 是否需要采样。留出半个 tick 的余量，
+     * 避免 Handler 的微小延迟让采样整整推迟一个 tick。
+     */
+    public boolean isDue(long now, long tickInterval) {
+        if (!sampled) return true;
+        return now - lastSampleAt >= effectivePeriod() - tickInterval / 2;
+    }
+
+    /** 丢弃缓存，下一个 tick 强制重新采样 */
+    public void invalidate() {
+        sampled = false;
+    }
+
+    /**
+     * 到期则采样并写入 builder。
+     * @return 是否真的采样了
+     */
+    public boolean sampleIfDue(MetricSnapshot.Builder builder, long now, long tickInterval) {
+        if (!isDue(now, tickInterval)) return false;
+        sample(builder, now);
+        sampled = true;
+        lastSampleAt = now;
+        return true;
+    }
+
+    /**
+     * 一行状态，供 dumpsys 使用：名字、生效周期、距上次采样的时间，
+     * 超过生效周期一个 tick 以上仍未采样时标 stale (例如 tick 被推迟或数据源一直不到期)。
+     */
+    public void appendStatus(StringBuilder sb, long now, long tickInterval) {
+        sb.append(String.format(Locale.US, "  %-8s period %6d ms%s", name, effectivePeriod(), visible ? " visible" : ""));
+        if (!sampled) {
+            sb.append("  never sampled\n");
+            return;
+        }
+        long age = now - lastSampleAt;
+        sb.append(String.format(Locale.US, "  age %6d ms", age));
+        if (age > effectivePeriod() + tickInterval) sb.append("  stale");
+        sb.append('\n');
+    }
+
+    protected abstract void sample(MetricSnapshot.Builder builder, long now);
+}
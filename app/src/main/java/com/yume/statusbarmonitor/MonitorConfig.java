@@ -0,0 +1,381 @@
+package com.yume.statusbarmonitor;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 解析、校验过的不可变配置。
+ * <p>
+ * 只在配置变化时构建一次 (来自设置页、Intent extras 或 SharedPreferences)，
+ * 之后流水线线程每个 tick 直接读字段，不再查 Bundle。
+ * 越界或无法解析的值逐项回退到默认值，不会因为一项错误丢掉其它设置。
+ * <p>
+ * 设置页通过 {@link ControlProvider} 把新配置交给 :monitor 进程 ({@link #publish})，
+ * 运行中的服务收到 {@link Listener} 回调后在流水线线程上整体替换，不重启服务。
+ */
+public final class MonitorConfig {
+
+    // 不在 Constants 中的 Bundle 键，沿用旧版 Intent extras 的名字
+    static final String KEY_INTERVAL = "interval";
+    static final String KEY_RING = "ring_key";
+
+    // SharedPreferences 中 Spinner 位置的键
+    static final String PREF_IDX_DATA1 = "pref_idx_data1_v2";
+    static final String PREF_IDX_DATA2 = "pref_idx_data2_v2";
+    static final String PREF_IDX_RING = "pref_idx_ring_v2";
+    static final String PREF_IDX_SPARKLINE = "pref_idx_sparkline_v2";
+
+    static final int MIN_INTERVAL_MS = 500;
+    static final int MAX_INTERVAL_MS = 60_000;
+    static final int MIN_BITMAP_SIZE = 16;
+    static final int MAX_BITMAP_SIZE = 256;
+    static final int MAX_HYSTERESIS_DIGITS = 9;
+    static final int MAX_CURRENT_BURST_HZ = 20;
+    // Linux 接口名最长 15 个字符 (IFNAMSIZ - 1)
+    static final int MAX_INTERFACE_NAME = 15;
+    static final int MAX_ALERT_COOLDOWN_S = 24 * 60 * 60;
+
+    public static final MonitorConfig DEFAULT = new Builder().build();
+
+    public final int intervalMs;
+    public final int fontChoice;
+    public final MetricKey data1;
+    public final MetricKey data2;
+    /** 不画圆环时为 {@link MetricKey#NONE}，否则 {@code ring.ring} 为对应的映射 */
+    public final MetricKey ring;
+    /** 不画曲线时为 {@link MetricKey#NONE}，否则 {@code sparkline.series} 非空 */
+    public final MetricKey sparkline;
+    public final int bitmapSize;
+    public final int fontSize;
+    public final int offset;
+    public final int paddingX;
+    public final int paddingY;
+    public final int divisor;
+    public final boolean ringDashed;
+    public final int dashLength;
+    public final int dashGap;
+    public final int hysteresisDigits;
+    /** 电流高频采样频率，0 表示关闭 */
+    public final int currentBurstHz;
+    /** 网速合计的接口范围；{@link #netInterface} 非空时不使用 */
+    public final NetworkThroughput.Scope netScope;
+    /** 只统计这个接口，null 表示按 {@link #netScope} */
+    public final String netInterface;
+    /** 热区 type 前缀，逗号分隔，空串为全部热区 */
+    public final String thermalZones;
+    /** 主图标之外的附加图标，最多 {@link IconSpec#MAX_EXTRA} 个；只读，不要修改数组 */
+    public final IconSpec[] extraIcons;
+    /** 提醒规则原文，格式见 {@link AlertEngine}，空串为不提醒 */
+    public final String alertRules;
+    /** 同一条规则两次提醒的最短间隔 (秒) */
+    public final int alertCooldownSec;
+    public final boolean diagnostics;
+
+    private MonitorConfig(Builder b) {
+        intervalMs = clamp(b.intervalMs, MIN_INTERVAL_MS, MAX_INTERVAL_MS);
+        fontChoice = b.fontChoice >= 0 && b.fontChoice < Constants.FONT_FILENAMES.length ? b.fontChoice : 0;
+        data1 = b.data1;
+        data2 = b.data2;
+        // 不能作为圆环 / 曲线的 key 按关闭处理
+        ring = b.ring.ring != RingMapping.NONE ? b.ring : MetricKey.NONE;
+        sparkline = b.sparkline.series != null ? b.sparkline : MetricKey.NONE;
+        bitmapSize = clamp(b.bitmapSize, MIN_BITMAP_SIZE, MAX_BITMAP_SIZE);
+        fontSize = clamp(b.fontSize, 1, bitmapSize);
+        offset = clamp(b.offset, -bitmapSize, bitmapSize);
+        paddingX = clamp(b.paddingX, -bitmapSize, bitmapSize);
+        paddingY = clamp(b.paddingY, -bitmapSize, bitmapSize);
+        // 除数为 0 或负数没有意义，回退默认值
+        divisor = b.divisor > 0 ? b.divisor : Builder.DEFAULT_DIVISOR;
+        ringDashed = b.ringDashed;
+        dashLength = clamp(b.dashLength, 1, bitmapSize);
+        dashGap = clamp(b.dashGap, 0, bitmapSize);
+        hysteresisDigits = clamp(b.hysteresisDigits, 0, MAX_HYSTERESIS_DIGITS);
+        currentBurstHz = clamp(b.currentBurstHz, 0, MAX_CURRENT_BURST_HZ);
+        String spec = b.network != null ? b.network.trim() : "";
+        NetworkThroughput.Scope scope = NetworkThroughput.Scope.fromKey(spec);
+        // 不是范围名的当作接口名；空串或过长的名字按默认范围处理
+        boolean isInterface = !spec.isEmpty() && !scope.key.equals(spec) && spec.length() <= MAX_INTERFACE_NAME;
+        netScope = scope;
+        netInterface = isInterface ? spec : null;
+        thermalZones = b.thermalZones != null ? b.thermalZones.trim() : "";
+        extraIcons = IconSpec.parseList(b.extraIcons);
+        alertRules = b.alertRules != null ? b.alertRules.trim() : "";
+        alertCooldownSec = clamp(b.alertCooldownSec, 0, MAX_ALERT_COOLDOWN_S);
+        diagnostics = b.diagnostics;
+    }
+
+    /** 网速设置的字符串形式，范围名或接口名，与 {@link Builder#network} 对应 */
+    public String networkSpec() {
+        return netInterface != null ? netInterface : netScope.key;
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    /** 刷新率 Spinner 的位置 (1s ~ 5s) 换算为毫秒 */
+    static int intervalForPosition(int position) {
+        return position >= 0 && position < 5 ? (position + 1) * 1000 : Builder.DEFAULT_INTERVAL_MS;
+    }
+
+    /** 设置页存的是字符串，解析失败时返回 fallback */
+    static int parseInt(String value, int fallback) {
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    // 旧版本可能把这些项存成了 int
+    private static int prefInt(SharedPreferences prefs, String key, int fallback) {
+        try {
+            return parseInt(prefs.getString(key, null), fallback);
+        } catch (ClassCastException e) {
+            return prefs.getInt(key, fallback);
+        }
+    }
+
+    // --- 来源 ---
+
+    /** Intent extras / call 参数，与 {@link #toBundle} 对应 */
+    public static MonitorConfig fromBundle(Bundle b) {
+        Builder d = new Builder();
+        return new Builder()
+                .interval(b.getInt(KEY_INTERVAL, d.intervalMs))
+                .fontChoice(b.getInt(Constants.KEY_FONT_CHOICE, d.fontChoice))
+                .keys(b.getString(Constants.KEY_DATA1),
+                        b.getString(Constants.KEY_DATA2),
+                        b.getString(KEY_RING),
+                        b.getString(Constants.KEY_SPARKLINE))
+                .icon(b.getInt(Constants.KEY_BITMAP_SIZE, d.bitmapSize),
+                        b.getInt(Constants.KEY_FONT_SIZE, d.fontSize),
+                        b.getInt(Constants.KEY_OFFSET, d.offset),
+                        b.getInt(Constants.KEY_PADDING_X, d.paddingX),
+                        b.getInt(Constants.KEY_PADDING_Y, d.paddingY))
+                .divisor(b.getInt(Constants.KEY_DIVISOR, d.divisor))
+                .dash(b.getBoolean(Constants.KEY_RING_DASHED, d.ringDashed),
+                        b.getInt(Constants.KEY_DASH_LENGTH, d.dashLength),
+                        b.getInt(Constants.KEY_DASH_GAP, d.dashGap))
+                .hysteresis(b.getInt(Constants.KEY_HYSTERESIS, d.hysteresisDigits))
+                .currentBurst(b.getInt(Constants.KEY_CURRENT_BURST_HZ, d.currentBurstHz))
+                .network(b.getString(Constants.KEY_NET_SCOPE, d.network))
+                .thermalZones(b.getString(Constants.KEY_THERMAL_ZONES, d.thermalZones))
+                .extraIcons(b.getString(Constants.KEY_EXTRA_ICONS, d.extraIcons))
+                .alerts(b.getString(Constants.KEY_ALERT_RULES, d.alertRules),
+                        b.getInt(Constants.KEY_ALERT_COOLDOWN, d.alertCooldownSec))
+                .diagnostics(b.getBoolean(Constants.KEY_DIAGNOSTICS, d.diagnostics))
+                .build();
+    }
+
+    public Bundle toBundle() {
+        Bundle b = new Bundle();
+        b.putInt(KEY_INTERVAL, intervalMs);
+        b.putInt(Constants.KEY_FONT_CHOICE, fontChoice);
+        b.putString(Constants.KEY_DATA1, data1.key);
+        b.putString(Constants.KEY_DATA2, data2.key);
+        b.putString(KEY_RING, ring.key);
+        b.putString(Constants.KEY_SPARKLINE, sparkline.key);
+        b.putInt(Constants.KEY_BITMAP_SIZE, bitmapSize);
+        b.putInt(Constants.KEY_FONT_SIZE, fontSize);
+        b.putInt(Constants.KEY_OFFSET, offset);
+        b.putInt(Constants.KEY_PADDING_X, paddingX);
+        b.putInt(Constants.KEY_PADDING_Y, paddingY);
+        b.putInt(Constants.KEY_DIVISOR, divisor);
+        b.putBoolean(Constants.KEY_RING_DASHED, ringDashed);
+        b.putInt(Constants.KEY_DASH_LENGTH, dashLength);
+        b.putInt(Constants.KEY_DASH_GAP, dashGap);
+        b.putInt(Constants.KEY_HYSTERESIS, hysteresisDigits);
+        b.putInt(Constants.KEY_CURRENT_BURST_HZ, currentBurstHz);
+        b.putString(Constants.KEY_NET_SCOPE, networkSpec());
+        b.putString(Constants.KEY_THERMAL_ZONES, thermalZones);
+        b.putString(Constants.KEY_EXTRA_ICONS, IconSpec.toSpec(extraIcons));
+        b.putString(Constants.KEY_ALERT_RULES, alertRules);
+        b.putInt(Constants.KEY_ALERT_COOLDOWN, alertCooldownSec);
+        b.putBoolean(Constants.KEY_DIAGNOSTICS, diagnostics);
+        return b;
+    }
+
+    /** 服务被系统重启、没有 extras 时从设置页保存的偏好读取 */
+    public static MonitorConfig fromPreferences(SharedPreferences prefs) {
+        Builder d = new Builder();
+        return new Builder()
+                .interval(intervalForPosition(prefs.getInt(Constants.KEY_REFRESH_RATE_POS, 2)))
+                .fontChoice(prefs.getInt(Constants.KEY_FONT_CHOICE, d.fontChoice))
+                .keys(MetricKey.atPosition(MetricKey.DATA_POSITIONS, prefs.getInt(PREF_IDX_DATA1, 1)),
+                        MetricKey.atPosition(MetricKey.DATA_POSITIONS, prefs.getInt(PREF_IDX_DATA2, 3)),
+                        MetricKey.atPosition(MetricKey.RING_POSITIONS, prefs.getInt(PREF_IDX_RING, 0)),
+                        MetricKey.atPosition(MetricKey.SPARKLINE_POSITIONS, prefs.getInt(PREF_IDX_SPARKLINE, 0)))
+                .icon(prefInt(prefs, Constants.KEY_BITMAP_SIZE, d.bitmapSize),
+                        prefInt(prefs, Constants.KEY_FONT_SIZE, d.fontSize),
+                        prefInt(prefs, Constants.KEY_OFFSET, d.offset),
+                        prefInt(prefs, Constants.KEY_PADDING_X, d.paddingX),
+                        prefInt(prefs, Constants.KEY_PADDING_Y, d.paddingY))
+                .divisor(prefInt(prefs, Constants.KEY_DIVISOR, d.divisor))
+                .dash(prefs.getBoolean(Constants.KEY_RING_DASHED, d.ringDashed),
+                        prefInt(prefs, Constants.KEY_DASH_LENGTH, d.dashLength),
+                        prefInt(prefs, Constants.KEY_DASH_GAP, d.dashGap))
+                .hysteresis(prefInt(prefs, Constants.KEY_HYSTERESIS, d.hysteresisDigits))
+                .currentBurst(prefInt(prefs, Constants.KEY_CURRENT_BURST_HZ, d.currentBurstHz))
+                .network(prefs.getString(Constants.KEY_NET_SCOPE, d.network))
+                .thermalZones(prefs.getString(Constants.KEY_THERMAL_ZONES, d.thermalZones))
+                .extraIcons(prefs.getString(Constants.KEY_EXTRA_ICONS, d.extraIcons))
+                .alerts(prefs.getString(Constants.KEY_ALERT_RULES, d.alertRules),
+                        prefInt(prefs, Constants.KEY_ALERT_COOLDOWN, d.alertCooldownSec))
+                .diagnostics(prefs.getBoolean(Constants.KEY_DIAGNOSTICS, d.diagnostics))
+                .build();
+    }
+
+    // --- 进程内发布 ---
+
+    /** 新配置到达时回调，调用线程不确定 (通常是 Binder 线程) */
+    public interface Listener {
+        void onConfigChanged(MonitorConfig config);
+    }
+
+    private static final AtomicReference<MonitorConfig> current = new AtomicReference<>();
+    private static volatile Listener listener;
+
+    /** 本进程最近一次收到的配置，还没有时为 null */
+    public static MonitorConfig current() {
+        return current.get();
+    }
+
+    /**
+     * 发布新配置。
+     *
+     * @return 是否有监听者 (即服务正在运行)
+     */
+    public static boolean publish(MonitorConfig config) {
+        current.set(config);
+        Listener l = listener;
+        if (l == null) return false;
+        l.onConfigChanged(config);
+        return true;
+    }
+
+    public static void setListener(Listener l) {
+        listener = l;
+    }
+
+    public static final class Builder {
+        static final int DEFAULT_INTERVAL_MS = 3000;
+        static final int DEFAULT_DIVISOR = 1000000000;
+
+        private int intervalMs = DEFAULT_INTERVAL_MS;
+        private int fontChoice = 0;
+        private MetricKey data1 = MetricKey.NONE;
+        private MetricKey data2 = MetricKey.NONE;
+        private MetricKey ring = MetricKey.NONE;
+        private MetricKey sparkline = MetricKey.NONE;
+        private int bitmapSize = 64;
+        private int fontSize = 32;
+        private int offset = 15;
+        private int paddingX = -2;
+        private int paddingY = 0;
+        private int divisor = DEFAULT_DIVISOR;
+        private boolean ringDashed = false;
+        private int dashLength = 6;
+        private int dashGap = 2;
+        private int hysteresisDigits = 1;
+        private int currentBurstHz = 10;
+        private String network = NetworkThroughput.Scope.PHYSICAL.key;
+        private String thermalZones = "";
+        private String extraIcons = "";
+        private String alertRules = "";
+        private int alertCooldownSec = 600;
+        private boolean diagnostics = false;
+
+        public Builder interval(int ms) {
+            intervalMs = ms;
+            return this;
+        }
+
+        public Builder fontChoice(int choice) {
+            fontChoice = choice;
+            return this;
+        }
+
+        public Builder keys(MetricKey data1, MetricKey data2, MetricKey ring, MetricKey sparkline) {
+            this.data1 = data1;
+            this.data2 = data2;
+            this.ring = ring;
+            this.sparkline = sparkline;
+            return this;
+        }
+
+        /** 字符串 key (Intent extras、旧版配置)，未知或为 null 时为 {@link MetricKey#NONE} */
+        public Builder keys(String data1, String data2, String ring, String sparkline) {
+            return keys(MetricKey.fromKey(data1), MetricKey.fromKey(data2),
+                    MetricKey.fromKey(ring), MetricKey.fromKey(sparkline));
+        }
+
+        public Builder icon(int bitmapSize, int fontSize, int offset, int paddingX, int paddingY) {
+            this.bitmapSize = bitmapSize;
+            this.fontSize = fontSize;
+            this.offset = offset;
+            this.paddingX = paddingX;
+            this.paddingY = paddingY;
+            return this;
+        }
+
+        public Builder divisor(int divisor) {
+            this.divisor = divisor;
+            return this;
+        }
+
+        public Builder dash(boolean dashed, int length, int gap) {
+            ringDashed = dashed;
+            dashLength = length;
+            dashGap = gap;
+            return this;
+        }
+
+        public Builder hysteresis(int digits) {
+            hysteresisDigits = digits;
+            return this;
+        }
+
+        public Builder currentBurst(int hz) {
+            currentBurstHz = hz;
+            return this;
+        }
+
+        /** 范围名 (physical / all / wifi / mobile / vpn) 或接口名，空或 null 为 physical */
+        public Builder network(String spec) {
+            network = spec;
+            return this;
+        }
+
+        /** 逗号分隔的热区 type 前缀，空或 null 为全部热区 */
+        public Builder thermalZones(String spec) {
+            thermalZones = spec;
+            return this;
+        }
+
+        /** 附加图标，格式见 {@link IconSpec} */
+        public Builder extraIcons(String spec) {
+            extraIcons = spec;
+            return this;
+        }
+
+        /** 提醒规则 (格式见 {@link AlertEngine}) 和同一条规则的提醒间隔 (秒) */
+        public Builder alerts(String rules, int cooldownSec) {
+            alertRules = rules;
+            alertCooldownSec = cooldownSec;
+            return this;
+        }
+
+        public Builder diagnostics(boolean enabled) {
+            diagnostics = enabled;
+            return this;
+        }
+
+        public MonitorConfig build() {
+            return new MonitorConfig(this);
+        }
+    }
+}
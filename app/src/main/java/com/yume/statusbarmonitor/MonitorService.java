@@ -1,460 +1,714 @@
 package com.yume.statusbarmonitor;
 
-import android.annotation.SuppressLint;
-import android.app.ActivityManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PathMeasure;
-import android.graphics.RectF;
 import android.graphics.Typeface;
-import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
-import android.os.StatFs;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.graphics.drawable.IconCompat;
 
-import com.google.android.material.color.DynamicColors;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
 
 public class MonitorService extends Service {
 
+    /** 开机自启的启动 Intent，只用于区分启动原因，不带配置 */
+    public static final String ACTION_BOOT_START = "com.yume.statusbarmonitor.action.BOOT_START";
+
     private static final String CHANNEL_ID = "BatteryMonitorChannel";
+    // 主图标 (前台服务通知) 的 ID；附加图标依次使用其后的 ID
+    private static final int NOTIFICATION_ID = 1;
+    private static final int EXTRA_NOTIFICATION_ID = 2;
+    // 提醒走单独的高优先级渠道，每条规则一个通知 ID，同一条规则的新提醒覆盖旧的
+    private static final String ALERT_CHANNEL_ID = "MonitorAlertChannel";
+    private static final int ALERT_NOTIFICATION_ID = 100;
     private NotificationManager notificationManager;
-    private Handler handler;
-    private Runnable updateTask;
-    private Bundle settings;
-    private int updateInterval;
+
+    // 流水线：采样、格式化、绘制在后台线程完成，主线程只负责 notify
+    private HandlerThread pipelineThread;
+    private Handler pipelineHandler;
+    private Handler mainHandler;
+    private final FrameSlot<Frame> frameSlot = new FrameSlot<>();
+    private long droppedFrames = 0;
+
+    // 以下状态只在流水线线程上读写 (首次启动时流水线线程尚未运行，由主线程初始化)
+    private MonitorConfig config;
     private Typeface customTypeface;
+    private int fontChoice = -1;
 
-    // 网速计算相关
-    private long lastTime = 0;
-    private long lastRxBytes = 0;
-    private long lastTxBytes = 0;
-    private long downloadSpeed = 0;
-    private long uploadSpeed = 0;
+    private MetricSampler sampler;
+    private BatteryStateReceiver batteryState;
+    private NetworkInterfaceMonitor networkInterfaces;
+    // 电池广播里哪些字段变化时值得立即刷新，见 onBatteryStateChanged
+    private int batteryTickFields = BatteryStateReceiver.CHANGED_LEVEL | BatteryStateReceiver.CHANGED_PLUGGED;
+    private AdaptiveScheduler scheduler;
+    private DeviceStateMonitor deviceState;
 
     // 存储当前配置的Key
-    private String key1 = "";
-    private String key2 = "";
-    private String keyRing = "";
-    private float dashPhase = 0; // 用于记录虚线的偏移位置
+    private MetricKey key1 = MetricKey.NONE;
+    private MetricKey key2 = MetricKey.NONE;
+    private MetricKey keyRing = MetricKey.NONE;
+    private RingMapping ringMapping = RingMapping.NONE;
+    private MetricHistory.Series sparklineSeries; // null 表示不画曲线
+    private String[] metricLabels; // 按 MetricKey 序号的中文名，首次加载配置时从资源读取
+    private String titleContent = "";
+    private int dashStep = 0; // 用于记录虚线的偏移位置 (帧计数)
+    private final IconRenderer iconRenderer = new IconRenderer();
+    private final PublishGate publishGate = new PublishGate();
+    // 多图标模式的附加图标，槽位按需创建、之后一直复用；前 extraCount 个在用
+    private final ExtraIcon[] extraIcons = new ExtraIcon[IconSpec.MAX_EXTRA];
+    private int extraCount = 0;
+    private final MetricHistory history = new MetricHistory();
+    private MetricLogStore logStore; // 流水线线程上打开，失败时为 null
+    // 提醒规则只在规则文本变化时重新编译
+    private AlertEngine alertEngine = AlertEngine.EMPTY;
+    private String alertRules = "";
+
+    // 各阶段耗时统计；计划中的下一次 tick 时间 (nanoTime)，0 表示本次是提前触发的，不计抖动
+    private final TickStats tickStats = TickStats.get();
+    private final StartupTrace startupTrace = StartupTrace.get();
+    // 本次服务创建的时间；进程是被缓存下来复用的时，这一轮的启动耗时从这里算起
+    private long createdAt;
+    private boolean warmStart;
+    private long intendedTickNanos = 0;
+
+    // 电流高频采样：亮屏可交互时在两个显示 tick 之间按固定频率读取电流
+    private boolean burstRunning;
+    private long nextBurstAt; // uptimeMillis
+
+    // 格式化输出缓冲，每个 tick 复用
+    private final MetricFormatter formatter = new MetricFormatter(Locale.getDefault());
+    private final StringBuilder line1Builder = new StringBuilder();
+    private final StringBuilder line2Builder = new StringBuilder();
+    private final StringBuilder bodyBuilder = new StringBuilder();
+
+    /**
+     * 一帧待发布的全部图标。槽位 0 是主图标，1.. 是附加图标；
+     * 没有变化的图标该槽位为 null，发布时整个跳过。
+     */
+    private static final class Frame {
+        final Notification[] notifications = new Notification[1 + IconSpec.MAX_EXTRA];
+        final int[] buffers = new int[1 + IconSpec.MAX_EXTRA];
+
+        void put(int slot, Notification notification, int buffer) {
+            notifications[slot] = notification;
+            buffers[slot] = buffer;
+        }
+
+        boolean isEmpty() {
+            for (Notification n : notifications) {
+                if (n != null) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 一个附加图标：独立的绘制面、变化检测和格式化缓冲，与主图标共用同一个快照。
+     */
+    private static final class ExtraIcon {
+        final IconRenderer renderer = new IconRenderer();
+        final PublishGate gate = new PublishGate();
+        final StringBuilder line1 = new StringBuilder();
+        final StringBuilder line2 = new StringBuilder();
+        IconSpec spec;
+        String title;
+    }
 
     @Override
     public void onCreate() {
-        DynamicColors.applyToActivitiesIfAvailable(this.getApplication());
         super.onCreate();
+        createdAt = SystemClock.elapsedRealtime();
+        // :monitor 进程仍在缓存中 (例如在设置页停止后再启动)：上一轮的记录作废
+        warmStart = startupTrace.has(StartupTrace.Mark.SERVICE_CREATE);
+        if (warmStart) startupTrace.reset();
+        startupTrace.mark(StartupTrace.Mark.SERVICE_CREATE, createdAt);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         createNotificationChannel();
+        batteryState = new BatteryStateReceiver(this, this::onBatteryStateChanged);
+        networkInterfaces = new NetworkInterfaceMonitor(this);
+        sampler = new MetricSampler(this, batteryState, networkInterfaces);
+        mainHandler = new Handler(Looper.getMainLooper());
+        deviceState = new DeviceStateMonitor(this, this::onDeviceStateChanged);
+        scheduler = new AdaptiveScheduler(SystemClock::elapsedRealtime, deviceState);
+        MonitorConfig.setListener(this::onConfigPublished);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null && intent.getExtras() != null) {
-            settings = intent.getExtras();
+        if (pipelineThread == null) {
+            String reason = intent == null ? "restart"
+                    : ACTION_BOOT_START.equals(intent.getAction()) ? "boot" : "settings";
+            startupTrace.begin(warmStart ? createdAt : Process.getStartElapsedRealtime(), reason);
+            startupTrace.mark(StartupTrace.Mark.START_COMMAND, SystemClock.elapsedRealtime());
+
+            // 先用静态图标占住前台服务：不读配置、不加载字体、不绘制，尽快满足 startForeground 的时限
+            startForeground(NOTIFICATION_ID, createPlaceholderNotification());
+            startupTrace.mark(StartupTrace.Mark.FOREGROUND, SystemClock.elapsedRealtime());
+
+            pipelineThread = new HandlerThread("monitor-pipeline", Process.THREAD_PRIORITY_BACKGROUND);
+            pipelineThread.start();
+            pipelineHandler = new Handler(pipelineThread.getLooper());
+            // 解析配置 (可能要读 SharedPreferences) 和加载字体都在流水线线程上，排在所有回调之前
+            final Bundle extras = intent != null ? intent.getExtras() : null;
+            pipelineHandler.post(() -> {
+                applyConfig(resolveConfig(extras));
+                startupTrace.mark(StartupTrace.Mark.CONFIG, SystemClock.elapsedRealtime());
+            });
+            deviceState.register(pipelineHandler);
+            batteryState.register(pipelineHandler);
+            networkInterfaces.register(pipelineHandler);
+            pipelineHandler.post(updateTask);
+            // 日志文件在第一帧之后再打开，第一次采样不写日志
+            pipelineHandler.post(this::openLogStore);
         } else {
-            // 系统重启服务时
-            settings = loadSettingsFromSharedPreferences();
-        }
-
-        updateInterval = settings.getInt("interval", 3000);
-        loadCustomFont(settings.getInt(Constants.KEY_FONT_CHOICE, 0));
-
-        // 提取 key，默认为空
-        key1 = settings.getString(Constants.KEY_DATA1, "none");
-        key2 = settings.getString(Constants.KEY_DATA2, "none");
-        keyRing = settings.getString("ring_key", "none");
-
-        // 启动前台服务 (占位)
-        Notification initialNotification = createNotification(settings, "...", "Loading...", "...", 0);
-        startForeground(1, initialNotification);
-
-        handler = new Handler(Looper.getMainLooper());
-        updateTask = new Runnable() {
-            @Override
-            public void run() {
-                // 1. 获取所有原始数据
-                Intent batteryIntent = getApplicationContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
-                int temperature = 0;
-                int voltage = 0;
-                int battery_percent = 0;
-                if (batteryIntent != null) {
-                    temperature = batteryIntent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) / 10;
-                    voltage = batteryIntent.getIntExtra(BatteryManager.EXTRA_VOLTAGE, 0);
-                    battery_percent = batteryIntent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
-                }
+            // 服务已在运行：在流水线线程上换配置并立即刷新，不重建循环
+            updateConfig(resolveConfig(intent != null ? intent.getExtras() : null));
+        }
 
-                long currentNow = getBatteryCurrentNow();
-                String memoryUsageMB = getMemoryUsageMB();
-                int memoryUsagePercent = getMemoryUsagePercent();
-                int wattsDivisor = settings.getInt(Constants.KEY_DIVISOR, 1000000000);
+        return START_STICKY;
+    }
 
-                // 修正：存储计算放到主循环，注意异常捕获已在方法内
-                int storageUsagePercent = getStorageUsagePercent();
-                double storageUsageFree = getStorageUsage()[1]/1024.0/1024.0/1024.0;
+    private MonitorConfig resolveConfig(@Nullable Bundle extras) {
+        if (extras != null) {
+            return MonitorConfig.fromBundle(extras);
+        } else if (MonitorConfig.current() != null) {
+            // 设置页已经把配置交给本进程，只是启动服务
+            return MonitorConfig.current();
+        } else {
+            // 系统重启服务或开机自启时
+            return MonitorConfig.fromPreferences(getSharedPreferences(Constants.PREFS_NAME, MODE_PRIVATE));
+        }
+    }
 
-                updateNetworkSpeed();
+    // Binder 线程上回调：设置页通过 ControlProvider 发布了新配置
+    private void onConfigPublished(MonitorConfig newConfig) {
+        mainHandler.post(() -> {
+            // 服务还没跑起来时由 onStartCommand 读取 MonitorConfig.current()
+            if (pipelineThread != null) {
+                updateConfig(newConfig);
+            }
+        });
+    }
 
-                // 2. 准备显示内容
-                // 图标上的文字（Short）
-                String content1 = getDataValue(key1, temperature, currentNow, voltage, battery_percent, memoryUsageMB, memoryUsagePercent, wattsDivisor, downloadSpeed, uploadSpeed, storageUsagePercent,storageUsageFree);
-                String content2 = getDataValue(key2, temperature, currentNow, voltage, battery_percent, memoryUsageMB, memoryUsagePercent, wattsDivisor, downloadSpeed, uploadSpeed, storageUsagePercent,storageUsageFree);
+    // 服务已在运行：在流水线线程上换配置并立即刷新，不重建循环、不清空采样状态
+    private void updateConfig(MonitorConfig newConfig) {
+        pipelineHandler.post(() -> {
+            applyConfig(newConfig);
+            runTickNow();
+        });
+    }
 
-                // 拼接图标文字
-                String iconContent = content1;
-                if (!"none".equals(key2)) {
-                    iconContent += "\t" + content2; // \t 用于绘图时分割行
-                }
+    private void applyConfig(MonitorConfig newConfig) {
+        config = newConfig;
+        scheduler.setIntervals(config.intervalMs,
+                AdaptiveScheduler.DEFAULT_AMBIENT_INTERVAL, AdaptiveScheduler.DEFAULT_HIDDEN_INTERVAL);
+        if (config.fontChoice != fontChoice) {
+            fontChoice = config.fontChoice;
+            loadCustomFont(fontChoice);
+        }
 
-                // 标题文字（Notification Title）
-                String label1 = getLabelFromKey(key1);
-                String label2 = getLabelFromKey(key2);
+        key1 = config.data1;
+        key2 = config.data2;
+        keyRing = config.ring;
+        ringMapping = keyRing.ring;
+        sparklineSeries = config.sparkline.series;
+        titleContent = buildTitleString();
+        applyExtraIcons(config.extraIcons);
+        MetricKey[] visible = visibleKeys();
+        sampler.setVisibleKeys(visible);
+        int fields = BatteryStateReceiver.CHANGED_LEVEL | BatteryStateReceiver.CHANGED_PLUGGED;
+        for (MetricKey key : visible) fields |= batteryFieldsShownBy(key);
+        batteryTickFields = fields;
+        sampler.setHysteresis(config.hysteresisDigits, config.divisor);
+        sampler.setNetworkSelection(config.netScope, config.netInterface);
+        sampler.setThermalZones(config.thermalZones);
+        applyAlertRules(config.alertRules);
+        alertEngine.setCooldown(config.alertCooldownSec * 1000L);
+        tickStats.setEnabled(config.diagnostics);
+        publishGate.invalidate();
+    }
 
-                String titleContent = "数: " + label1;
-                if (!"none".equals(key2)) {
-                    titleContent += " | " + label2;
-                }
-                if (!"none".equals(keyRing)) {
-                    String ringLabel = getLabelFromKey(keyRing);
-                    titleContent += " 环: " + ringLabel;
-                }
+    private void applyAlertRules(String rules) {
+        if (rules.equals(alertRules)) return;
+        // 撤下旧规则的提醒，新规则的序号与它们无关
+        final int oldCount = alertEngine.getRuleCount();
+        mainHandler.post(() -> cancelAlerts(oldCount));
+        alertRules = rules;
+        alertEngine = AlertEngine.compile(rules);
+        for (String invalid : alertEngine.getInvalidRules()) {
+            Log.w("MonitorService", "Ignoring alert rule: " + invalid);
+        }
+    }
 
-                // 全部信息文字（Notification Expanded Body）
-                String allInfoContent = buildAllInfoString(temperature, currentNow, voltage, battery_percent, memoryUsageMB, memoryUsagePercent, wattsDivisor, downloadSpeed, uploadSpeed, storageUsagePercent,storageUsageFree);
-
-                // 3. 计算圆环进度
-                int progressPercent = -1; // -1 代表不画
-                switch (keyRing) {
-                    case "battery_percent":
-                        progressPercent = battery_percent;
-                        break;
-                    case "memory_percent":
-                        progressPercent = memoryUsagePercent;
-                        break;
-                    case "storage_percent":
-                        progressPercent = storageUsagePercent;
-                        break;
-                    case "temperature_64":
-                        progressPercent = temperature * 25 / 16;
-                        break;
-                    case "temperature_50":
-                        progressPercent = temperature * 2;
-                        break;
-                    case "temperature_40":
-                        progressPercent = temperature * 5 / 2;
-                        break;
-                    default:
-                        progressPercent = -1;
-                        break;
-                }
+    private void applyExtraIcons(IconSpec[] specs) {
+        // 不再使用的附加图标撤下通知；排在已提交的发布之后执行，不会被旧帧重新发出
+        for (int i = specs.length; i < extraCount; i++) {
+            final int id = EXTRA_NOTIFICATION_ID + i;
+            mainHandler.post(() -> notificationManager.cancel(id));
+        }
+        extraCount = specs.length;
+        for (int i = 0; i < extraCount; i++) {
+            if (extraIcons[i] == null) extraIcons[i] = new ExtraIcon();
+            ExtraIcon icon = extraIcons[i];
+            icon.spec = specs[i];
+            icon.title = "图标 " + (i + 2) + " " + buildTitle(icon.spec.line1, icon.spec.line2, icon.spec.ring, null);
+            icon.gate.invalidate();
+        }
+    }
 
-                dashPhase -= -settings.getInt(Constants.KEY_DASH_LENGTH); // 每次偏移线段长度，负数是顺时针流动，正数是逆时针
-                if (dashPhase < -1000) dashPhase = 0; // 防止数值过大溢出
+    // 所有图标上出现的 key，用于收紧对应数据源的采样周期
+    private MetricKey[] visibleKeys() {
+        MetricKey[] keys = new MetricKey[4 + 3 * extraCount];
+        keys[0] = key1;
+        keys[1] = key2;
+        keys[2] = keyRing;
+        keys[3] = config.sparkline;
+        for (int i = 0; i < extraCount; i++) {
+            IconSpec spec = extraIcons[i].spec;
+            keys[4 + 3 * i] = spec.line1;
+            keys[5 + 3 * i] = spec.line2;
+            keys[6 + 3 * i] = spec.ring;
+        }
+        return keys;
+    }
 
-                // 4. 更新通知
-                Notification updatedNotification = createNotification(settings, iconContent, titleContent, allInfoContent, progressPercent);
-                notificationManager.notify(1, updatedNotification);
+    // 流水线线程上的一次 tick：采样 -> 格式化 -> 变化检测 -> 绘制 -> 交给发布阶段
+    private final Runnable updateTask = new Runnable() {
+        @Override
+        public void run() {
+            final long start = tickStats.begin();
+            if (start != 0 && intendedTickNanos != 0) {
+                tickStats.record(TickStats.Stage.JITTER, Math.max(0, start - intendedTickNanos));
+            }
+            AdaptiveScheduler.Mode mode = scheduler.onTick();
+            updateCurrentBurst(mode);
+            long now = SystemClock.elapsedRealtime();
+            // 1. 采样：各数据源按自己的周期采样，未到期的沿用缓存值
+            MetricSnapshot snapshot = sampler.sample(now, scheduler.intervalFor(mode));
+            int wattsDivisor = config.divisor;
+            logSample(snapshot, wattsDivisor);
+            startupTrace.mark(StartupTrace.Mark.FIRST_SAMPLE, now);
+            // 提醒不受显示状态影响，熄屏时也按采样结果判断
+            if (alertEngine.evaluate(snapshot, wattsDivisor, now) > 0) {
+                postAlerts(alertEngine);
+            }
+            long t = tickStats.mark(TickStats.Stage.SAMPLE, start);
+            if (mode == AdaptiveScheduler.Mode.HIDDEN) {
+                // 没人看得到状态栏：只低频采样写日志，不格式化、不绘制、不发布
+                scheduleNextTick(start);
+                return;
+            }
+            history.record(snapshot, wattsDivisor);
+
+            // 2. 准备显示内容，写入复用的 StringBuilder
+            // 图标上的文字（Short），第二行为 none 时图标只画一行
+            line1Builder.setLength(0);
+            formatter.appendValue(line1Builder, key1, snapshot, wattsDivisor);
+            line2Builder.setLength(0);
+            formatter.appendValue(line2Builder, key2, snapshot, wattsDivisor);
+            // 曲线模式下第二行的位置留给曲线
+            CharSequence content2 = key2 == MetricKey.NONE || sparklineSeries != null ? null : line2Builder;
+
+            // 全部信息文字（Notification Expanded Body）
+            bodyBuilder.setLength(0);
+            formatter.appendAllInfo(bodyBuilder, snapshot, wattsDivisor);
+
+            // 3. 计算圆环进度
+            int progressPercent = ringMapping.progress(snapshot); // -1 代表不画
+
+            // 每帧偏移一个线段长度，相位在绘制时按虚线周期取模，不会溢出
+            dashStep++;
+
+            int sparkline = iconRenderer.setSparkline(
+                    sparklineSeries != null ? history.get(sparklineSeries) : null);
+
+            // 4. 变化检测：没有可见变化时不重绘、不 notify
+            boolean publish = publishGate.shouldPublish(line1Builder, content2, titleContent, bodyBuilder,
+                    progressPercent, iconRenderer.dashIndex(dashStep, progressPercent), sparkline);
+            // 附加图标使用同一个快照，各自做变化检测；下拉详情只放在主图标里
+            int extraChanged = 0;
+            for (int i = 0; i < extraCount; i++) {
+                if (formatExtraIcon(extraIcons[i], snapshot, wattsDivisor)) extraChanged |= 1 << i;
+            }
+            t = tickStats.mark(TickStats.Stage.FORMAT, t);
+
+            if (publish || extraChanged != 0) {
+                // 一次绘制阶段画完所有变化了的图标，没变的图标不重绘也不 notify
+                Frame frame = new Frame();
+                if (publish) {
+                    int buffer = renderIcon(publishGate.getLine1(), publishGate.getLine2(), progressPercent);
+                    if (buffer != IconRenderer.NO_BUFFER) {
+                        frame.put(0, createNotification(iconRenderer.getBitmap(buffer),
+                                publishGate.getTitle(), publishGate.getBody()), buffer);
+                    } else {
+                        // 缓冲区全被占用 (不应发生)：跳过本帧，下个 tick 重画
+                        Log.w("MonitorService", "No free icon buffer, skipping frame");
+                        publishGate.invalidate();
+                    }
+                }
+                for (int i = 0; i < extraCount; i++) {
+                    if ((extraChanged & (1 << i)) == 0) continue;
+                    ExtraIcon icon = extraIcons[i];
+                    int progress = icon.spec.ring.ring.progress(snapshot);
+                    int buffer = renderExtraIcon(icon, progress);
+                    if (buffer != IconRenderer.NO_BUFFER) {
+                        frame.put(1 + i, createNotification(icon.renderer.getBitmap(buffer), icon.title, null), buffer);
+                    } else {
+                        icon.gate.invalidate();
+                    }
+                }
+                tickStats.mark(TickStats.Stage.RENDER, t);
 
-                handler.postDelayed(this, updateInterval);
+                // 5. 整批交给发布阶段
+                offerFrame(frame);
             }
-        };
 
-        handler.post(updateTask);
+            scheduleNextTick(start);
+        }
+    };
+
+    private final Runnable burstTask = new Runnable() {
+        @Override
+        public void run() {
+            if (config.currentBurstHz <= 0) return;
+            sampler.sampleCurrentBurst();
+            // 按绝对时间排期，Handler 的延迟不会累积成频率漂移；落后太多时不补采
+            long interval = 1000 / config.currentBurstHz;
+            long now = SystemClock.uptimeMillis();
+            nextBurstAt = Math.max(nextBurstAt + interval, now + 1);
+            pipelineHandler.postAtTime(this, nextBurstAt);
+        }
+    };
+
+    // 只在 INTERACTIVE 模式下高频采样；熄屏或关闭后丢弃尚未显示的样本
+    private void updateCurrentBurst(AdaptiveScheduler.Mode mode) {
+        boolean wanted = config.currentBurstHz > 0 && mode == AdaptiveScheduler.Mode.INTERACTIVE;
+        if (wanted == burstRunning) return;
+        burstRunning = wanted;
+        if (wanted) {
+            nextBurstAt = SystemClock.uptimeMillis() + 1000 / config.currentBurstHz;
+            pipelineHandler.postAtTime(burstTask, nextBurstAt);
+        } else {
+            pipelineHandler.removeCallbacks(burstTask);
+            sampler.resetCurrentBurst();
+        }
+    }
 
-        return START_STICKY;
+    /**
+     * 格式化一个附加图标并做变化检测。
+     *
+     * @return 是否需要重绘发布
+     */
+    private boolean formatExtraIcon(ExtraIcon icon, MetricSnapshot snapshot, int wattsDivisor) {
+        icon.line1.setLength(0);
+        formatter.appendValue(icon.line1, icon.spec.line1, snapshot, wattsDivisor);
+        icon.line2.setLength(0);
+        formatter.appendValue(icon.line2, icon.spec.line2, snapshot, wattsDivisor);
+        int progress = icon.spec.ring.ring.progress(snapshot);
+        return icon.gate.shouldPublish(icon.line1, icon.spec.line2 == MetricKey.NONE ? null : icon.line2,
+                icon.title, null, progress, icon.renderer.dashIndex(dashStep, progress), 0);
     }
 
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        if (handler != null && updateTask != null) {
-            handler.removeCallbacks(updateTask);
+    /**
+     * 把一批图标交给发布阶段。上一批若还没发出去，它里面本批没有更新的图标并入本批，
+     * 两批都有的图标丢弃旧的那一帧——某个图标的变化不会因为整批被顶掉而丢失。
+     */
+    private void offerFrame(Frame frame) {
+        Frame pending = frameSlot.poll();
+        if (pending != null) {
+            for (int slot = 0; slot < frame.notifications.length; slot++) {
+                if (pending.notifications[slot] == null) continue;
+                if (frame.notifications[slot] == null) {
+                    frame.put(slot, pending.notifications[slot], pending.buffers[slot]);
+                } else {
+                    rendererFor(slot).release(pending.buffers[slot]);
+                    droppedFrames++;
+                }
+            }
         }
-        notificationManager.cancel(1);
+        // 流水线线程是唯一的生产者，poll 之后槽一定是空的
+        frameSlot.offer(frame);
+        // 发布任务可能已在 poll 与 offer 之间空跑过一次，总是再排一次；空槽时它什么也不做
+        mainHandler.post(publishTask);
     }
 
-    @Nullable
-    @Override
-    public IBinder onBind(Intent intent) {
-        return null;
+    private IconRenderer rendererFor(int slot) {
+        return slot == 0 ? iconRenderer : extraIcons[slot - 1].renderer;
     }
 
-    // --- 数据获取与处理 ---
-
-    // 构建所有信息的字符串，用于下拉显示
-    @SuppressLint("DefaultLocale")
-    private String buildAllInfoString(int temp, long current, int voltage, int battery_percent, String memMB, int memPercent, int wDivisor, long downSpeed, long upSpeed, int storagePercent, double storageUsageFree) {
-        double watts = (Math.abs(current) * voltage) / (double) wDivisor;
+    // 排下一次 tick，并记录本次 tick 的总耗时和下一次的计划时间 (用于计算抖动)
+    private void scheduleNextTick(long start) {
+        long delay = scheduler.delayUntilNextTick();
+        pipelineHandler.postDelayed(updateTask, delay);
+        long end = tickStats.mark(TickStats.Stage.TICK, start);
+        intendedTickNanos = end != 0 ? end + delay * 1_000_000L : 0;
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("电量: ").append(battery_percent).append("%  ");
-        sb.append("温度: ").append(temp).append("°C\n");
+    // 提前触发一次 tick (换配置、亮屏、电池广播)，这次的开始时间不算抖动
+    private void runTickNow() {
+        pipelineHandler.removeCallbacks(updateTask);
+        intendedTickNanos = 0;
+        updateTask.run();
+    }
 
-        sb.append("功率: ").append(String.format("%.2fW", watts)).append("  ");
-        sb.append("电压: ").append(String.format("%.2fV", voltage / 1000f)).append("  ");
-        sb.append("电流: ").append(current).append("\n");
+    // --- 指标日志 (流水线线程) ---
 
-        sb.append("内存: ").append(memMB).append(" (").append(memPercent).append("%)\n");
-        sb.append("存储: ").append(storagePercent).append("% 已用 ").append(String.format("%.2f",storageUsageFree)).append("GiB 空闲\n");
+    private void openLogStore() {
+        try {
+            logStore = MetricLogStore.acquire(new File(getFilesDir(), MetricLogStore.DIR_NAME));
+        } catch (IOException e) {
+            Log.e("MonitorService", "Can't open metric log", e);
+        }
+    }
 
-        sb.append("网速: ↓").append(formatSpeed(downSpeed)).append("  ↑").append(formatSpeed(upSpeed));
+    private void logSample(MetricSnapshot snapshot, int wattsDivisor) {
+        if (logStore == null) return;
+        try {
+            logStore.append(System.currentTimeMillis(), snapshot, wattsDivisor);
+        } catch (IOException e) {
+            // 写入失败 (例如存储已满) 就停止记录，不影响状态栏显示
+            Log.e("MonitorService", "Metric log write failed", e);
+            closeLogStore();
+        }
+    }
 
-        return sb.toString();
+    private void closeLogStore() {
+        if (logStore == null) return;
+        try {
+            // 导出仍在读取时由最后一个使用者关闭
+            logStore.flush();
+            MetricLogStore.release(logStore);
+        } catch (IOException e) {
+            Log.e("MonitorService", "Metric log close failed", e);
+        }
+        logStore = null;
     }
 
-    // 格式化单个数据，用于图标绘制
-    @SuppressLint("DefaultLocale")
-    private String getDataValue(String key, int temp, long current, int voltage, int battery_percent, String memMB, int memPercent, int wDivisor, long downSpeed, long upSpeed, int storagePercent, double storageUsageFree) {
-        switch (key) {
-            case "temperature": return temp + "°";
-            case "current": return Math.abs(current) + ""; // 图标上通常不显示负号以节省空间
-            case "voltage": return String.format("%.1f", (voltage / 1000f));
-            case "battery_percent": return battery_percent + "";
-            case "memory_mb": return memMB;
-            case "memory_percent": return memPercent + "";
-            case "storage_percent": return storagePercent + "";
-            case "watt":
-                double watts = (Math.abs(current) * voltage) / (double) wDivisor;
-                return String.format("%.1f", watts);
-            case "download_speed": return formatSpeedShort(downSpeed) + "";
-            case "upload_speed": return formatSpeedShort(upSpeed) + "";
-            case "storage_free": return String.format("%.1f",storageUsageFree);
-            default: return "";
-        }
-    }
-
-    // 简短的网速格式化 (用于图标)
-    @SuppressLint("DefaultLocale")
-    private String formatSpeedShort(long bytesPerSec) {
-        if (bytesPerSec >= 1024 * 1024) {
-            return String.format("%.1fM", bytesPerSec / 1024f / 1024f);
-        } else {
-            return (bytesPerSec / 1024) + "K";
+    // 流水线线程上回调：亮屏等“变得更可见”的切换立即补一帧，其余沿用已排好的 tick
+    private void onDeviceStateChanged() {
+        if (scheduler.onStateChanged()) {
+            runTickNow();
         }
     }
 
-    // 完整的网速格式化 (用于文本)
-    @SuppressLint("DefaultLocale")
-    private String formatSpeed(long bytesPerSec) {
-        if (bytesPerSec >= 1024 * 1024) {
-            return String.format("%.2f MB/s", bytesPerSec / 1024f / 1024f);
-        } else {
-            return (bytesPerSec / 1024) + " KB/s";
+    /**
+     * 流水线线程上回调。新值已缓存在 BatteryStateReceiver 里，下一个 tick 自然会取到；
+     * 只有电量、充电状态或图标上正显示的字段变了才立即刷新。
+     * 温度、电压每隔几秒就会抖动，每次都插一个 tick 会打乱提醒规则 count N in Ws 的计数和虚线动画的节奏。
+     */
+    private void onBatteryStateChanged(int changed) {
+        if ((changed & batteryTickFields) != 0 && scheduler.currentMode() != AdaptiveScheduler.Mode.HIDDEN) {
+            runTickNow();
         }
     }
 
-    // --- 绘图逻辑 ---
+    // 显示这个 key 时，哪些电池广播字段会直接改变图标
+    private static int batteryFieldsShownBy(MetricKey key) {
+        switch (key) {
+            case TEMPERATURE:
+            case TEMPERATURE_64:
+            case TEMPERATURE_50:
+            case TEMPERATURE_40:
+                return BatteryStateReceiver.CHANGED_TEMPERATURE;
+            case VOLTAGE:
+            case WATT:
+            case WATT_PEAK:
+                return BatteryStateReceiver.CHANGED_VOLTAGE;
+            default:
+                return 0;
+        }
+    }
 
-    private Notification createNotification(Bundle settings, String iconText, String titleText, String bigText, int progress) {
-        int bitmapSize = settings.getInt(Constants.KEY_BITMAP_SIZE);
-
-        // 创建 Bitmap
-        Bitmap bitmap = Bitmap.createBitmap(bitmapSize, bitmapSize, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        canvas.drawColor(Color.TRANSPARENT);
-
-        // 绘制方形圆环
-        Paint strokePaint = new Paint();
-        strokePaint.setAntiAlias(true);
-        strokePaint.setStyle(Paint.Style.STROKE);
-
-        float strokeWidth = bitmapSize / 10f;
-        strokePaint.setStrokeWidth(strokeWidth);
-        strokePaint.setStrokeCap(Paint.Cap.BUTT);
-
-        // 稍微内缩一点防止边缘被切
-        // float inset = strokeWidth / 2;
-        // android.graphics.RectF rect = new RectF(inset, inset, bitmapSize - inset, bitmapSize - inset);
-        // 如果想要贴边，可以用 0，但可能会有锯齿
-        android.graphics.RectF rect = new RectF(0, 0, bitmapSize, bitmapSize);
-        boolean isDashed = settings.getBoolean(Constants.KEY_RING_DASHED, false);
-        int dashLength = settings.getInt(Constants.KEY_DASH_LENGTH, 6);
-        int dashGap = settings.getInt(Constants.KEY_DASH_GAP, 2);
-
-
-        if (progress >= 0) {
-            if (progress > 100) progress = 100;
-            strokePaint.setColor(Color.WHITE); // 纯白，交给系统变色
-
-            // 根据开关应用虚线效果
-            if (isDashed) {
-                //float dashLength = bitmapSize / 16f;
-                //float dashGap = bitmapSize / 4f;
-                //strokePaint.setPathEffect(new android.graphics.DashPathEffect(new float[]{dashLength, dashGap}, 0));
-
-                // 改用 BUTT 以获得精准的自定义控制
-                strokePaint.setStrokeCap(Paint.Cap.BUTT);
-
-                // 这里的第二个参数就是相位（动画的核心）
-                strokePaint.setPathEffect(new android.graphics.DashPathEffect(
-                        new float[]{(float) dashLength, (float) dashGap}, dashPhase));
-            } else {
-                strokePaint.setPathEffect(null); // 确保实线模式下没有残余效果
+    // 发布阶段：取走最新一帧并 notify，完成后归还图标缓冲区
+    private final Runnable publishTask = new Runnable() {
+        @Override
+        public void run() {
+            Frame frame = frameSlot.poll();
+            if (frame == null || frame.isEmpty()) return;
+            long start = tickStats.begin();
+            for (int slot = 0; slot < frame.notifications.length; slot++) {
+                Notification notification = frame.notifications[slot];
+                if (notification == null) continue;
+                notificationManager.notify(slot == 0 ? NOTIFICATION_ID : EXTRA_NOTIFICATION_ID + slot - 1,
+                        notification);
+                rendererFor(slot).release(frame.buffers[slot]);
             }
-
-            android.graphics.Path path = new Path();
-            path.addRect(rect, Path.Direction.CW);
-
-            PathMeasure measure = new PathMeasure(path, false);
-            float length = measure.getLength();
-
-            Path partialPath = new Path();
-            measure.getSegment(0, length * (progress / 100f), partialPath, true);
-
-            canvas.drawPath(partialPath, strokePaint);
+            // 每一轮只有第一次 mark 返回 true
+            if (frame.notifications[0] != null
+                    && startupTrace.mark(StartupTrace.Mark.FIRST_ICON, SystemClock.elapsedRealtime())) {
+                Log.i("MonitorService", "time to first icon: "
+                        + startupTrace.elapsed(StartupTrace.Mark.FIRST_ICON) + " ms");
+            }
+            tickStats.mark(TickStats.Stage.NOTIFY, start);
         }
+    };
 
-        // 绘制文字
-        String[] lines = iconText.split("\t");
-        int fontSize = settings.getInt(Constants.KEY_FONT_SIZE);
-        int offset = settings.getInt(Constants.KEY_OFFSET);
-        int paddingX = settings.getInt(Constants.KEY_PADDING_X);
-        int paddingY = settings.getInt(Constants.KEY_PADDING_Y);
-
-        Paint textPaint = new Paint();
-        textPaint.setColor(Color.WHITE);
-        textPaint.setTextSize(fontSize);
-        textPaint.setTypeface(customTypeface);
-        textPaint.setTextAlign(Paint.Align.LEFT);
-
-        float centerY = (bitmap.getHeight() / 2f) - (textPaint.descent() + textPaint.ascent()) / 2;
-        if (lines.length > 0) {
-            canvas.drawText(lines[0], paddingX, centerY - offset + paddingY, textPaint);
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        MonitorConfig.setListener(null);
+        if (pipelineThread != null) {
+            // 先停掉流水线并等它跑完当前 tick，之后不会再有新帧
+            deviceState.unregister();
+            batteryState.unregister();
+            networkInterfaces.unregister();
+            pipelineHandler.removeCallbacksAndMessages(null);
+            // 文件通道只在流水线线程上使用，也在那里关闭
+            pipelineHandler.post(sampler::close);
+            pipelineHandler.post(this::closeLogStore);
+            pipelineThread.quitSafely();
+            try {
+                pipelineThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pipelineThread = null;
         }
-        if (lines.length > 1) {
-            canvas.drawText(lines[1], paddingX, centerY + offset + paddingY, textPaint);
+        mainHandler.removeCallbacks(publishTask);
+        Frame pending = frameSlot.poll();
+        if (pending != null) {
+            for (int slot = 0; slot < pending.notifications.length; slot++) {
+                if (pending.notifications[slot] != null) rendererFor(slot).release(pending.buffers[slot]);
+            }
         }
-
-        IconCompat icon = IconCompat.createWithBitmap(bitmap);
-
-        // 构建 Notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(icon)
-                .setContentTitle(titleText)  // 显示选中的两行数据
-                .setContentText("展开查看详情") // 收起时的提示
-                // 使用 BigTextStyle 显示所有信息
-                .setStyle(new NotificationCompat.BigTextStyle().bigText(bigText))
-                .setOnlyAlertOnce(true)
-                .setOngoing(true)
-                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE);
-
-        return builder.build();
+        notificationManager.cancel(NOTIFICATION_ID);
+        for (int i = 0; i < IconSpec.MAX_EXTRA; i++) {
+            notificationManager.cancel(EXTRA_NOTIFICATION_ID + i);
+        }
+        // 提醒通知不是常驻的，留给用户自己清除
     }
 
-    // --- 硬件数据获取 ---
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
 
-    private long getBatteryCurrentNow() {
-        BatteryManager batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
-        if (batteryManager != null) {
-            return batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+    // adb shell dumpsys activity service com.yume.statusbarmonitor/.MonitorService [reset-latency]
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("frames published: " + publishGate.getPublishedCount());
+        writer.println("frames suppressed: " + publishGate.getSuppressedCount());
+        writer.println("frames dropped: " + droppedFrames);
+        writer.println("extra icons: " + extraCount);
+        writer.println("alert rules: " + alertEngine.getRuleCount()
+                + " (invalid " + alertEngine.getInvalidRules().size() + ")");
+        writer.println();
+        writer.println("sources (" + scheduler.currentMode() + "):");
+        StringBuilder sources = new StringBuilder();
+        sampler.appendSources(sources, SystemClock.elapsedRealtime(),
+                scheduler.intervalFor(scheduler.currentMode()));
+        writer.print(sources);
+        writer.println();
+        writer.println("thermal zones (* = tracked, max " + ThermalZones.MAX_SELECTED + "):");
+        StringBuilder zones = new StringBuilder();
+        sampler.appendThermalZones(zones);
+        writer.print(zones);
+        writer.println();
+        StringBuilder startup = new StringBuilder();
+        startupTrace.appendSummary(startup);
+        writer.print(startup);
+        writer.println();
+        writer.println("tick latency (ms):");
+        StringBuilder summary = new StringBuilder();
+        tickStats.appendSummary(summary);
+        writer.print(summary);
+        if (args != null && args.length > 0 && "reset-latency".equals(args[0])) {
+            tickStats.reset();
+            writer.println("latency histograms reset");
         }
-        return 0;
     }
 
-    private String getMemoryUsageMB() {
-        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
-        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
-        activityManager.getMemoryInfo(memoryInfo);
-        long totalMemory = memoryInfo.totalMem / (1024 * 1024);
-        long availableMemory = memoryInfo.availMem / (1024 * 1024);
-        long usedMemory = totalMemory - availableMemory;
-        return usedMemory + "M"; // 简化显示
-    }
+    // --- 数据获取与处理 ---
 
-    private int getMemoryUsagePercent() {
-        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
-        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
-        activityManager.getMemoryInfo(memoryInfo);
-        long totalMemory = memoryInfo.totalMem;
-        long availableMemory = memoryInfo.availMem;
-        long usedMemory = totalMemory - availableMemory;
-        // 避免除以0
-        if (totalMemory == 0) return 0;
-        return (int) (usedMemory * 100 / totalMemory);
+    // 标题文字：选中数据的中文名，只在配置变化时构建
+    private String buildTitleString() {
+        return buildTitle(key1, key2, keyRing, sparklineSeries != null ? config.sparkline : null);
     }
 
-    private int getStorageUsagePercent() {
-        long[] usage = getStorageUsage();
-        long total = usage[0];
-        long used = usage[2];
-
-        if (total > 0) {
-            return (int) ((used * 100) / total); // 修正：先乘100防止整数除法为0
-        } else {
-            return 0;
+    private String buildTitle(MetricKey line1, MetricKey line2, MetricKey ring, MetricKey sparkline) {
+        String title = "数: " + getLabel(line1);
+        if (line2 != MetricKey.NONE) {
+            title += " | " + getLabel(line2);
         }
+        if (ring != MetricKey.NONE) {
+            title += " 环: " + getLabel(ring);
+        }
+        if (sparkline != null) {
+            title += " 线: " + getLabel(sparkline);
+        }
+        return title;
     }
 
-    private long[] getStorageUsage() {
-        long[] usage = new long[]{0L, 0L, 0L};
-        try {
-            java.io.File path = android.os.Environment.getDataDirectory();
-            StatFs stat = new StatFs(path.getPath());
-            long blockSize = stat.getBlockSizeLong();
-            long totalBlocks = stat.getBlockCountLong();
-            long availableBlocks = stat.getAvailableBlocksLong();
-
-            long total = totalBlocks * blockSize;
-
-            double realTotal = total / (1024.0 * 1024.0 * 1024.0);
+    // --- 绘图逻辑 ---
 
-            // 常见手机存储档位 (单位: GiB)
-            int[] standardCapacities = {8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192};
+    // 绘制图标，返回占用的缓冲区序号。绘制面只在尺寸/字体/虚线设置变化时重建，其余帧完全复用
+    private int renderIcon(String line1, String line2, int progress) {
+        iconRenderer.configure(config.bitmapSize, customTypeface, config.fontSize,
+                config.ringDashed, config.dashLength, config.dashGap);
+        return iconRenderer.render(line1, line2, progress, dashStep,
+                config.offset, config.paddingX, config.paddingY);
+    }
 
+    // 附加图标的绘制面与主图标共用尺寸、字体和虚线设置
+    private int renderExtraIcon(ExtraIcon icon, int progress) {
+        icon.renderer.configure(config.bitmapSize, customTypeface, config.fontSize,
+                config.ringDashed, config.dashLength, config.dashGap);
+        icon.renderer.setSparkline(null);
+        return icon.renderer.render(icon.gate.getLine1(), icon.gate.getLine2(), progress, dashStep,
+                config.offset, config.paddingX, config.paddingY);
+    }
 
-            for (int cap : standardCapacities) {
-                // 当读取容量比标准档位略小时假定真实容量为该档位
-                if (realTotal <= cap) {
-                    total = (long) cap * 1000 * 1000 * 1000;
-                    break;
-                }
-            }
+    /**
+     * @param bigText 下拉详情，null 表示附加图标，只显示标题
+     */
+    private Notification createNotification(Bitmap bitmap, String titleText, String bigText) {
+        IconCompat icon = IconCompat.createWithBitmap(bitmap);
 
-            long free = availableBlocks * blockSize;
-            long used = total - free;
+        // 构建 Notification
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(icon)
+                .setContentTitle(titleText)  // 显示选中的两行数据
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE);
 
-            usage[0] = total;
-            usage[1] = free;
-            usage[2] = used;
-        } catch (Exception e) {
-            Log.e("MonitorService", "getStorageUsage error", e);
+        if (bigText != null) {
+            builder.setContentText("展开查看详情") // 收起时的提示
+                    // 使用 BigTextStyle 显示所有信息
+                    .setStyle(new NotificationCompat.BigTextStyle().bigText(bigText));
         }
-        return usage;
+        return builder.build();
     }
 
-    private void updateNetworkSpeed() {
-        long now = System.currentTimeMillis();
-        long rxBytes = android.net.TrafficStats.getTotalRxBytes();
-        long txBytes = android.net.TrafficStats.getTotalTxBytes();
-
-        if (lastTime != 0) {
-            long timeDelta = now - lastTime;
-            if (timeDelta > 0) {
-                long rxBytesDelta = rxBytes - lastRxBytes;
-                long txBytesDelta = txBytes - lastTxBytes;
-                // 计算每秒字节数
-                downloadSpeed = (rxBytesDelta * 1000 / timeDelta);
-                uploadSpeed = (txBytesDelta * 1000 / timeDelta);
-            }
-        }
-        lastRxBytes = rxBytes;
-        lastTxBytes = txBytes;
-        lastTime = now;
+    // 启动时的占位通知：应用自带的图标，不依赖配置和字体
+    private Notification createPlaceholderNotification() {
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle("Loading...")
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE)
+                .build();
     }
 
     private void createNotificationChannel() {
@@ -464,78 +718,42 @@ public class MonitorService extends Service {
         channel.setSound(null, null);
         channel.setShowBadge(false);
         notificationManager.createNotificationChannel(channel);
+
+        // 提醒：横幅弹出，用户可以在系统设置里单独调整
+        NotificationChannel alerts = new NotificationChannel(
+                ALERT_CHANNEL_ID, "阈值提醒", NotificationManager.IMPORTANCE_HIGH);
+        notificationManager.createNotificationChannel(alerts);
     }
 
-    // --- 配置加载 (Service重启时用) ---
-
-    private Bundle loadSettingsFromSharedPreferences() {
-        SharedPreferences sharedPrefs = getSharedPreferences(Constants.PREFS_NAME, MODE_PRIVATE);
-        Bundle loadedSettings = new Bundle();
-
-        // 加载字符串配置
-        loadedSettings.putString(Constants.KEY_FONT_SIZE, sharedPrefs.getString(Constants.KEY_FONT_SIZE, "32"));
-        loadedSettings.putString(Constants.KEY_OFFSET, sharedPrefs.getString(Constants.KEY_OFFSET, "15"));
-        loadedSettings.putString(Constants.KEY_BITMAP_SIZE, sharedPrefs.getString(Constants.KEY_BITMAP_SIZE, "64"));
-        loadedSettings.putString(Constants.KEY_PADDING_X, sharedPrefs.getString(Constants.KEY_PADDING_X, "-2"));
-        loadedSettings.putString(Constants.KEY_PADDING_Y, sharedPrefs.getString(Constants.KEY_PADDING_Y, "0"));
-        loadedSettings.putString(Constants.KEY_DIVISOR, sharedPrefs.getString(Constants.KEY_DIVISOR, "1000000000"));
-        loadedSettings.putBoolean(Constants.KEY_RING_DASHED, sharedPrefs.getBoolean(Constants.KEY_RING_DASHED, false));
-        loadedSettings.putString(Constants.KEY_DASH_LENGTH, sharedPrefs.getString(Constants.KEY_DASH_LENGTH,"6"));
-        loadedSettings.putString(Constants.KEY_DASH_GAP, sharedPrefs.getString(Constants.KEY_DASH_GAP,"2"));
-
-        // 加载 Spinner 索引并转换为 Key
-        int idx1 = sharedPrefs.getInt("pref_idx_data1_v2", 1);
-        int idx2 = sharedPrefs.getInt("pref_idx_data2_v2", 0);
-        int idxRing = sharedPrefs.getInt("pref_idx_ring_v2", 2);
-
-        String[] dataValues = getResources().getStringArray(R.array.data_values);
-        String[] ringValues = getResources().getStringArray(R.array.ring_values);
-
-        // 安全获取数组元素
-        String val1 = (idx1 >= 0 && idx1 < dataValues.length) ? dataValues[idx1] : "none";
-        String val2 = (idx2 >= 0 && idx2 < dataValues.length) ? dataValues[idx2] : "none";
-        String valRing = (idxRing >= 0 && idxRing < ringValues.length) ? ringValues[idxRing] : "none";
-
-        loadedSettings.putString(Constants.KEY_DATA1, val1);
-        loadedSettings.putString(Constants.KEY_DATA2, val2);
-        loadedSettings.putString("ring_key", valRing);
-
-        // 刷新率计算
-        int refreshRatePos = sharedPrefs.getInt(Constants.KEY_REFRESH_RATE_POS, 2);
-        loadedSettings.putInt(Constants.KEY_REFRESH_RATE_POS, refreshRatePos);
-        loadedSettings.putInt(Constants.KEY_FONT_CHOICE, sharedPrefs.getInt(Constants.KEY_FONT_CHOICE, 0));
-
-        // 简单映射刷新率
-        int interval = 3000;
-        if (refreshRatePos == 0) interval = 1000;
-        else if (refreshRatePos == 1) interval = 2000;
-        else if (refreshRatePos == 3) interval = 4000;
-        else if (refreshRatePos == 4) interval = 5000;
-        loadedSettings.putInt("interval", interval);
-
-        // 由于 createNotification 需要 int 类型，这里做个转换放入 bundle
-        try {
-            loadedSettings.putInt(Constants.KEY_BITMAP_SIZE, Integer.parseInt(loadedSettings.getString(Constants.KEY_BITMAP_SIZE)));
-            loadedSettings.putInt(Constants.KEY_FONT_SIZE, Integer.parseInt(loadedSettings.getString(Constants.KEY_FONT_SIZE)));
-            loadedSettings.putInt(Constants.KEY_OFFSET, Integer.parseInt(loadedSettings.getString(Constants.KEY_OFFSET)));
-            loadedSettings.putInt(Constants.KEY_PADDING_X, Integer.parseInt(loadedSettings.getString(Constants.KEY_PADDING_X)));
-            loadedSettings.putInt(Constants.KEY_PADDING_Y, Integer.parseInt(loadedSettings.getString(Constants.KEY_PADDING_Y)));
-            loadedSettings.putInt(Constants.KEY_DIVISOR, Integer.parseInt(loadedSettings.getString(Constants.KEY_DIVISOR)));
-            loadedSettings.putInt(Constants.KEY_DASH_LENGTH, Integer.parseInt(loadedSettings.getString(Constants.KEY_DASH_LENGTH)));
-            loadedSettings.putInt(Constants.KEY_DASH_GAP, Integer.parseInt(loadedSettings.getString(Constants.KEY_DASH_GAP)));
-        } catch (Exception e) {
-            // 设置默认值防止崩溃
-            loadedSettings.putInt(Constants.KEY_BITMAP_SIZE, 64);
-            loadedSettings.putInt(Constants.KEY_FONT_SIZE, 32);
-            loadedSettings.putInt(Constants.KEY_OFFSET, 15);
-            loadedSettings.putInt(Constants.KEY_PADDING_X, -2);
-            loadedSettings.putInt(Constants.KEY_PADDING_Y, 0);
-            loadedSettings.putInt(Constants.KEY_DIVISOR, 1000000000);
-            loadedSettings.putInt(Constants.KEY_DASH_LENGTH, 6);
-            loadedSettings.putInt(Constants.KEY_DASH_GAP, 2);
-        }
-
-        return loadedSettings;
+    // --- 提醒 ---
+
+    // 流水线线程上调用：触发很少，这里才构建文字和通知，交给主线程发出
+    private void postAlerts(AlertEngine engine) {
+        for (int i = 0; i < engine.getFiredCount(); i++) {
+            int rule = engine.getFiredRule(i);
+            double value = engine.getFiredValue(i);
+            String text = engine.getSource(rule);
+            if (!Double.isNaN(value)) {
+                text += "  当前 " + getLabel(engine.getMetric(rule)) + " "
+                        + String.format(Locale.getDefault(), "%.1f", value);
+            }
+            Notification notification = new NotificationCompat.Builder(this, ALERT_CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_launcher_foreground)
+                    .setContentTitle("监测提醒")
+                    .setContentText(text)
+                    .setCategory(NotificationCompat.CATEGORY_STATUS)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setAutoCancel(true)
+                    .build();
+            final int id = ALERT_NOTIFICATION_ID + rule;
+            mainHandler.post(() -> notificationManager.notify(id, notification));
+        }
+    }
+
+    private void cancelAlerts(int ruleCount) {
+        for (int rule = 0; rule < ruleCount; rule++) {
+            notificationManager.cancel(ALERT_NOTIFICATION_ID + rule);
+        }
     }
 
     private void loadCustomFont(int fontChoicePosition) {
@@ -552,39 +770,15 @@ public class MonitorService extends Service {
         }
     }
     /**
-     * 根据英文 Key (如 "watt") 获取对应的中文 Label (如 "功耗 (Watt)")
+     * 数据项的中文名 (如 "功耗 (W)")，名字表只在第一次用到时从资源读取
      */
-    private String getLabelFromKey(String key) {
-        if ("none".equals(key) || key == null || key.isEmpty()) {
-            return "无";
-        }
-
-        try {
-            // 获取两个数组
-            String[] values = getResources().getStringArray(R.array.data_values);
-            String[] labels = getResources().getStringArray(R.array.data_labels);
-
-            // 遍历英文数组找索引
-            for (int i = 0; i < values.length; i++) {
-                if (values[i].equals(key)) {
-                    // 返回相同位置的中文
-                    return labels[i];
-                }
-            }
-            // 获取两个数组
-            values = getResources().getStringArray(R.array.ring_values);
-            labels = getResources().getStringArray(R.array.ring_labels);
-
-            // 遍历英文数组找索引
-            for (int i = 0; i < values.length; i++) {
-                if (values[i].equals(key)) {
-                    // 返回相同位置的中文
-                    return labels[i];
-                }
-            }
-        } catch (Exception e) {
-            Log.e("MonitorService", "Error mapping key to label", e);
+    private String getLabel(MetricKey key) {
+        if (metricLabels == null) {
+            Resources res = getResources();
+            metricLabels = MetricKey.buildLabels(
+                    new String[][]{res.getStringArray(R.array.data_values), res.getStringArray(R.array.ring_values)},
+                    new String[][]{res.getStringArray(R.array.data_labels), res.getStringArray(R.array.ring_labels)});
         }
-        return key; // 找不到则返回原 Key 兜底
+        return metricLabels[key.ordinal()];
     }
-}
\ No newline at end of file
+}
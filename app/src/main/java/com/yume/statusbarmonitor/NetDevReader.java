@@ -0,0 +1,152 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * 解析 /proc/net/dev，记录除回环接口外每个接口的收发字节数，并给出它们的合计。
+ * <pre>
+ * Inter-|   Receive                            |  Transmit
+ *  face |bytes    packets errs drop ...        |bytes    packets ...
+ *   wlan0: 123456  789  0  0  0  0  0  0  654321  987 ...
+ * </pre>
+ * 接口名只在第一次出现时创建 String，之后按字节与已知名字比较，
+ * 接口集合不变时每次读取都不分配对象。
+ */
+public class NetDevReader extends ProcReader {
+
+    public static final File DEFAULT_FILE = new File("/proc/net/dev");
+
+    private static final byte[] LOOPBACK = ascii("lo:");
+    // 接收字节之后、发送字节之前的 7 个接收字段
+    private static final int RX_FIELDS_AFTER_BYTES = 7;
+
+    private long rxBytes;
+    private long txBytes;
+
+    // 本次读取到的接口，按文件中的顺序
+    private String[] names = new String[8];
+    private long[] rx = new long[8];
+    private long[] tx = new long[8];
+    private int count;
+
+    // 见过的全部接口名，names 中的 String 都来自这里
+    private String[] known = new String[8];
+    private byte[][] knownBytes = new byte[8][];
+    private int knownCount;
+
+    public NetDevReader(File file) {
+        super(file);
+    }
+
+    /** 本进程能否读取该文件 (Android 10 起多数设备对普通应用关闭)。会读一次文件，不要在 tick 中调用 */
+    public static boolean isReadable(File file) {
+        NetDevReader reader = new NetDevReader(file);
+        try {
+            return reader.read();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    protected boolean parse(byte[] buf, int length) {
+        if (length == 0) return false;
+        long rxTotal = 0;
+        long txTotal = 0;
+        int n = 0;
+        // 前两行是表头
+        int pos = nextLine(buf, nextLine(buf, 0, length), length);
+        while (pos < length) {
+            int lineStart = skipSpaces(buf, pos, length);
+            int colon = lineStart;
+            while (colon < length && buf[colon] != ':' && buf[colon] != '\n') colon++;
+            if (colon < length && buf[colon] == ':' && !startsWith(buf, lineStart, length, LOOPBACK)) {
+                int p = skipSpaces(buf, colon + 1, length);
+                long r = parseLong(buf, p, length);
+                p = skipToken(buf, p, length);
+                for (int i = 0; i < RX_FIELDS_AFTER_BYTES; i++) {
+                    p = skipToken(buf, skipSpaces(buf, p, length), length);
+                }
+                long t = parseLong(buf, skipSpaces(buf, p, length), length);
+
+                if (n == names.length) grow();
+                names[n] = intern(buf, lineStart, colon, n);
+                rx[n] = r;
+                tx[n] = t;
+                n++;
+                rxTotal += r;
+                txTotal += t;
+            }
+            pos = nextLine(buf, pos, length);
+        }
+        // 只有 lo (例如飞行模式) 也是有效读数：没有接口，流量为 0
+        count = n;
+        rxBytes = rxTotal;
+        txBytes = txTotal;
+        return true;
+    }
+
+    /** 取得 buf[start, end) 对应的接口名；文件中接口顺序通常不变，先试 hint 位置 */
+    private String intern(byte[] buf, int start, int end, int hint) {
+        if (hint < knownCount && nameEquals(knownBytes[hint], buf, start, end)) {
+            return known[hint];
+        }
+        for (int i = 0; i < knownCount; i++) {
+            if (nameEquals(knownBytes[i], buf, start, end)) return known[i];
+        }
+        if (knownCount == known.length) {
+            known = Arrays.copyOf(known, knownCount * 2);
+            knownBytes = Arrays.copyOf(knownBytes, knownCount * 2);
+        }
+        knownBytes[knownCount] = Arrays.copyOfRange(buf, start, end);
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buf[start + i] & 0xFF);
+        }
+        known[knownCount] = new String(chars);
+        return known[knownCount++];
+    }
+
+    private static boolean nameEquals(byte[] name, byte[] buf, int start, int end) {
+        if (name.length != end - start) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != buf[start + i]) return false;
+        }
+        return true;
+    }
+
+    private void grow() {
+        names = Arrays.copyOf(names, names.length * 2);
+        rx = Arrays.copyOf(rx, rx.length * 2);
+        tx = Arrays.copyOf(tx, tx.length * 2);
+    }
+
+    /** 所有非回环接口的接收字节合计 */
+    public long getRxBytes() {
+        return rxBytes;
+    }
+
+    /** 所有非回环接口的发送字节合计 */
+    public long getTxBytes() {
+        return txBytes;
+    }
+
+    /** 上次读取到的非回环接口数 */
+    public int getInterfaceCount() {
+        return count;
+    }
+
+    /** 接口名；同一个接口每次返回同一个 String 实例 */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public long getRxBytes(int index) {
+        return rx[index];
+    }
+
+    public long getTxBytes(int index) {
+        return tx[index];
+    }
+}
@@ -0,0 +1,143 @@
+package com.yume.statusbarmonitor;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 通过 ConnectivityManager 跟踪当前各网络 (含 VPN) 的接口名和承载类型，
+ * 读不到 /proc/net/dev 时供 {@link MetricSampler} 按接口查询 TrafficStats。
+ * <p>
+ * 类型来自 NetworkCapabilities 的 transport，不再按接口名猜测：VPN 的 tun 接口单独归为 VPN，
+ * 以太网不会被当成 Wi-Fi。热点、USB 共享的下游接口不是一个 Network，
+ * 它们转发的流量计在上游接口上，不会重复计数。
+ * 回调投递到传入的 Handler (流水线线程) 上，结果缓存成数组，采样时不跨进程查询。
+ */
+public class NetworkInterfaceMonitor {
+
+    private static final String TAG = "NetworkInterfaceMonitor";
+
+    private final ConnectivityManager connectivityManager;
+
+    // 只在回调里修改，回调和采样都在流水线线程上
+    private final Map<Network, String> names = new HashMap<>();
+    private final Map<Network, NetworkThroughput.Kind> kinds = new HashMap<>();
+    private String[] interfaceNames = new String[0];
+    private NetworkThroughput.Kind[] interfaceKinds = new NetworkThroughput.Kind[0];
+    private boolean registered;
+
+    private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            kinds.put(network, kindOf(capabilities));
+            rebuild();
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+            String name = linkProperties.getInterfaceName();
+            if (name != null) {
+                names.put(network, name);
+            } else {
+                names.remove(network);
+            }
+            rebuild();
+        }
+
+        @Override
+        public void onLost(Network network) {
+            names.remove(network);
+            kinds.remove(network);
+            rebuild();
+        }
+    };
+
+    public NetworkInterfaceMonitor(Context context) {
+        connectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    public void register(Handler handler) {
+        if (registered || connectivityManager == null) return;
+        // 默认的请求只匹配非 VPN 网络
+        NetworkRequest request = new NetworkRequest.Builder()
+                .removeCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
+                .build();
+        try {
+            connectivityManager.registerNetworkCallback(request, callback, handler);
+            registered = true;
+        } catch (RuntimeException e) {
+            // 回调数量超限等，网速退回只区分移动数据和总量
+            Log.w(TAG, "registerNetworkCallback failed", e);
+        }
+    }
+
+    public void unregister() {
+        if (!registered) return;
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "unregisterNetworkCallback failed", e);
+        }
+        // 缓存的接口留给流水线线程最后一次采样，不在这里 (主线程) 清空
+        registered = false;
+    }
+
+    static NetworkThroughput.Kind kindOf(NetworkCapabilities capabilities) {
+        // VPN 网络同时带着承载它的网络的 transport，要先判断
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) return NetworkThroughput.Kind.VPN;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) return NetworkThroughput.Kind.WIFI;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) return NetworkThroughput.Kind.MOBILE;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) return NetworkThroughput.Kind.ETHERNET;
+        return NetworkThroughput.Kind.OTHER;
+    }
+
+    // 只收录接口名和类型都已知的网络；同一接口只出现一次
+    private void rebuild() {
+        String[] newNames = new String[names.size()];
+        NetworkThroughput.Kind[] newKinds = new NetworkThroughput.Kind[names.size()];
+        int n = 0;
+        for (Map.Entry<Network, String> entry : names.entrySet()) {
+            NetworkThroughput.Kind kind = kinds.get(entry.getKey());
+            if (kind == null || contains(newNames, n, entry.getValue())) continue;
+            newNames[n] = entry.getValue();
+            newKinds[n] = kind;
+            n++;
+        }
+        interfaceNames = n == newNames.length ? newNames : Arrays.copyOf(newNames, n);
+        interfaceKinds = n == newKinds.length ? newKinds : Arrays.copyOf(newKinds, n);
+    }
+
+    private static boolean contains(String[] names, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) return true;
+        }
+        return false;
+    }
+
+    /** 是否已注册成功，未注册时没有接口信息 */
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    public int getInterfaceCount() {
+        return interfaceNames.length;
+    }
+
+    public String getName(int i) {
+        return interfaceNames[i];
+    }
+
+    public NetworkThroughput.Kind getKind(int i) {
+        return interfaceKinds[i];
+    }
+}
@@ -0,0 +1,259 @@
+package com.yume.statusbarmonitor;
+
+import java.util.Arrays;
+
+/**
+ * 按接口增量计算网速。
+ * <p>
+ * 每次采样依次调用 {@link #begin}、对每个接口调用 {@link #offer}、最后 {@link #end}。
+ * 每个接口单独保存上次的计数，差值除以两次采样间的单调时钟间隔 (纳秒) 得到字节/秒，
+ * 再按接口类型 ({@link Kind}) 汇总，并按 {@link Scope} 或指定接口名给出显示用的合计。
+ * <p>
+ * /proc/net/dev (rtnl_link_stats64) 和 TrafficStats 都是 64 位计数，实际不会回绕，
+ * 所以计数变小一律视为计数器被重置 (接口重建、驱动重载)，本次该接口记 0 并重新建立基线。
+ * 本次没有出现的接口丢弃基线，重新出现时从新基线开始，不会把消失期间的流量算进一次采样。
+ * <p>
+ * 接口集合不变时不分配对象。只在流水线线程上使用。
+ */
+public final class NetworkThroughput {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** 接口类型，按接口名前缀判断 */
+    public enum Kind {
+        WIFI, MOBILE, ETHERNET, VPN,
+        // 与其他接口重复计数的虚拟接口：CLAT、IPA 聚合口、隧道等
+        VIRTUAL,
+        OTHER;
+
+        private static final String[] VIRTUAL_PREFIXES = {
+                "v4-", "clat", "dummy", "ifb", "sit", "ip6tnl", "ip6_vti", "ip_vti", "ip6gre", "gre",
+                "veth", "rmnet_ipa", "r_rmnet", "rev_rmnet"
+        };
+        private static final String[] VPN_PREFIXES = {"tun", "ppp", "ipsec", "wg"};
+        private static final String[] WIFI_PREFIXES = {"wlan", "swlan", "p2p", "wifi", "wigig", "ap"};
+        private static final String[] MOBILE_PREFIXES = {"rmnet", "ccmni", "ccemni", "seth", "pdp"};
+        private static final String[] ETHERNET_PREFIXES = {"eth"};
+
+        public static Kind classify(String name) {
+            // 虚拟接口要先判断，rmnet_ipa0 等同样以移动数据接口的前缀开头
+            if (hasPrefix(name, VIRTUAL_PREFIXES)) return VIRTUAL;
+            if (hasPrefix(name, VPN_PREFIXES)) return VPN;
+            if (hasPrefix(name, WIFI_PREFIXES)) return WIFI;
+            if (hasPrefix(name, MOBILE_PREFIXES)) return MOBILE;
+            if (hasPrefix(name, ETHERNET_PREFIXES)) return ETHERNET;
+            return OTHER;
+        }
+
+        private static boolean hasPrefix(String name, String[] prefixes) {
+            for (String prefix : prefixes) {
+                if (name.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+
+    /** 显示用合计包含哪些接口 */
+    public enum Scope {
+        // 实际收发数据的接口：VPN 和虚拟接口的流量已经计在承载它的物理接口上
+        PHYSICAL("physical"),
+        // 与旧版本相同，除回环外全部相加 (开着 VPN 时会重复计数)
+        ALL("all"),
+        WIFI("wifi"),
+        MOBILE("mobile"),
+        VPN("vpn");
+
+        public final String key;
+
+        Scope(String key) {
+            this.key = key;
+        }
+
+        /** 未知 key 与 null 都是 {@link #PHYSICAL} */
+        public static Scope fromKey(String key) {
+            if (key != null) {
+                for (Scope scope : values()) {
+                    if (scope.key.equals(key)) return scope;
+                }
+            }
+            return PHYSICAL;
+        }
+
+        public boolean includes(Kind kind) {
+            switch (this) {
+                case PHYSICAL:
+                    return kind == Kind.WIFI || kind == Kind.MOBILE || kind == Kind.ETHERNET || kind == Kind.OTHER;
+                case ALL:
+                    return true;
+                case WIFI:
+                    return kind == Kind.WIFI;
+                case MOBILE:
+                    return kind == Kind.MOBILE;
+                case VPN:
+                    return kind == Kind.VPN;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    // 每个接口一个槽位，接口消失后槽位保留，重新出现时复用
+    private String[] names = new String[8];
+    private Kind[] kinds = new Kind[8];
+    private long[] lastRx = new long[8];
+    private long[] lastTx = new long[8];
+    private long[] rxRate = new long[8];
+    private long[] txRate = new long[8];
+    private boolean[] baseline = new boolean[8];
+    private int[] seen = new int[8];
+    private int slots;
+
+    private final long[] kindRx = new long[Kind.values().length];
+    private final long[] kindTx = new long[Kind.values().length];
+
+    private Scope scope = Scope.PHYSICAL;
+    private String interfaceName;
+
+    private int generation;
+    private long lastNanos;
+    private long elapsedNanos;
+    private long selectedRx;
+    private long selectedTx;
+    private int resets;
+
+    /**
+     * @param interfaceName 非空时只统计这个接口，忽略 scope
+     */
+    public void setSelection(Scope scope, String interfaceName) {
+        this.scope = scope != null ? scope : Scope.PHYSICAL;
+        this.interfaceName = interfaceName != null && !interfaceName.isEmpty() ? interfaceName : null;
+    }
+
+    /** 丢弃全部基线，下一次采样只建立基线。计数来源改变时调用 */
+    public void clear() {
+        Arrays.fill(baseline, 0, slots, false);
+        lastNanos = 0;
+    }
+
+    /**
+     * @param nowNanos 单调时钟，如 SystemClock.elapsedRealtimeNanos()
+     */
+    public void begin(long nowNanos) {
+        generation++;
+        elapsedNanos = lastNanos != 0 ? nowNanos - lastNanos : 0;
+        lastNanos = nowNanos;
+    }
+
+    public void offer(String name, long rxBytes, long txBytes) {
+        offer(name, null, rxBytes, txBytes);
+    }
+
+    /**
+     * @param kind 接口类型，null 表示按名字判断；只在接口第一次出现时使用
+     */
+    public void offer(String name, Kind kind, long rxBytes, long txBytes) {
+        int i = slotFor(name, kind);
+        seen[i] = generation;
+        if (baseline[i] && elapsedNanos > 0) {
+            long dRx = counterDelta(lastRx[i], rxBytes);
+            long dTx = counterDelta(lastTx[i], txBytes);
+            if (dRx < 0 || dTx < 0) {
+                resets++;
+                rxRate[i] = 0;
+                txRate[i] = 0;
+            } else {
+                rxRate[i] = perSecond(dRx, elapsedNanos);
+                txRate[i] = perSecond(dTx, elapsedNanos);
+            }
+        } else {
+            rxRate[i] = 0;
+            txRate[i] = 0;
+        }
+        lastRx[i] = rxBytes;
+        lastTx[i] = txBytes;
+        baseline[i] = true;
+    }
+
+    public void end() {
+        Arrays.fill(kindRx, 0);
+        Arrays.fill(kindTx, 0);
+        long rx = 0;
+        long tx = 0;
+        for (int i = 0; i < slots; i++) {
+            if (seen[i] != generation) {
+                baseline[i] = false;
+                rxRate[i] = 0;
+                txRate[i] = 0;
+                continue;
+            }
+            kindRx[kinds[i].ordinal()] += rxRate[i];
+            kindTx[kinds[i].ordinal()] += txRate[i];
+            boolean selected = interfaceName != null ? interfaceName.equals(names[i]) : scope.includes(kinds[i]);
+            if (selected) {
+                rx += rxRate[i];
+                tx += txRate[i];
+            }
+        }
+        selectedRx = rx;
+        selectedTx = tx;
+    }
+
+    /**
+     * 两次读数间的增量，计数变小时返回 -1 表示被重置。
+     */
+    static long counterDelta(long last, long now) {
+        return now >= last ? now - last : -1;
+    }
+
+    private static long perSecond(long delta, long elapsedNanos) {
+        // 单次增量可能上 GB，直接乘 10^9 有溢出风险
+        return (long) ((double) delta * NANOS_PER_SECOND / elapsedNanos);
+    }
+
+    private int slotFor(String name, Kind kind) {
+        for (int i = 0; i < slots; i++) {
+            // NetDevReader 对同一个接口总是给出同一个实例，先比较引用
+            if (names[i] == name || names[i].equals(name)) return i;
+        }
+        if (slots == names.length) grow();
+        names[slots] = name;
+        kinds[slots] = kind != null ? kind : Kind.classify(name);
+        baseline[slots] = false;
+        return slots++;
+    }
+
+    private void grow() {
+        int size = slots * 2;
+        names = Arrays.copyOf(names, size);
+        kinds = Arrays.copyOf(kinds, size);
+        lastRx = Arrays.copyOf(lastRx, size);
+        lastTx = Arrays.copyOf(lastTx, size);
+        rxRate = Arrays.copyOf(rxRate, size);
+        txRate = Arrays.copyOf(txRate, size);
+        baseline = Arrays.copyOf(baseline, size);
+        seen = Arrays.copyOf(seen, size);
+    }
+
+    /** 按当前选择汇总的下载速度，字节/秒 */
+    public long getRxRate() {
+        return selectedRx;
+    }
+
+    /** 按当前选择汇总的上传速度，字节/秒 */
+    public long getTxRate() {
+        return selectedTx;
+    }
+
+    public long getRxRate(Kind kind) {
+        return kindRx[kind.ordinal()];
+    }
+
+    public long getTxRate(Kind kind) {
+        return kindTx[kind.ordinal()];
+    }
+
+    /** 至今检测到的计数器重置次数 */
+    public int getResetCount() {
+        return resets;
+    }
+}
@@ -0,0 +1,208 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * /proc、/sys 文本文件读取器的基类。
+ * <p>
+ * 文件通道只打开一次并一直保持，每次读取都从头读入同一个复用的 ByteBuffer，
+ * 子类直接在字节数组上解析数字，不创建 String、不按行拆分。
+ * <p>
+ * 只有打开文件时被拒绝访问 (SELinux、权限) 才永久停用读取器。其他失败 (文件暂时不存在、
+ * 传感器下电时读出 EINVAL / ENODATA、内容暂时无法解析) 只让这一次读取返回 false，
+ * 文件通道保持打开，之后按指数退避跳过几次再重试；连续失败多次才关闭通道、下次重新打开。
+ * 读取返回 false 时调用方应回退到系统 API 或显示未知。
+ */
+public abstract class ProcReader {
+
+    private static final int INITIAL_CAPACITY = 4096;
+    // 连续失败时两次重试之间最多跳过的读取次数
+    private static final int MAX_BACKOFF = 63;
+    // 连续失败这么多次后关闭通道，下次重新打开
+    private static final int REOPEN_AFTER = 3;
+
+    private final File file;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private boolean disabled;
+    private int failures;
+    private int skip;
+
+    protected ProcReader(File file) {
+        this.file = file;
+    }
+
+    /** 是否仍可用；打开文件被拒绝访问后永久为 false */
+    public boolean isAvailable() {
+        return !disabled;
+    }
+
+    /**
+     * 重新读取并解析文件。
+     *
+     * @return false 表示本次没有读到有效内容 (或处于失败后的退避中)，调用方应回退
+     */
+    public boolean read() {
+        if (disabled) return false;
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        if (channel == null) {
+            try {
+                channel = new RandomAccessFile(file, "r").getChannel();
+            } catch (IOException | SecurityException e) {
+                if (isPermissionDenied(e)) {
+                    // SELinux 拒绝：之后每次都会一样，不再尝试
+                    disabled = true;
+                } else {
+                    onFailure();
+                }
+                return false;
+            }
+        }
+        try {
+            int length = readFully();
+            if (parse(buffer.array(), length)) {
+                failures = 0;
+                return true;
+            }
+        } catch (IOException e) {
+            // 例如传感器下电时的 EINVAL / ENODATA，通道仍然有效
+        }
+        onFailure();
+        return false;
+    }
+
+    private void onFailure() {
+        failures++;
+        // 第一次失败后下次立即重试，之后跳过 1、3、7……次
+        skip = Math.min((1 << Math.min(failures - 1, 6)) - 1, MAX_BACKOFF);
+        if (failures >= REOPEN_AFTER) close();
+    }
+
+    /** 打开失败是否是权限问题；RandomAccessFile 把 EACCES 报告为带 "Permission denied" 的 FileNotFoundException */
+    static boolean isPermissionDenied(Exception e) {
+        if (e instanceof SecurityException) return true;
+        String message = e.getMessage();
+        return e instanceof FileNotFoundException && message != null
+                && (message.contains("Permission denied") || message.contains("EACCES"));
+    }
+
+    private int readFully() throws IOException {
+        channel.position(0);
+        buffer.clear();
+        int limit = readLimit();
+        while (true) {
+            int n = channel.read(buffer);
+            if (n < 0 || buffer.position() >= limit) break;
+            if (!buffer.hasRemaining()) {
+                // 只会在首次遇到较大的文件时扩容，之后稳定复用
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            } else if (n == 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 读够这么多字节就停止。procfs 按需生成内容，只需要文件开头时可以省掉后面的生成和拷贝；
+     * 最后一行可能被截断，子类须自行处理。
+     */
+    protected int readLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 解析 buf[0, length) 中的内容。
+     *
+     * @return 是否成功取得了需要的字段
+     */
+    protected abstract boolean parse(byte[] buf, int length);
+
+    // --- 解析工具 ---
+
+    /** 从 pos 开始找到第一个数字 (可带负号) 的起点，找不到返回 end */
+    protected static int skipToNumber(byte[] buf, int pos, int end) {
+        while (pos < end) {
+            byte c = buf[pos];
+            if ((c >= '0' && c <= '9') || (c == '-' && pos + 1 < end && buf[pos + 1] >= '0' && buf[pos + 1] <= '9')) {
+                return pos;
+            }
+            if (c == '\n') return end;
+            pos++;
+        }
+        return end;
+    }
+
+    /** 解析 pos 处的十进制整数 (可带负号)，遇到非数字停止 */
+    protected static long parseLong(byte[] buf, int pos, int end) {
+        boolean negative = false;
+        if (pos < end && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        while (pos < end) {
+            byte c = buf[pos];
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    /** 跳过 pos 处的一个数字 (或其他非空白字段)，返回其后的位置 */
+    protected static int skipToken(byte[] buf, int pos, int end) {
+        while (pos < end && buf[pos] != ' ' && buf[pos] != '\t' && buf[pos] != '\n') pos++;
+        return pos;
+    }
+
+    /** 跳过空格和制表符 */
+    protected static int skipSpaces(byte[] buf, int pos, int end) {
+        while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t')) pos++;
+        return pos;
+    }
+
+    /** 返回下一行的起点 */
+    protected static int nextLine(byte[] buf, int pos, int end) {
+        while (pos < end && buf[pos] != '\n') pos++;
+        return pos < end ? pos + 1 : end;
+    }
+
+    /** buf 在 pos 处是否以 prefix 开头 */
+    protected static boolean startsWith(byte[] buf, int pos, int end, byte[] prefix) {
+        if (end - pos < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[pos + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    protected static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
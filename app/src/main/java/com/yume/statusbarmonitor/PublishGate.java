@@ -0,0 +1,96 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 变化检测阶段：把本帧要发布的内容与上一次真正发布的内容比较，
+ * 完全相同则跳过 notify()，省掉一次跨进程调用和 SystemUI 的重新渲染。
+ * <p>
+ * 比较的是最终可见的状态：图标两行文字、标题、下拉详情、
+ * 截断到 0~100 的圆环进度、虚线的相位序号，以及曲线的像素签名。
+ * 文字以 CharSequence 传入 (通常是复用的 StringBuilder)，只有确实要发布时才转成 String 保存，
+ * 被拦下的帧不产生任何分配。
+ */
+public final class PublishGate {
+
+    private boolean hasLast;
+    private String lastLine1;
+    private String lastLine2;
+    private String lastTitle;
+    private String lastBody;
+    private int lastProgress;
+    private int lastDashIndex;
+    private int lastSparkline;
+
+    private long published;
+    private long suppressed;
+
+    /**
+     * @param progress  圆环进度，负数代表不画
+     * @param dashIndex 虚线相位序号，实线或不画圆环时传 -1
+     * @param sparkline 曲线签名 ({@link IconRenderer#setSparkline})，不画曲线时传 0
+     * @return true 表示内容有可见变化，需要 notify
+     */
+    public boolean shouldPublish(CharSequence line1, CharSequence line2, CharSequence title,
+                                 CharSequence body, int progress, int dashIndex, int sparkline) {
+        int quantized = progress < 0 ? -1 : Math.min(progress, 100);
+        if (hasLast
+                && quantized == lastProgress
+                && dashIndex == lastDashIndex
+                && sparkline == lastSparkline
+                && equals(line1, lastLine1)
+                && equals(line2, lastLine2)
+                && equals(title, lastTitle)
+                && equals(body, lastBody)) {
+            suppressed++;
+            return false;
+        }
+        hasLast = true;
+        lastLine1 = toString(line1);
+        lastLine2 = toString(line2);
+        lastTitle = toString(title);
+        lastBody = toString(body);
+        lastProgress = quantized;
+        lastDashIndex = dashIndex;
+        lastSparkline = sparkline;
+        published++;
+        return true;
+    }
+
+    /** 忘记上一帧，下一次必定发布 (例如配置变化后) */
+    public void invalidate() {
+        hasLast = false;
+    }
+
+    // 以下为最近一次发布的内容，shouldPublish 返回 true 后用于构建通知
+
+    public String getLine1() {
+        return lastLine1;
+    }
+
+    public String getLine2() {
+        return lastLine2;
+    }
+
+    public String getTitle() {
+        return lastTitle;
+    }
+
+    public String getBody() {
+        return lastBody;
+    }
+
+    public long getPublishedCount() {
+        return published;
+    }
+
+    public long getSuppressedCount() {
+        return suppressed;
+    }
+
+    private static boolean equals(CharSequence current, String last) {
+        return current == null ? last == null : last != null && last.contentEquals(current);
+    }
+
+    private static String toString(CharSequence cs) {
+        return cs == null ? null : cs.toString();
+    }
+}
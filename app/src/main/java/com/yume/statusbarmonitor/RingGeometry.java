@@ -0,0 +1,73 @@
+package com.yume.statusbarmonitor;
+
+import android.graphics.Path;
+
+/**
+ * 方形圆环的几何查找表。
+ * <p>
+ * 圆环形状只取决于图标尺寸和 0~100 的进度，所以每种尺寸只在构造时生成
+ * 101 条折线 Path，绘制时按进度直接取用，不再每帧 PathMeasure.getSegment。
+ * 折线沿矩形顺时针从左上角出发，与原先 addRect(CW) + getSegment 的结果一致；
+ * 虚线模式只改变 Paint 上的相位，几何不变。
+ */
+public final class RingGeometry {
+
+    public static final int STEPS = 100;
+
+    // 部分圆环最多经过 4 个角再加起点和终点
+    static final int MAX_POINTS = 6;
+
+    private final int size;
+    private final Path[] paths = new Path[STEPS + 1];
+
+    public RingGeometry(int size) {
+        this.size = size;
+        float[] xy = new float[MAX_POINTS * 2];
+        for (int progress = 0; progress <= STEPS; progress++) {
+            int count = polyline(size, progress, xy);
+            Path path = new Path();
+            if (count > 0) {
+                path.moveTo(xy[0], xy[1]);
+                for (int i = 1; i < count; i++) {
+                    path.lineTo(xy[i * 2], xy[i * 2 + 1]);
+                }
+            }
+            paths[progress] = path;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param progress 0~100，越界时取端点
+     */
+    public Path pathFor(int progress) {
+        return paths[Math.max(0, Math.min(STEPS, progress))];
+    }
+
+    /**
+     * 计算进度对应的折线顶点，写入 xy (x0, y0, x1, y1, ...)。
+     *
+     * @return 顶点个数；进度为 0 时返回 0 (什么都不画)
+     */
+    static int polyline(float size, int progress, float[] xy) {
+        if (progress <= 0 || size <= 0) return 0;
+        float remaining = 4 * size * Math.min(progress, STEPS) / STEPS;
+        // 顺时针四条边的起点，最后一个是回到左上角的终点
+        float[] cx = {0, size, size, 0, 0};
+        float[] cy = {0, 0, size, size, 0};
+        xy[0] = 0;
+        xy[1] = 0;
+        int count = 1;
+        for (int edge = 0; edge < 4 && remaining > 0; edge++) {
+            float t = Math.min(remaining, size) / size;
+            xy[count * 2] = cx[edge] + (cx[edge + 1] - cx[edge]) * t;
+            xy[count * 2 + 1] = cy[edge] + (cy[edge + 1] - cy[edge]) * t;
+            count++;
+            remaining -= size;
+        }
+        return count;
+    }
+}
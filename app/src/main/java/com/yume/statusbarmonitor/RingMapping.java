@@ -0,0 +1,102 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 圆环 key 到进度 (0~100) 的映射。
+ * 百分比类数据直接使用；温度类 (电池、热区最高温度) 按 0.1°C 的读数映射到对应的满量程温度；
+ * 网速按对数刻度映射，1 KB/s 为空圈，每十倍 20%，100 MB/s 满圈。
+ * 结果统一夹在 [0, 100]，不画圆环时为 {@link #NO_RING}。
+ */
+public enum RingMapping {
+    NONE("none", 0),
+    BATTERY_PERCENT("battery_percent", 0),
+    MEMORY_PERCENT("memory_percent", 0),
+    STORAGE_PERCENT("storage_percent", 0),
+    TEMPERATURE_64("temperature_64", 640),
+    TEMPERATURE_50("temperature_50", 500),
+    TEMPERATURE_40("temperature_40", 400),
+    DOWNLOAD_LOG("download_log", 0),
+    UPLOAD_LOG("upload_log", 0),
+    CPU_PERCENT("cpu_percent", 0),
+    CPU_CLUSTER_0("cpu_cluster0", 0),
+    CPU_CLUSTER_1("cpu_cluster1", 0),
+    CPU_CLUSTER_2("cpu_cluster2", 0),
+    THERMAL_100("thermal_100", 1000),
+    THERMAL_80("thermal_80", 800);
+
+    public static final int NO_RING = -1;
+
+    public final String key;
+    // 温度类映射的满量程，单位 0.1°C
+    private final int fullScaleTenths;
+
+    RingMapping(String key, int fullScaleTenths) {
+        this.key = key;
+        this.fullScaleTenths = fullScaleTenths;
+    }
+
+    /** 未知 key 按不画圆环处理 */
+    public static RingMapping fromKey(String key) {
+        if (key != null) {
+            for (RingMapping mapping : values()) {
+                if (mapping.key.equals(key)) return mapping;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return 0~100 的进度，或 {@link #NO_RING}
+     */
+    public int progress(MetricSnapshot s) {
+        int value;
+        switch (this) {
+            case BATTERY_PERCENT:
+                value = s.batteryPercent;
+                break;
+            case MEMORY_PERCENT:
+                value = s.memPercent;
+                break;
+            case STORAGE_PERCENT:
+                value = s.storagePercent;
+                break;
+            case TEMPERATURE_64:
+            case TEMPERATURE_50:
+            case TEMPERATURE_40:
+                value = (int) ((long) s.temperatureTenths * 100 / fullScaleTenths);
+                break;
+            case DOWNLOAD_LOG:
+                value = logSpeed(s.downloadSpeed);
+                break;
+            case UPLOAD_LOG:
+                value = logSpeed(s.uploadSpeed);
+                break;
+            // 占用率未知 (-1) 时夹成空圈
+            case CPU_PERCENT:
+                value = s.cpuPercent;
+                break;
+            case CPU_CLUSTER_0:
+                value = s.cpuCluster0Percent;
+                break;
+            case CPU_CLUSTER_1:
+                value = s.cpuCluster1Percent;
+                break;
+            case CPU_CLUSTER_2:
+                value = s.cpuCluster2Percent;
+                break;
+            case THERMAL_100:
+            case THERMAL_80:
+                if (s.thermalTenths == ThermalZones.UNKNOWN) return 0;
+                value = (int) ((long) s.thermalTenths * 100 / fullScaleTenths);
+                break;
+            default:
+                return NO_RING;
+        }
+        return Math.max(0, Math.min(100, value));
+    }
+
+    // 网速跨越好几个数量级，线性映射时小流量永远看不出来
+    private static int logSpeed(long bytesPerSec) {
+        if (bytesPerSec <= 1024) return 0;
+        return (int) (Math.log10(bytesPerSec / 1024.0) * 20);
+    }
+}
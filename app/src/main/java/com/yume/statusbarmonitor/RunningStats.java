@@ -0,0 +1,61 @@
+package com.yume.statusbarmonitor;
+
+/**
+ * 一个窗口内样本的计数、和、最小值、最大值，只用基本类型字段，add 不分配对象。
+ * 用于在两个显示 tick 之间累积高频采样 (见 {@link MetricSampler#sampleCurrentBurst})。
+ */
+public final class RunningStats {
+
+    private int count;
+    private long sum;
+    private long min;
+    private long max;
+
+    public void add(long value) {
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        count++;
+        sum += value;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    /** 没有样本时为 0 */
+    public long min() {
+        return min;
+    }
+
+    /** 没有样本时为 0 */
+    public long max() {
+        return max;
+    }
+
+    /** 四舍五入的平均值，没有样本时为 0 */
+    public long mean() {
+        if (count == 0) return 0;
+        return Math.round((double) sum / count);
+    }
+
+    /** 绝对值最大的样本 (电流的符号因机型而异，峰值按幅度取) */
+    public long peakMagnitude() {
+        return Math.abs(min) > Math.abs(max) ? min : max;
+    }
+
+    public void reset() {
+        count = 0;
+        sum = 0;
+        min = 0;
+        max = 0;
+    }
+}
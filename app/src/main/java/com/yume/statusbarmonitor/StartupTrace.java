@@ -0,0 +1,109 @@
+package com.yume.statusbarmonitor;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 服务冷启动各阶段的时间点，进程内共享一个实例 ({@link #get()})。
+ * <p>
+ * 时间均为 elapsedRealtime (毫秒)，起点是进程创建时间，因此开机自启和进程被杀后的
+ * START_STICKY 重启都能算出从进程创建到第一个真实图标发出 (time-to-first-icon) 的耗时。
+ * 服务停止后进程仍被缓存、再次启动时先 {@link #reset}，这一轮以服务创建为起点。
+ * 每个阶段只记录第一次，之后的 {@link #mark} 只是一次原子读，可以放在每帧都会走的路径上。
+ * 主线程和流水线线程写入，dumpsys 在 Binder 线程读取。
+ */
+public final class StartupTrace {
+
+    public enum Mark {
+        /** 服务 onCreate */
+        SERVICE_CREATE("create"),
+        /** 第一次 onStartCommand */
+        START_COMMAND("start"),
+        /** 占位通知已 startForeground */
+        FOREGROUND("foreground"),
+        /** 流水线线程上解析完配置、加载完字体 */
+        CONFIG("config"),
+        /** 第一次采样完成 */
+        FIRST_SAMPLE("sample"),
+        /** 第一个真实图标已 notify */
+        FIRST_ICON("first icon");
+
+        public final String label;
+
+        Mark(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final StartupTrace INSTANCE = new StartupTrace();
+
+    public static StartupTrace get() {
+        return INSTANCE;
+    }
+
+    private static final long UNSET = 0;
+
+    private final AtomicLongArray times = new AtomicLongArray(Mark.values().length);
+    private volatile long origin = UNSET;
+    private volatile String reason = "";
+
+    StartupTrace() {
+    }
+
+    /**
+     * @param processStart 进程创建时间 (elapsedRealtime)
+     * @param reason       启动原因，如 boot / restart / settings，只用于报表
+     */
+    public void begin(long processStart, String reason) {
+        if (origin == UNSET) {
+            origin = processStart;
+            this.reason = reason;
+        }
+    }
+
+    /** 清空上一轮的全部记录，之后重新 {@link #begin} */
+    public void reset() {
+        for (int i = 0; i < times.length(); i++) {
+            times.set(i, UNSET);
+        }
+        origin = UNSET;
+        reason = "";
+    }
+
+    /**
+     * 记录一个阶段，已记录过时不做任何事。
+     *
+     * @return 是否是第一次记录
+     */
+    public boolean mark(Mark mark, long now) {
+        int i = mark.ordinal();
+        // 0 作为"未记录"，开机后 elapsedRealtime 不会是 0
+        return times.get(i) == UNSET && times.compareAndSet(i, UNSET, now);
+    }
+
+    public boolean has(Mark mark) {
+        return times.get(mark.ordinal()) != UNSET;
+    }
+
+    /** 从进程创建到该阶段的毫秒数，未记录时为 -1 */
+    public long elapsed(Mark mark) {
+        long t = times.get(mark.ordinal());
+        return t == UNSET || origin == UNSET ? -1 : t - origin;
+    }
+
+    /** 文本报表，单位毫秒；各阶段后面是与上一阶段的间隔 */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("startup (").append(reason.isEmpty() ? "unknown" : reason).append("):");
+        long previous = 0;
+        for (Mark mark : Mark.values()) {
+            long ms = elapsed(mark);
+            if (ms < 0) {
+                sb.append(String.format(Locale.US, "%n  %-10s %8s", mark.label, "-"));
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%n  %-10s %8d  +%d", mark.label, ms, ms - previous));
+            previous = ms;
+        }
+        sb.append('\n');
+    }
+}
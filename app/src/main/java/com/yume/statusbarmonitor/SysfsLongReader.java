@@ -0,0 +1,30 @@
+package com.yume.statusbarmonitor;
+
+import java.io.File;
+
+/**
+ * 读取只包含一个整数的 sysfs 文件，例如
+ * /sys/class/power_supply/battery/current_now (µA)。
+ */
+public class SysfsLongReader extends ProcReader {
+
+    public static final File BATTERY_CURRENT_NOW = new File("/sys/class/power_supply/battery/current_now");
+
+    private long value;
+
+    public SysfsLongReader(File file) {
+        super(file);
+    }
+
+    @Override
+    protected boolean parse(byte[] buf, int length) {
+        int pos = skipToNumber(buf, skipSpaces(buf, 0, length), length);
+        if (pos >= length) return false;
+        value = parseLong(buf, pos, length);
+        return true;
+    }
+
+    public long getValue() {
+        return value;
+    }
+}
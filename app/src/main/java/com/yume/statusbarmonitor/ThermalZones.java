@@ -0,0 +1,275 @@
+package com.yume.statusbarmonitor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SoC、外壳等热区温度，来自 /sys/class/thermal/thermal_zoneN/。
+ * <p>
+ * 第一次 {@link #update} 时扫描一次全部热区并读取各自的 type，之后不再扫描目录。
+ * 用户按 type 前缀选择热区 ({@link #select})，只有选中的热区会打开 temp 文件并保持打开，
+ * 每次更新只重读这些文件，不分配对象。
+ * 读数统一换算为 0.1°C：多数内核以毫度为单位，少数给出 0.1°C 或摄氏度。
+ * 单位在扫描时按每个热区当时的读数确定一次 ({@link #unitOf})，之后不再按单次读数猜测，
+ * 否则毫度热区降到 1°C 以下 (如 500) 会被当成 500°C。
+ * 读不到或明显无效 (关闭的传感器常报 0 或 -273°C，超过 150°C 的也不可信) 的热区不参与比较。
+ * 传感器下电时读取可能报 EINVAL / ENODATA：该热区这次为未知，文件保持打开，
+ * 传感器恢复后照常读数 (重试节奏见 {@link ProcReader})，不会从此被排除在外。
+ * 只在流水线线程上使用。
+ */
+public class ThermalZones {
+
+    public static final File DEFAULT_DIR = new File("/sys/class/thermal");
+    /** 最多同时跟踪的热区数 */
+    public static final int MAX_SELECTED = 16;
+    /** 没有可用读数 */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // 低于 -40°C 或高于 150°C 的读数视为无效
+    private static final int MIN_VALID_TENTHS = -400;
+    private static final int MAX_VALID_TENTHS = 1500;
+
+    // temp 文件的单位
+    static final int UNIT_MILLI = 0;
+    static final int UNIT_DECI = 1;
+    static final int UNIT_DEGREE = 2;
+
+    private final File dir;
+    private boolean discovered;
+    private String[] types = new String[0];
+    private File[] tempFiles = new File[0];
+    private int[] units = new int[0];
+
+    private String spec = "";
+    private boolean selectionDirty = true;
+    private final int[] selected = new int[MAX_SELECTED];
+    private final int[] selectedUnits = new int[MAX_SELECTED];
+    private final SysfsLongReader[] readers = new SysfsLongReader[MAX_SELECTED];
+    private final int[] tenths = new int[MAX_SELECTED];
+    private int selectedCount;
+
+    private int hottestTenths = UNKNOWN;
+    private int hottestIndex = -1;
+
+    public ThermalZones() {
+        this(DEFAULT_DIR);
+    }
+
+    public ThermalZones(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 选择要跟踪的热区：逗号分隔的 type 前缀 (不区分大小写)，如 "cpu,skin"；
+     * 空串表示全部热区。按热区序号取前 {@link #MAX_SELECTED} 个匹配项，
+     * 热区很多的机型上留空可能漏掉 CPU、外壳传感器，可用 {@link #appendAllZones} 查看有哪些 type。
+     */
+    public void select(String spec) {
+        String normalized = spec != null ? spec.trim().toLowerCase(Locale.ROOT) : "";
+        if (normalized.equals(this.spec)) return;
+        this.spec = normalized;
+        selectionDirty = true;
+    }
+
+    public void update() {
+        ensureDiscovered();
+        if (selectionDirty) {
+            applySelection();
+            selectionDirty = false;
+        }
+        int hottest = UNKNOWN;
+        int hottestSlot = -1;
+        for (int i = 0; i < selectedCount; i++) {
+            SysfsLongReader reader = readers[i];
+            int t = reader.read() ? toTenths(reader.getValue(), selectedUnits[i]) : UNKNOWN;
+            if (t != UNKNOWN && (t < MIN_VALID_TENTHS || t > MAX_VALID_TENTHS)) t = UNKNOWN;
+            tenths[i] = t;
+            if (t != UNKNOWN && t > hottest) {
+                hottest = t;
+                hottestSlot = i;
+            }
+        }
+        hottestTenths = hottest;
+        hottestIndex = hottestSlot;
+    }
+
+    private void ensureDiscovered() {
+        if (!discovered) {
+            discover();
+            discovered = true;
+        }
+    }
+
+    /**
+     * 列出扫描到的全部热区：每行 type、当前温度，选中的热区标 *，最热的一个标 &lt;- hottest。
+     * 会逐个打开读取 temp 文件，只用于设置页和 dumpsys，不要在 tick 中调用。
+     */
+    public void appendAllZones(StringBuilder sb) {
+        ensureDiscovered();
+        boolean[] tracked = new boolean[types.length];
+        for (int i = 0; i < selectedCount; i++) tracked[selected[i]] = true;
+        int[] current = new int[types.length];
+        int hottest = -1;
+        for (int zone = 0; zone < types.length; zone++) {
+            current[zone] = readOnce(zone);
+            if (current[zone] != UNKNOWN && (hottest < 0 || current[zone] > current[hottest])) hottest = zone;
+        }
+        for (int zone = 0; zone < types.length; zone++) {
+            sb.append(tracked[zone] ? "* " : "  ").append(types[zone]);
+            if (current[zone] == UNKNOWN) {
+                sb.append("  -");
+            } else {
+                sb.append(String.format(Locale.US, "  %.1f°C", current[zone] / 10f));
+            }
+            if (zone == hottest) sb.append("  <- hottest");
+            sb.append('\n');
+        }
+    }
+
+    private int readOnce(int zone) {
+        SysfsLongReader reader = new SysfsLongReader(tempFiles[zone]);
+        try {
+            if (!reader.read()) return UNKNOWN;
+            int t = toTenths(reader.getValue(), units[zone]);
+            return t < MIN_VALID_TENTHS || t > MAX_VALID_TENTHS ? UNKNOWN : t;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** 按热区的单位换算为 0.1°C */
+    static int toTenths(long raw, int unit) {
+        long tenths = unit == UNIT_DECI ? raw : unit == UNIT_DEGREE ? raw * 10 : raw / 100;
+        // 异常大的读数截断到范围外，不与 UNKNOWN 混淆
+        return (int) Math.max(MIN_VALID_TENTHS - 1, Math.min(MAX_VALID_TENTHS + 1, tenths));
+    }
+
+    /**
+     * 由扫描时的一次读数判断单位：绝对值上千是毫度 (室温约 25000)；
+     * 150 以上不可能是摄氏度，按 0.1°C；其余小数值按摄氏度 (关闭的传感器常报 -273)。
+     * 0 和读不到时按最常见的毫度。
+     */
+    static int unitOf(long raw) {
+        if (raw == 0 || Math.abs(raw) >= 1000) return UNIT_MILLI;
+        return raw > 150 ? UNIT_DECI : UNIT_DEGREE;
+    }
+
+    private void discover() {
+        File[] entries = dir.listFiles();
+        if (entries == null) return;
+        List<File> zones = new ArrayList<>();
+        for (File entry : entries) {
+            if (zoneNumber(entry.getName()) >= 0) zones.add(entry);
+        }
+        // 按序号排列，thermal_zone10 排在 thermal_zone9 之后
+        File[] sorted = zones.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(zoneNumber(a.getName()), zoneNumber(b.getName())));
+        types = new String[sorted.length];
+        tempFiles = new File[sorted.length];
+        units = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            String type = readLine(new File(sorted[i], "type"));
+            types[i] = type != null ? type : sorted[i].getName();
+            tempFiles[i] = new File(sorted[i], "temp");
+            units[i] = probeUnit(tempFiles[i]);
+        }
+    }
+
+    // 扫描时读一次 temp 确定单位，文件随即关闭，选中后才长期保持打开
+    private static int probeUnit(File temp) {
+        SysfsLongReader reader = new SysfsLongReader(temp);
+        try {
+            return reader.read() ? unitOf(reader.getValue()) : UNIT_MILLI;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static int zoneNumber(String name) {
+        String prefix = "thermal_zone";
+        if (!name.startsWith(prefix) || name.length() == prefix.length()) return -1;
+        int n = 0;
+        for (int i = prefix.length(); i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static String readLine(File file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            return line != null ? line.trim() : null;
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private void applySelection() {
+        for (int i = 0; i < selectedCount; i++) {
+            readers[i].close();
+            readers[i] = null;
+        }
+        selectedCount = 0;
+        String[] prefixes = spec.isEmpty() ? new String[0] : spec.split("\\s*,\\s*");
+        for (int zone = 0; zone < types.length && selectedCount < MAX_SELECTED; zone++) {
+            if (!matches(types[zone].toLowerCase(Locale.ROOT), prefixes)) continue;
+            selected[selectedCount] = zone;
+            selectedUnits[selectedCount] = units[zone];
+            readers[selectedCount] = new SysfsLongReader(tempFiles[zone]);
+            tenths[selectedCount] = UNKNOWN;
+            selectedCount++;
+        }
+        hottestTenths = UNKNOWN;
+        hottestIndex = -1;
+    }
+
+    private static boolean matches(String type, String[] prefixes) {
+        if (prefixes.length == 0) return true;
+        for (String prefix : prefixes) {
+            if (!prefix.isEmpty() && type.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    public void close() {
+        for (int i = 0; i < selectedCount; i++) {
+            readers[i].close();
+        }
+    }
+
+    /** 选中热区中的最高温度 (0.1°C)，没有可用读数时为 {@link #UNKNOWN} */
+    public int getHottestTenths() {
+        return hottestTenths;
+    }
+
+    /** 最高温度所在热区的 type，没有时为 null */
+    public String getHottestType() {
+        return hottestIndex >= 0 ? types[selected[hottestIndex]] : null;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    /** 第 i 个选中热区的温度 (0.1°C)，越界或读不到时为 {@link #UNKNOWN} */
+    public int getTenths(int i) {
+        return i < selectedCount ? tenths[i] : UNKNOWN;
+    }
+
+    public String getType(int i) {
+        return types[selected[i]];
+    }
+
+    /** 扫描到的全部热区 type，按热区序号排列 */
+    public String[] getAllTypes() {
+        return types.clone();
+    }
+}
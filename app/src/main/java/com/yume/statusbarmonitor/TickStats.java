@@ -0,0 +1,111 @@
+package com.yume.statusbarmonitor;
+
+import java.util.Locale;
+
+/**
+ * 每个 tick 各阶段耗时与调度抖动的统计，进程内共享一个实例 ({@link #get()})，
+ * 服务写入，dumpsys 和 {@link ControlProvider} 读取。
+ * <p>
+ * 计时使用 System.nanoTime (单调时钟，休眠期间不走，与 Handler 的延迟一致)。
+ * 关闭时 {@link #begin} / {@link #mark} 直接返回，不读时钟；开启时也只做原子自增，不分配对象。
+ */
+public final class TickStats {
+
+    public enum Stage {
+        /** 采样各数据源 */
+        SAMPLE("sample"),
+        /** 格式化文字、计算圆环与曲线、变化检测 */
+        FORMAT("format"),
+        /** 绘制图标并构建 Notification，仅在需要发布时发生 */
+        RENDER("render"),
+        /** 主线程上的 notify() */
+        NOTIFY("notify"),
+        /** 流水线线程上一个 tick 的总耗时 */
+        TICK("tick"),
+        /** 实际开始时间比计划晚了多少 */
+        JITTER("jitter");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final TickStats INSTANCE = new TickStats();
+
+    public static TickStats get() {
+        return INSTANCE;
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private volatile boolean enabled;
+
+    TickStats() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 开始计时。
+     *
+     * @return 当前时间；关闭时为 0
+     */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 记录从 since 到现在的耗时。
+     *
+     * @return 当前时间，可作为下一阶段的起点；关闭或 since 为 0 时不记录，返回 0
+     */
+    public long mark(Stage stage, long since) {
+        if (!enabled || since == 0) return 0;
+        long now = System.nanoTime();
+        histograms[stage.ordinal()].record(now - since);
+        return now;
+    }
+
+    /** 直接记录一个值，例如抖动 */
+    public void record(Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : histograms) {
+            h.reset();
+        }
+    }
+
+    /** 文本报表，单位毫秒 */
+    public void appendSummary(StringBuilder sb) {
+        sb.append(String.format(Locale.US, "%-7s %8s %8s %8s %8s %8s%n",
+                "stage", "count", "p50", "p95", "p99", "max"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            sb.append(String.format(Locale.US, "%-7s %8d %8.3f %8.3f %8.3f %8.3f%n",
+                    stage.label, h.getCount(),
+                    h.getPercentile(0.50) / 1e6, h.getPercentile(0.95) / 1e6,
+                    h.getPercentile(0.99) / 1e6, h.getMax() / 1e6));
+        }
+        if (!enabled) {
+            sb.append("(instrumentation off)\n");
+        }
+    }
+}
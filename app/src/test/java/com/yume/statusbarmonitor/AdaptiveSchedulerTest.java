@@ -0,0 +1,140 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSchedulerTest {
+
+    private static final class FakeClock implements AdaptiveScheduler.Clock {
+        long now = 1_000_000;
+
+        @Override
+        public long now() {
+            return now;
+        }
+    }
+
+    private static final class FakeState implements AdaptiveScheduler.StateSource {
+        boolean interactive = true;
+        boolean ambient;
+        boolean powerSave;
+        boolean deviceIdle;
+
+        @Override
+        public boolean isInteractive() {
+            return interactive;
+        }
+
+        @Override
+        public boolean isAmbient() {
+            return ambient;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerSave;
+        }
+
+        @Override
+        public boolean isDeviceIdleMode() {
+            return deviceIdle;
+        }
+    }
+
+    private FakeClock clock;
+    private FakeState state;
+    private AdaptiveScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        state = new FakeState();
+        scheduler = new AdaptiveScheduler(clock, state);
+        scheduler.setIntervals(1000, 10_000, 60_000);
+    }
+
+    @Test
+    public void interactive_usesUserInterval() {
+        assertEquals(AdaptiveScheduler.Mode.INTERACTIVE, scheduler.onTick());
+        assertEquals(1000, scheduler.delayUntilNextTick());
+        clock.now += 300;
+        assertEquals(700, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void firstTick_runsImmediately() {
+        assertEquals(0, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void screenOff_withAod_slowsDown() {
+        state.interactive = false;
+        state.ambient = true;
+        assertEquals(AdaptiveScheduler.Mode.AMBIENT, scheduler.onTick());
+        assertEquals(10_000, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void screenOff_withoutAod_isHidden() {
+        state.interactive = false;
+        assertEquals(AdaptiveScheduler.Mode.HIDDEN, scheduler.onTick());
+        assertEquals(60_000, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void deviceIdle_overridesAmbient() {
+        state.interactive = false;
+        state.ambient = true;
+        state.deviceIdle = true;
+        assertEquals(AdaptiveScheduler.Mode.HIDDEN, scheduler.onTick());
+    }
+
+    @Test
+    public void powerSave_doublesVisibleIntervals() {
+        state.powerSave = true;
+        scheduler.onTick();
+        assertEquals(2000, scheduler.delayUntilNextTick());
+        assertEquals(20_000, scheduler.intervalFor(AdaptiveScheduler.Mode.AMBIENT));
+        assertEquals(60_000, scheduler.intervalFor(AdaptiveScheduler.Mode.HIDDEN));
+    }
+
+    @Test
+    public void slowerIntervals_neverFasterThanUserInterval() {
+        scheduler.setIntervals(30_000, 10_000, 20_000);
+        assertEquals(30_000, scheduler.intervalFor(AdaptiveScheduler.Mode.AMBIENT));
+        assertEquals(30_000, scheduler.intervalFor(AdaptiveScheduler.Mode.HIDDEN));
+    }
+
+    @Test
+    public void wakingUp_requestsImmediateTick() {
+        state.interactive = false;
+        scheduler.onTick();
+        clock.now += 5000;
+
+        state.interactive = true;
+        assertTrue(scheduler.onStateChanged());
+        // 以上次 tick 为基准，新模式的间隔早已过去
+        assertEquals(0, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void goingDark_waitsForScheduledTick() {
+        scheduler.onTick();
+        state.interactive = false;
+        assertFalse(scheduler.onStateChanged());
+        assertEquals(60_000, scheduler.delayUntilNextTick());
+    }
+
+    @Test
+    public void ambientToInteractive_isMoreVisible() {
+        state.interactive = false;
+        state.ambient = true;
+        scheduler.onTick();
+        state.interactive = true;
+        assertTrue(scheduler.onStateChanged());
+    }
+}
@@ -0,0 +1,150 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AlertEngineTest {
+
+    private static final int DIVISOR = 1_000_000_000;
+
+    private static MetricSnapshot temperature(int celsius) {
+        return new MetricSnapshot.Builder().battery(celsius * 10, 4000, 50).build();
+    }
+
+    // 4V × (watts / 4)A = watts W
+    private static MetricSnapshot power(int watts, boolean plugged) {
+        return new MetricSnapshot.Builder().battery(300, 4000, 50)
+                .current(watts * 250_000L).plugged(plugged).build();
+    }
+
+    private static MetricSnapshot thermal(int celsius) {
+        return new MetricSnapshot.Builder().thermal(celsius * 10, celsius * 10, ThermalZones.UNKNOWN).build();
+    }
+
+    @Test
+    public void compile_skipsInvalidRules() {
+        AlertEngine engine = AlertEngine.compile(
+                "temperature > 45\nbogus > 1; temperature >; download_log > 5;"
+                        + "cpu_percent >= 90 for; watt < 5 & plugged for 10x\n  \n memory_percent <= 10");
+        assertEquals(2, engine.getRuleCount());
+        assertEquals("temperature > 45", engine.getSource(0));
+        assertEquals("memory_percent <= 10", engine.getSource(1));
+        assertEquals(5, engine.getInvalidRules().size());
+        assertEquals(0, AlertEngine.compile(null).getRuleCount());
+    }
+
+    @Test
+    public void compile_limitsRuleCount() {
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < AlertEngine.MAX_RULES + 2; i++) rules.append("temperature > ").append(i).append(';');
+        AlertEngine engine = AlertEngine.compile(rules.toString());
+        assertEquals(AlertEngine.MAX_RULES, engine.getRuleCount());
+        assertEquals(2, engine.getInvalidRules().size());
+    }
+
+    @Test
+    public void duration_units() {
+        assertEquals(30_000, AlertEngine.duration("30s"));
+        assertEquals(30_000, AlertEngine.duration("30"));
+        assertEquals(120_000, AlertEngine.duration("2m"));
+        assertEquals(3_600_000, AlertEngine.duration("1h"));
+        assertEquals(1_500, AlertEngine.duration("1.5s"));
+        assertEquals(-1, AlertEngine.duration("0s"));
+    }
+
+    @Test
+    public void threshold_firesOnceOnRisingEdge() {
+        AlertEngine engine = AlertEngine.compile("temperature > 45");
+        engine.setCooldown(0);
+        assertEquals(0, engine.evaluate(temperature(40), DIVISOR, 0));
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 1000));
+        assertEquals(0, engine.getFiredRule(0));
+        assertEquals(46.0, engine.getFiredValue(0), 1e-9);
+        assertEquals(MetricKey.TEMPERATURE, engine.getMetric(0));
+        // 持续满足不重复提醒
+        assertEquals(0, engine.evaluate(temperature(47), DIVISOR, 2000));
+        assertEquals(0, engine.evaluate(temperature(40), DIVISOR, 3000));
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 4000));
+    }
+
+    @Test
+    public void cooldown_suppressesWholeEpisode() {
+        AlertEngine engine = AlertEngine.compile("temperature > 45");
+        engine.setCooldown(60_000);
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 0));
+        assertEquals(0, engine.evaluate(temperature(40), DIVISOR, 1000));
+        // 冷却中再次满足：不提醒，且这一轮结束前都不提醒
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 2000));
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 70_000));
+        assertEquals(0, engine.evaluate(temperature(40), DIVISOR, 71_000));
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 72_000));
+    }
+
+    @Test
+    public void forWindow_requiresContinuousDuration() {
+        AlertEngine engine = AlertEngine.compile("temperature > 45 for 30s");
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 0));
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 20_000));
+        // 中断后重新计时
+        assertEquals(0, engine.evaluate(temperature(44), DIVISOR, 25_000));
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 30_000));
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 50_000));
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 60_000));
+    }
+
+    @Test
+    public void pluggedClause_andConjunction() {
+        AlertEngine engine = AlertEngine.compile("watt < 5 & plugged for 10s");
+        assertEquals(0, engine.evaluate(power(3, false), DIVISOR, 0));
+        assertEquals(0, engine.evaluate(power(3, false), DIVISOR, 20_000));
+        assertEquals(0, engine.evaluate(power(3, true), DIVISOR, 30_000));
+        assertEquals(0, engine.evaluate(power(8, true), DIVISOR, 35_000));
+        assertEquals(0, engine.evaluate(power(3, true), DIVISOR, 40_000));
+        assertEquals(1, engine.evaluate(power(3, true), DIVISOR, 50_000));
+        assertEquals(3.0, engine.getFiredValue(0), 1e-9);
+
+        AlertEngine unplugged = AlertEngine.compile("unplugged AND temperature >= 30");
+        assertEquals(1, unplugged.evaluate(power(1, false), DIVISOR, 0));
+        assertEquals(MetricKey.TEMPERATURE, unplugged.getMetric(0));
+    }
+
+    @Test
+    public void countWindow_needsNEventsWithinWindow() {
+        AlertEngine engine = AlertEngine.compile("temperature > 45 count 3 in 60s");
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 0));
+        assertEquals(0, engine.evaluate(temperature(40), DIVISOR, 10_000));
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 20_000));
+        // 第一次已滑出窗口
+        assertEquals(0, engine.evaluate(temperature(46), DIVISOR, 70_000));
+        assertEquals(1, engine.evaluate(temperature(46), DIVISOR, 75_000));
+    }
+
+    @Test
+    public void riseWindow_comparesAgainstCheckpointWithinWindow() {
+        AlertEngine engine = AlertEngine.compile("thermal_max rise 5 in 60s");
+        assertEquals(MetricKey.THERMAL_MAX, engine.getMetric(0));
+        int fired = 0;
+        for (int t = 0; t <= 60; t += 5) {
+            // 前 40 秒平稳，之后每 5 秒升 2°C
+            int celsius = t <= 40 ? 40 : 40 + (t - 40) / 5 * 2;
+            fired += engine.evaluate(thermal(celsius), DIVISOR, t * 1000L);
+        }
+        assertEquals(1, fired);
+
+        AlertEngine drop = AlertEngine.compile("thermal_max drop 5 in 60s");
+        assertEquals(0, drop.evaluate(thermal(50), DIVISOR, 0));
+        // 历史不足半个窗口时不判断
+        assertEquals(0, drop.evaluate(thermal(40), DIVISOR, 10_000));
+        assertEquals(1, drop.evaluate(thermal(40), DIVISOR, 30_000));
+    }
+
+    @Test
+    public void unknownReadings_neverSatisfy() {
+        AlertEngine engine = AlertEngine.compile("cpu_percent < 10; thermal_max < 10");
+        MetricSnapshot empty = new MetricSnapshot.Builder().build();
+        assertEquals(0, engine.evaluate(empty, DIVISOR, 0));
+        assertTrue(Double.isNaN(AlertEngine.valueOf(MetricKey.CPU_PERCENT, empty, DIVISOR)));
+    }
+}
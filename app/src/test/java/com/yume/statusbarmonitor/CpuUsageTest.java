@@ -0,0 +1,147 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CpuUsageTest {
+
+    private File root;
+    private File stat;
+    private File cpuDir;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("cpu").toFile();
+        stat = new File(root, "stat");
+        cpuDir = new File(root, "cpu");
+        // 两簇：cpu0-1 小核，cpu2-3 大核
+        for (int cpu = 0; cpu < 4; cpu++) {
+            File freq = new File(cpuDir, "cpu" + cpu + "/cpufreq");
+            freq.mkdirs();
+            write(new File(freq, "related_cpus"), cpu < 2 ? "0 1\n" : "2-3\n");
+            write(new File(freq, "scaling_cur_freq"), cpu < 2 ? "1800000\n" : "2400000\n");
+        }
+        new File(cpuDir, "cpufreq").mkdirs();
+        new File(cpuDir, "cpuidle").mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    // 每核 user / idle 两个字段，其余为 0
+    private void writeStat(long[] busy, long[] idle) throws IOException {
+        long busySum = 0;
+        long idleSum = 0;
+        StringBuilder cores = new StringBuilder();
+        for (int cpu = 0; cpu < busy.length; cpu++) {
+            if (busy[cpu] < 0) continue; // 离线
+            busySum += busy[cpu];
+            idleSum += idle[cpu];
+            cores.append("cpu").append(cpu).append(' ').append(busy[cpu]).append(" 0 0 ")
+                    .append(idle[cpu]).append(" 0 0 0 0 0 0\n");
+        }
+        write(stat, "cpu  " + busySum + " 0 0 " + idleSum + " 0 0 0 0 0 0\n" + cores + "intr 1 2 3\n");
+    }
+
+    @Test
+    public void utilization_fromJiffyDeltasPerCluster() throws IOException {
+        CpuUsage usage = new CpuUsage(stat, cpuDir);
+        writeStat(new long[]{0, 0, 0, 0}, new long[]{0, 0, 0, 0});
+        usage.update();
+        assertEquals(CpuUsage.UNKNOWN, usage.getTotalPercent());
+        assertEquals(2, usage.getClusterCount());
+
+        // 小核各 10% 忙，大核各 90% 忙
+        writeStat(new long[]{10, 10, 90, 90}, new long[]{90, 90, 10, 10});
+        usage.update();
+        assertEquals(50, usage.getTotalPercent());
+        assertEquals(10, usage.getClusterPercent(0));
+        assertEquals(90, usage.getClusterPercent(1));
+        assertEquals(CpuUsage.UNKNOWN, usage.getClusterPercent(2));
+        assertEquals(1800000, usage.getClusterFreqKHz(0));
+        assertEquals(2400000, usage.getMaxFreqKHz());
+        usage.close();
+    }
+
+    @Test
+    public void offlineCore_isLeftOutOfItsCluster() throws IOException {
+        CpuUsage usage = new CpuUsage(stat, cpuDir);
+        writeStat(new long[]{0, 0, 0, 0}, new long[]{0, 0, 0, 0});
+        usage.update();
+        // cpu3 离线，大核簇只剩 cpu2
+        writeStat(new long[]{50, 50, 20, -1}, new long[]{50, 50, 80, 0});
+        usage.update();
+        assertEquals(20, usage.getClusterPercent(1));
+        // cpu3 重新上线后先建立基线
+        writeStat(new long[]{100, 100, 40, 5}, new long[]{100, 100, 160, 5});
+        usage.update();
+        assertEquals(20, usage.getClusterPercent(1));
+        usage.close();
+    }
+
+    @Test
+    public void firstCoreOffline_frequencyFromOtherCoreOrPolicy() throws IOException {
+        // cpu2 离线：cpufreq 链接消失，大核簇只能从 cpu3 读
+        delete(new File(cpuDir, "cpu2/cpufreq"));
+        CpuUsage usage = new CpuUsage(stat, cpuDir);
+        usage.update();
+        assertEquals(2, usage.getClusterCount());
+        assertEquals(2400000, usage.getClusterFreqKHz(1));
+        usage.close();
+
+        // 有 policy 目录时优先读它
+        File policy = new File(cpuDir, "cpufreq/policy2");
+        policy.mkdirs();
+        write(new File(policy, "scaling_cur_freq"), "2100000\n");
+        usage = new CpuUsage(stat, cpuDir);
+        usage.update();
+        assertEquals(2100000, usage.getClusterFreqKHz(1));
+        usage.close();
+    }
+
+    @Test
+    public void unreadableStat_reportsUnknownButKeepsFrequency() {
+        CpuUsage usage = new CpuUsage(new File(root, "missing"), cpuDir);
+        usage.update();
+        assertEquals(CpuUsage.UNKNOWN, usage.getTotalPercent());
+        assertEquals(CpuUsage.UNKNOWN, usage.getClusterPercent(0));
+        assertEquals(2400000, usage.getClusterFreqKHz(1));
+        usage.close();
+    }
+
+    @Test
+    public void parseCpuList_acceptsListsAndRanges() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, CpuUsage.parseCpuList("0 1 2 3"));
+        assertArrayEquals(new int[]{4, 5, 6, 7}, CpuUsage.parseCpuList("4-7\n"));
+        assertArrayEquals(new int[]{0, 2, 3}, CpuUsage.parseCpuList("0,2-3"));
+        assertNull(CpuUsage.parseCpuList(""));
+        assertNull(CpuUsage.parseCpuList("x"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GlyphAtlasTest {
+
+    @Test
+    public void charset_coversEveryIconValue() {
+        MetricFormatter formatter = new MetricFormatter(Locale.US);
+        StringBuilder sb = new StringBuilder();
+        Random r = new Random(3);
+        for (int i = 0; i < 5_000; i++) {
+            long memTotal = (2L + r.nextInt(22)) << 30;
+            long storageTotal = MetricSnapshot.marketedCapacity((long) (r.nextDouble() * (9000L << 30)));
+            MetricSnapshot s = new MetricSnapshot.Builder()
+                    .battery(r.nextInt(800) - 200, 3000 + r.nextInt(2000), r.nextInt(101))
+                    .current((long) ((r.nextDouble() - 0.5) * 12_000_000))
+                    .memory(memTotal, (long) (r.nextDouble() * memTotal))
+                    .storage(storageTotal, (long) (r.nextDouble() * storageTotal))
+                    .network((long) (r.nextDouble() * (8L << 30)), (long) (r.nextDouble() * (1L << 22)))
+                    .build();
+            for (MetricKey key : MetricKey.values()) {
+                sb.setLength(0);
+                formatter.appendValue(sb, key, s, r.nextBoolean() ? 1000000000 : 1000000);
+                assertTrue(key + " \"" + sb + "\"", GlyphAtlas.covers(sb));
+            }
+        }
+    }
+
+    @Test
+    public void covers_rejectsUncachedCharacters() {
+        assertTrue(GlyphAtlas.covers(""));
+        assertTrue(GlyphAtlas.covers("-12.5°"));
+        assertFalse(GlyphAtlas.covers("NaN"));
+        assertFalse(GlyphAtlas.covers("1,5"));
+        assertFalse(GlyphAtlas.covers("电"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryQueryTest {
+
+    private static final long T0 = 1_700_000_000_000L - 1_700_000_000_000L % 3_600_000;
+
+    private File dir;
+    private MetricLogStore store;
+    private final MetricLogRecord record = new MetricLogRecord();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("history-query").toFile();
+        store = new MetricLogStore(dir, new int[]{50, 50, 50});
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File f : children) f.delete();
+        }
+        dir.delete();
+    }
+
+    // 每个 10 秒桶一个样本，功率依次为 1W、2W、3W ...
+    private void fillRaw(int buckets) throws IOException {
+        for (int i = 0; i <= buckets; i++) {
+            MetricSnapshot s = new MetricSnapshot.Builder()
+                    .battery(300 + i, 4000, 50)
+                    .current((i + 1) * 250_000L)
+                    .build();
+            store.append(T0 + i * 10_000L, s, 1000000000);
+        }
+    }
+
+    @Test
+    public void range_selectsRecordsInsideWindow() throws IOException {
+        fillRaw(20);
+        HistoryQuery query = new HistoryQuery(store, MetricLogStore.Tier.RAW,
+                T0 + 50_000, T0 + 100_000, 0);
+        assertEquals(5, query.getCount());
+        assertTrue(query.read(0, record));
+        assertEquals(T0 + 50_000, record.timeMs);
+        assertEquals(6000, record.wattAvgMw);
+        assertTrue(query.read(4, record));
+        assertEquals(T0 + 90_000, record.timeMs);
+        assertFalse(query.read(5, record));
+    }
+
+    @Test
+    public void maxPoints_downsamplesWithWeightedAverageAndPeak() throws IOException {
+        fillRaw(20);
+        HistoryQuery query = new HistoryQuery(store, MetricLogStore.Tier.RAW, T0, T0 + 200_000, 4);
+        // 20 条记录，每点合并 5 条
+        assertEquals(4, query.getCount());
+        assertTrue(query.read(1, record));
+        assertEquals(T0 + 50_000, record.timeMs);
+        assertEquals(5, record.samples);
+        assertEquals(8000, record.wattAvgMw);
+        assertEquals(10000, record.wattMaxMw);
+        assertEquals(309, record.temperatureMax);
+    }
+
+    @Test
+    public void unevenGroups_lastPointIsPartial() throws IOException {
+        fillRaw(10);
+        HistoryQuery query = new HistoryQuery(store, MetricLogStore.Tier.RAW, T0, T0 + 100_000, 3);
+        // 10 条记录，每点 4 条：4 + 4 + 2
+        assertEquals(3, query.getCount());
+        assertTrue(query.read(2, record));
+        assertEquals(2, record.samples);
+        assertEquals(T0 + 80_000, record.timeMs);
+    }
+
+    @Test
+    public void pointsStayStable_whileOldestRecordsAreOverwritten() throws IOException {
+        fillRaw(40);
+        HistoryQuery query = new HistoryQuery(store, MetricLogStore.Tier.RAW, T0, T0 + 400_000, 0);
+        assertEquals(40, query.getCount());
+
+        // 再写 20 条，容量 50，最旧的 10 条被覆盖
+        for (int i = 41; i <= 60; i++) {
+            MetricSnapshot s = new MetricSnapshot.Builder().battery(300, 4000, 50).build();
+            store.append(T0 + i * 10_000L, s, 1000000000);
+        }
+        assertFalse(query.read(9, record));
+        assertTrue(query.read(10, record));
+        assertEquals(T0 + 100_000, record.timeMs);
+        assertTrue(query.read(39, record));
+        assertEquals(T0 + 390_000, record.timeMs);
+    }
+
+    @Test
+    public void emptyRange_hasNoPoints() throws IOException {
+        fillRaw(5);
+        HistoryQuery query = new HistoryQuery(store, MetricLogStore.Tier.RAW, T0 + 1_000_000, T0, 10);
+        assertEquals(0, query.getCount());
+    }
+}
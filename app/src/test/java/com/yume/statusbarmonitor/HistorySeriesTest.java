@@ -0,0 +1,105 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistorySeriesTest {
+
+    @Test
+    public void empty_returnsZeros() {
+        HistorySeries series = new HistorySeries(4);
+        assertTrue(series.isEmpty());
+        assertEquals(0, series.size());
+        assertEquals(0, series.min());
+        assertEquals(0, series.max());
+        assertEquals(0, series.average(), 0);
+        assertEquals(0, series.copyRecent(new long[4], 4));
+    }
+
+    @Test
+    public void wrapsAround_keepingNewestSamples() {
+        HistorySeries series = new HistorySeries(3);
+        for (long v = 1; v <= 5; v++) {
+            series.append(v);
+        }
+        assertEquals(3, series.size());
+        assertEquals(5, series.get(0));
+        assertEquals(3, series.get(2));
+        assertEquals(3, series.min());
+        assertEquals(5, series.max());
+        assertEquals(4.0, series.average(), 1e-9);
+
+        long[] out = new long[8];
+        assertEquals(2, series.copyRecent(out, 2));
+        assertEquals(4, out[0]);
+        assertEquals(5, out[1]);
+    }
+
+    @Test
+    public void windowedQueries_matchBruteForce() {
+        Random random = new Random(3);
+        int capacity = 17;
+        HistorySeries series = new HistorySeries(capacity);
+        ArrayDeque<Long> window = new ArrayDeque<>();
+        for (int i = 0; i < 5000; i++) {
+            // 小范围取值，制造大量相等的值
+            long v = random.nextInt(20) - 10;
+            if (random.nextInt(50) == 0) v = random.nextLong() >> 20;
+            series.append(v);
+            window.addLast(v);
+            if (window.size() > capacity) window.removeFirst();
+
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE, sum = 0;
+            for (long w : window) {
+                min = Math.min(min, w);
+                max = Math.max(max, w);
+                sum += w;
+            }
+            assertEquals(min, series.min());
+            assertEquals(max, series.max());
+            assertEquals((double) sum / window.size(), series.average(), 1e-6);
+            assertEquals(v, series.latest());
+        }
+
+        long[] expected = new long[capacity];
+        int k = 0;
+        for (long w : window) expected[k++] = w;
+        long[] out = new long[capacity];
+        assertEquals(capacity, series.copyRecent(out, capacity + 5));
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void clear_startsOver() {
+        HistorySeries series = new HistorySeries(2);
+        series.append(100);
+        series.append(200);
+        series.clear();
+        series.append(7);
+        assertEquals(1, series.size());
+        assertEquals(7, series.min());
+        assertEquals(7, series.max());
+    }
+
+    @Test
+    public void metricHistory_recordsSnapshotInStorageUnits() {
+        MetricHistory history = new MetricHistory(8);
+        MetricSnapshot s = new MetricSnapshot.Builder()
+                .battery(365, 4000, 80)
+                .current(-1_500_000)
+                .network(2048, 512)
+                .build();
+        history.record(s, 1000000000);
+        assertEquals(6000, history.get(MetricHistory.Series.WATT).latest());
+        assertEquals(1_500_000, history.get(MetricHistory.Series.CURRENT).latest());
+        assertEquals(365, history.get(MetricHistory.Series.TEMPERATURE).latest());
+        assertEquals(2048, history.get(MetricHistory.Series.DOWNLOAD_SPEED).latest());
+        assertEquals(MetricHistory.Series.UPLOAD_SPEED, MetricHistory.Series.fromKey("upload_speed"));
+    }
+}
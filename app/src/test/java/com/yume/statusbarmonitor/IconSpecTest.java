@@ -0,0 +1,39 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IconSpecTest {
+
+    @Test
+    public void parseList_readsLinesAndRing() {
+        IconSpec[] icons = IconSpec.parseList(" cpu_percent , thermal_max ; download_speed,upload_speed,download_log");
+        assertEquals(2, icons.length);
+        assertSame(MetricKey.CPU_PERCENT, icons[0].line1);
+        assertSame(MetricKey.THERMAL_MAX, icons[0].line2);
+        assertSame(MetricKey.NONE, icons[0].ring);
+        assertSame(MetricKey.DOWNLOAD_LOG, icons[1].ring);
+    }
+
+    @Test
+    public void parseList_dropsEmptyIconsAndCapsCount() {
+        assertEquals(0, IconSpec.parseList(null).length);
+        assertEquals(0, IconSpec.parseList("").length);
+        assertEquals(0, IconSpec.parseList(";;unknown,,").length);
+        // 不能作为圆环的 key 不画圆环
+        IconSpec[] icons = IconSpec.parseList("watt,,watt");
+        assertSame(MetricKey.NONE, icons[0].ring);
+        assertEquals(IconSpec.MAX_EXTRA, IconSpec.parseList("watt;current;voltage;cpu_freq;cpu_percent").length);
+    }
+
+    @Test
+    public void toSpec_roundTrips() {
+        String spec = "cpu_percent,thermal_max;download_speed,upload_speed,download_log";
+        assertEquals(spec, IconSpec.toSpec(IconSpec.parseList(spec)));
+        MonitorConfig config = new MonitorConfig.Builder().extraIcons(spec).build();
+        assertEquals(2, config.extraIcons.length);
+        assertEquals(0, MonitorConfig.DEFAULT.extraIcons.length);
+    }
+}
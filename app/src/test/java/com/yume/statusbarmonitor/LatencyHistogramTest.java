@@ -0,0 +1,87 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds_areContiguousAndContainTheirValues() {
+        long previousUpper = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long upper = LatencyHistogram.bucketUpperBound(i);
+            assertTrue(upper > previousUpper);
+            // 每个桶从上一个桶的上界 + 1 开始
+            assertEquals(i, LatencyHistogram.bucketIndex(previousUpper + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(upper));
+            previousUpper = upper;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpper);
+    }
+
+    @Test
+    public void empty_reportsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getPercentile(0.99));
+    }
+
+    @Test
+    public void percentiles_withinOneEighth() {
+        LatencyHistogram h = new LatencyHistogram();
+        long[] values = new long[10_000];
+        Random random = new Random(7);
+        for (int i = 0; i < values.length; i++) {
+            // 10µs ~ 50ms，跨越多个 2 的幂
+            values[i] = 10_000 + (long) (random.nextDouble() * random.nextDouble() * 50_000_000);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.5, 0.95, 0.99}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long reported = h.getPercentile(q);
+            assertTrue(q + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(q + ": " + reported + " vs " + exact, reported <= exact + exact / 8 + 1);
+        }
+        assertEquals(values[values.length - 1], h.getMax());
+        assertEquals(values[values.length - 1], h.getPercentile(1.0));
+    }
+
+    @Test
+    public void negativeValues_countAsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(1, h.getCount());
+        assertEquals(0, h.getPercentile(0.5));
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long base = (t + 1) * 1000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    h.record(base + i % 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, h.getCount());
+        assertEquals(4099, h.getMax());
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+    }
+}
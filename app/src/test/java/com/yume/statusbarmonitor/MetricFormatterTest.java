@@ -0,0 +1,237 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对比 {@link MetricFormatter} 与原先基于 String.format 的实现，输出必须逐字节一致。
+ */
+public class MetricFormatterTest {
+
+    private final MetricFormatter formatter = new MetricFormatter(Locale.US);
+    private final StringBuilder sb = new StringBuilder();
+
+    private String fixed(double value, int decimals) {
+        sb.setLength(0);
+        formatter.appendFixed(sb, value, decimals);
+        return sb.toString();
+    }
+
+    private static String reference(double value, int decimals) {
+        return String.format(Locale.US, decimals == 1 ? "%.1f" : "%.2f", value);
+    }
+
+    @Test
+    public void fixed_matchesFormatterOnTies() {
+        double[] values = {0, 0.05, 0.15, 0.25, 0.35, 0.45, 0.95, 0.995, 1.005, 1.045, 2.675,
+                9.95, 99.95, 999.995, 0.125, 0.375, 1.25, 2.5e-3, 4.35, 8.345};
+        for (double v : values) {
+            for (int d = 1; d <= 2; d++) {
+                assertEquals("value " + v, reference(v, d), fixed(v, d));
+                assertEquals("value " + -v, reference(-v, d), fixed(-v, d));
+            }
+        }
+    }
+
+    @Test
+    public void fixed_matchesFormatterOnSpecialValues() {
+        double[] values = {-0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, 1e15, 123456789012345.67, 1e300};
+        for (double v : values) {
+            for (int d = 1; d <= 2; d++) {
+                assertEquals("value " + v, reference(v, d), fixed(v, d));
+            }
+        }
+    }
+
+    @Test
+    public void fixed_matchesFormatterOnFloatQuotients() {
+        // 电压 mV / 1000f，覆盖 0 ~ 20V
+        for (int mv = -500; mv <= 20000; mv++) {
+            float volts = mv / 1000f;
+            assertEquals("mV " + mv, reference(volts, 1), fixed(volts, 1));
+            assertEquals("mV " + mv, reference(volts, 2), fixed(volts, 2));
+        }
+    }
+
+    @Test
+    public void fixed_matchesFormatterOnRandomDoubles() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double magnitude = Math.pow(10, random.nextInt(12) - 3);
+            double v = random.nextDouble() * magnitude;
+            if (random.nextBoolean()) v = -v;
+            assertEquals("value " + v, reference(v, 1), fixed(v, 1));
+            assertEquals("value " + v, reference(v, 2), fixed(v, 2));
+        }
+    }
+
+    @Test
+    public void speed_matchesFormatterUpToMultiGigabyte() {
+        long[] samples = {0, 1, 1023, 1024, 500_000, 1024 * 1024 - 1, 1024 * 1024, 1_572_864,
+                123_456_789, 1L << 30, 5L * 1024 * 1024 * 1024 + 12345, 40L << 30, -4096, -5_000_000};
+        for (long b : samples) {
+            assertSpeed(b);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            assertSpeed((long) (random.nextDouble() * (64L << 30)));
+        }
+    }
+
+    private void assertSpeed(long bytesPerSec) {
+        sb.setLength(0);
+        formatter.appendSpeedShort(sb, bytesPerSec);
+        assertEquals(formatSpeedShortReference(bytesPerSec), sb.toString());
+        sb.setLength(0);
+        formatter.appendSpeed(sb, bytesPerSec);
+        assertEquals(formatSpeedReference(bytesPerSec), sb.toString());
+    }
+
+    @Test
+    public void value_matchesFormatterForAllKeys() {
+        String[] keys = {"temperature", "current", "voltage", "battery_percent", "memory_mb",
+                "memory_percent", "storage_percent", "watt", "download_speed", "upload_speed",
+                "storage_free", "none", "unknown"};
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            MetricSnapshot s = randomSnapshot(random);
+            int divisor = random.nextBoolean() ? 1000000000 : 1000000;
+            for (String key : keys) {
+                sb.setLength(0);
+                formatter.appendValue(sb, MetricKey.fromKey(key), s, divisor);
+                assertEquals(key, getDataValueReference(key, s, divisor), sb.toString());
+            }
+            sb.setLength(0);
+            formatter.appendAllInfo(sb, s, divisor);
+            assertEquals(buildAllInfoReference(s, divisor), sb.toString());
+        }
+    }
+
+    @Test
+    public void burstWindow_showsAverageAndPeak() {
+        MetricSnapshot s = new MetricSnapshot.Builder()
+                .battery(300, 4000, 50)
+                .current(-500_000, -1_250_000, 12)
+                .build();
+        sb.setLength(0);
+        formatter.appendValue(sb, MetricKey.WATT, s, 1000000000);
+        assertEquals("2.0", sb.toString());
+        sb.setLength(0);
+        formatter.appendValue(sb, MetricKey.WATT_PEAK, s, 1000000000);
+        assertEquals("5.0", sb.toString());
+        sb.setLength(0);
+        formatter.appendAllInfo(sb, s, 1000000000);
+        assertTrue(sb.toString(), sb.indexOf("电流: -500000 (峰 -1250000)\n") > 0);
+    }
+
+    @Test
+    public void cpu_valuesAndDetailLine() {
+        MetricSnapshot s = new MetricSnapshot.Builder()
+                .cpu(37, 12, 80, CpuUsage.UNKNOWN, 2_419_200)
+                .build();
+        sb.setLength(0);
+        formatter.appendValue(sb, MetricKey.CPU_PERCENT, s, 1000000000);
+        formatter.appendValue(sb, MetricKey.CPU_CLUSTER_2, s, 1000000000);
+        formatter.appendValue(sb, MetricKey.CPU_FREQ, s, 1000000000);
+        assertEquals("37-2.4G", sb.toString());
+        sb.setLength(0);
+        formatter.appendAllInfo(sb, s, 1000000000);
+        assertTrue(sb.toString(), sb.toString().endsWith("\nCPU: 37% (12/80)  2.42GHz"));
+
+        // 没有 CPU 数据时详情不多出一行
+        sb.setLength(0);
+        formatter.appendAllInfo(sb, new MetricSnapshot.Builder().build(), 1000000000);
+        assertEquals(-1, sb.indexOf("CPU"));
+    }
+
+    @Test
+    public void value_handlesNegativeCurrentAndTebibyteStorage() {
+        MetricSnapshot s = new MetricSnapshot.Builder()
+                .battery(-55, 3850, 100)
+                .current(-2_345_678)
+                .memory(12L << 30, 3L << 30)
+                .storage(MetricSnapshot.marketedCapacity(7_900L << 30), 3_456L << 30)
+                .network(3L << 30, 1023)
+                .build();
+        for (String key : new String[]{"current", "watt", "temperature", "storage_free", "download_speed"}) {
+            sb.setLength(0);
+            formatter.appendValue(sb, MetricKey.fromKey(key), s, 1000000000);
+            assertEquals(key, getDataValueReference(key, s, 1000000000), sb.toString());
+        }
+        sb.setLength(0);
+        formatter.appendAllInfo(sb, s, 1000000000);
+        assertEquals(buildAllInfoReference(s, 1000000000), sb.toString());
+    }
+
+    private static MetricSnapshot randomSnapshot(Random r) {
+        long memTotal = (2L + r.nextInt(22)) << 30;
+        long storageTotal = MetricSnapshot.marketedCapacity((long) (r.nextDouble() * (9000L << 30)));
+        return new MetricSnapshot.Builder()
+                .battery(r.nextInt(800) - 200, 3000 + r.nextInt(2000), r.nextInt(101))
+                .current((long) ((r.nextDouble() - 0.5) * 12_000_000))
+                .memory(memTotal, (long) (r.nextDouble() * memTotal))
+                .storage(storageTotal, (long) (r.nextDouble() * storageTotal))
+                .network((long) (r.nextDouble() * (8L << 30)), (long) (r.nextDouble() * (1L << 22)))
+                .build();
+    }
+
+    // --- 原先 MonitorService 中的实现，作为对照 ---
+
+    private static String getDataValueReference(String key, MetricSnapshot s, int wDivisor) {
+        switch (key) {
+            case "temperature": return s.temperature + "°";
+            case "current": return Math.abs(s.currentNow) + "";
+            case "voltage": return String.format(Locale.US, "%.1f", (s.voltage / 1000f));
+            case "battery_percent": return s.batteryPercent + "";
+            case "memory_mb": return s.memUsedMB + "M";
+            case "memory_percent": return s.memPercent + "";
+            case "storage_percent": return s.storagePercent + "";
+            case "watt": return String.format(Locale.US, "%.1f", s.watts(wDivisor));
+            case "download_speed": return formatSpeedShortReference(s.downloadSpeed) + "";
+            case "upload_speed": return formatSpeedShortReference(s.uploadSpeed) + "";
+            case "storage_free": return String.format(Locale.US, "%.1f", s.storageFreeGiB);
+            default: return "";
+        }
+    }
+
+    private static String buildAllInfoReference(MetricSnapshot s, int wDivisor) {
+        double watts = s.watts(wDivisor);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("电量: ").append(s.batteryPercent).append("%  ");
+        sb.append("温度: ").append(String.format(Locale.US, "%.1f", s.temperatureTenths / 10.0)).append("°C\n");
+
+        sb.append("功率: ").append(String.format(Locale.US, "%.2fW", watts)).append("  ");
+        sb.append("电压: ").append(String.format(Locale.US, "%.2fV", s.voltage / 1000f)).append("  ");
+        sb.append("电流: ").append(s.currentNow).append("\n");
+
+        sb.append("内存: ").append(s.memUsedMB).append("M (").append(s.memPercent).append("%)\n");
+        sb.append("存储: ").append(s.storagePercent).append("% 已用 ").append(String.format(Locale.US, "%.2f", s.storageFreeGiB)).append("GiB 空闲\n");
+
+        sb.append("网速: ↓").append(formatSpeedReference(s.downloadSpeed)).append("  ↑").append(formatSpeedReference(s.uploadSpeed));
+
+        return sb.toString();
+    }
+
+    private static String formatSpeedShortReference(long bytesPerSec) {
+        if (bytesPerSec >= 1024 * 1024) {
+            return String.format(Locale.US, "%.1fM", bytesPerSec / 1024f / 1024f);
+        } else {
+            return (bytesPerSec / 1024) + "K";
+        }
+    }
+
+    private static String formatSpeedReference(long bytesPerSec) {
+        if (bytesPerSec >= 1024 * 1024) {
+            return String.format(Locale.US, "%.2f MB/s", bytesPerSec / 1024f / 1024f);
+        } else {
+            return (bytesPerSec / 1024) + " KB/s";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class MetricKeyTest {
+
+    private static Document arrays;
+
+    @BeforeClass
+    public static void loadArrays() throws Exception {
+        // Gradle 单元测试的工作目录是模块目录 (app/)
+        File file = new File("src/main/res/values/arrays.xml");
+        if (!file.exists()) file = new File("app/src/main/res/values/arrays.xml");
+        arrays = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    }
+
+    private static String[] stringArray(String name) {
+        NodeList lists = arrays.getElementsByTagName("string-array");
+        for (int i = 0; i < lists.getLength(); i++) {
+            Element list = (Element) lists.item(i);
+            if (!name.equals(list.getAttribute("name"))) continue;
+            NodeList items = list.getElementsByTagName("item");
+            List<String> values = new ArrayList<>();
+            for (int j = 0; j < items.getLength(); j++) {
+                values.add(items.item(j).getTextContent().trim());
+            }
+            return values.toArray(new String[0]);
+        }
+        throw new AssertionError("missing string-array " + name);
+    }
+
+    private static String[] keysOf(MetricKey[] table) {
+        String[] keys = new String[table.length];
+        for (int i = 0; i < table.length; i++) {
+            keys[i] = table[i].key;
+        }
+        return keys;
+    }
+
+    @Test
+    public void positionTables_matchArraysXml() {
+        assertArrayEquals(stringArray("data_values"), keysOf(MetricKey.DATA_POSITIONS));
+        assertArrayEquals(stringArray("ring_values"), keysOf(MetricKey.RING_POSITIONS));
+        assertArrayEquals(stringArray("sparkline_values"), keysOf(MetricKey.SPARKLINE_POSITIONS));
+    }
+
+    @Test
+    public void labelArrays_haveOneLabelPerValue() {
+        assertEquals(stringArray("data_values").length, stringArray("data_labels").length);
+        assertEquals(stringArray("ring_values").length, stringArray("ring_labels").length);
+        assertEquals(stringArray("sparkline_values").length, stringArray("sparkline_labels").length);
+    }
+
+    @Test
+    public void tablesOnlyOfferUsableKeys() {
+        for (MetricKey k : MetricKey.RING_POSITIONS) {
+            if (k != MetricKey.NONE) assertNotEquals(k.key, RingMapping.NONE, k.ring);
+        }
+        for (MetricKey k : MetricKey.SPARKLINE_POSITIONS) {
+            if (k != MetricKey.NONE) assertNotNull(k.key, k.series);
+        }
+    }
+
+    @Test
+    public void fromKey_resolvesKeysAndAliases() {
+        for (MetricKey k : MetricKey.values()) {
+            assertSame(k, MetricKey.fromKey(k.key));
+        }
+        // 旧版 arrays.xml 中的电量 key
+        assertSame(MetricKey.BATTERY_PERCENT, MetricKey.fromKey("percent"));
+        assertSame(MetricKey.NONE, MetricKey.fromKey("unknown"));
+        assertSame(MetricKey.NONE, MetricKey.fromKey(null));
+        assertSame(MetricKey.NONE, MetricKey.ringFromKey("watt"));
+        assertSame(MetricKey.TEMPERATURE_40, MetricKey.ringFromKey("temperature_40"));
+        assertSame(MetricKey.NONE, MetricKey.sparklineFromKey("storage_free"));
+    }
+
+    @Test
+    public void savedPositions_mapOntoKeys() {
+        // MainActivity 的默认位置：第一行功耗、第二行内存、无圆环
+        assertSame(MetricKey.WATT, MetricKey.atPosition(MetricKey.DATA_POSITIONS, 1));
+        assertSame(MetricKey.MEMORY_PERCENT, MetricKey.atPosition(MetricKey.DATA_POSITIONS, 3));
+        assertSame(MetricKey.BATTERY_PERCENT, MetricKey.atPosition(MetricKey.DATA_POSITIONS, 6));
+        assertSame(MetricKey.NONE, MetricKey.atPosition(MetricKey.RING_POSITIONS, 0));
+        assertSame(MetricKey.NONE, MetricKey.atPosition(MetricKey.DATA_POSITIONS, 99));
+        assertSame(MetricKey.NONE, MetricKey.atPosition(MetricKey.SPARKLINE_POSITIONS, -1));
+    }
+
+    @Test
+    public void buildLabels_prefersFirstArrayAndFallsBackToKey() {
+        String[] labels = MetricKey.buildLabels(
+                new String[][]{stringArray("data_values"), stringArray("ring_values")},
+                new String[][]{stringArray("data_labels"), stringArray("ring_labels")});
+        assertEquals("无", labels[MetricKey.NONE.ordinal()]);
+        assertEquals("电量", labels[MetricKey.BATTERY_PERCENT.ordinal()]);
+        assertEquals("电池温度(满圈50°C)", labels[MetricKey.TEMPERATURE_50.ordinal()]);
+        // memory_mb 不在任何数组里
+        assertEquals("memory_mb", labels[MetricKey.MEMORY_MB.ordinal()]);
+    }
+}
@@ -0,0 +1,141 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricLogStoreTest {
+
+    private static final long T0 = 1_700_000_000_000L - 1_700_000_000_000L % 3_600_000; // 整点
+
+    private File dir;
+    private final MetricLogRecord record = new MetricLogRecord();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("metric-log").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File f : children) f.delete();
+        }
+        dir.delete();
+    }
+
+    private static MetricSnapshot snapshot(long currentUa, int temperatureTenths) {
+        return new MetricSnapshot.Builder()
+                .battery(temperatureTenths, 4000, 50)
+                .current(currentUa)
+                .network(1000, 10)
+                .build();
+    }
+
+    @Test
+    public void rawBuckets_averageAndPeak() throws IOException {
+        MetricLogStore store = new MetricLogStore(dir);
+        // 第一个 10 秒桶：1W、3W；第二个桶：2W
+        store.append(T0 + 1_000, snapshot(250_000, 300), 1000000000);
+        store.append(T0 + 6_000, snapshot(750_000, 320), 1000000000);
+        store.append(T0 + 11_000, snapshot(500_000, 310), 1000000000);
+
+        // 第二个桶尚未结束，只有一条完成的记录 (仍在内存缓冲中)
+        assertEquals(1, store.size(MetricLogStore.Tier.RAW));
+        store.read(MetricLogStore.Tier.RAW, 0, record);
+        assertEquals(T0, record.timeMs);
+        assertEquals(2, record.samples);
+        assertEquals(2000, record.wattAvgMw);
+        assertEquals(3000, record.wattMaxMw);
+        assertEquals(310, record.temperatureAvg);
+        assertEquals(320, record.temperatureMax);
+        assertEquals(1000, record.downloadAvg);
+        store.close();
+    }
+
+    @Test
+    public void rollups_cascadeToMinuteAndHour() throws IOException {
+        MetricLogStore store = new MetricLogStore(dir);
+        // 每秒一个样本，持续 2 小时；功率在第二个小时翻倍
+        for (int sec = 0; sec < 7200; sec++) {
+            long current = sec < 3600 ? 250_000 : 500_000;
+            store.append(T0 + sec * 1000L, snapshot(current, 300), 1000000000);
+        }
+        store.close();
+
+        store = new MetricLogStore(dir);
+        assertEquals(720, store.size(MetricLogStore.Tier.RAW));
+        assertEquals(120, store.size(MetricLogStore.Tier.MINUTE));
+        assertEquals(2, store.size(MetricLogStore.Tier.HOUR));
+
+        store.read(MetricLogStore.Tier.MINUTE, 59, record);
+        assertEquals(T0 + 59 * 60_000L, record.timeMs);
+        assertEquals(60, record.samples);
+        assertEquals(1000, record.wattAvgMw);
+
+        store.read(MetricLogStore.Tier.HOUR, 1, record);
+        assertEquals(T0 + 3_600_000, record.timeMs);
+        assertEquals(3600, record.samples);
+        assertEquals(2000, record.wattAvgMw);
+        store.close();
+    }
+
+    @Test
+    public void ring_overwritesOldestAcrossFlushes() throws IOException {
+        MetricLogStore store = new MetricLogStore(dir, new int[]{5, 5, 5});
+        for (int i = 0; i < 13; i++) {
+            store.append(T0 + i * 10_000L, snapshot(i * 1000, 300), 1000000000);
+            if (i % 4 == 0) store.flush();
+        }
+        // 12 个完成的桶，只保留最新的 5 个
+        assertEquals(5, store.size(MetricLogStore.Tier.RAW));
+        for (int k = 0; k < 5; k++) {
+            store.read(MetricLogStore.Tier.RAW, k, record);
+            assertEquals(T0 + (7 + k) * 10_000L, record.timeMs);
+        }
+        assertEquals(2, store.lowerBound(MetricLogStore.Tier.RAW, T0 + 85_000, record));
+        assertEquals(0, store.lowerBound(MetricLogStore.Tier.RAW, 0, record));
+        assertEquals(5, store.lowerBound(MetricLogStore.Tier.RAW, Long.MAX_VALUE, record));
+        store.close();
+
+        store = new MetricLogStore(dir, new int[]{5, 5, 5});
+        assertEquals(5, store.size(MetricLogStore.Tier.RAW));
+        store.read(MetricLogStore.Tier.RAW, 4, record);
+        assertEquals(T0 + 120_000L, record.timeMs);
+        store.close();
+    }
+
+    @Test
+    public void corruptHeader_startsFresh() throws IOException {
+        MetricLogStore store = new MetricLogStore(dir);
+        store.append(T0, snapshot(1, 300), 1000000000);
+        store.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "raw.bin"), "rw")) {
+            raf.writeInt(0xDEADBEEF);
+        }
+        store = new MetricLogStore(dir);
+        assertEquals(0, store.size(MetricLogStore.Tier.RAW));
+        assertEquals(1, store.size(MetricLogStore.Tier.MINUTE));
+        store.close();
+    }
+
+    @Test
+    public void files_stayFixedSize() throws IOException {
+        MetricLogStore store = new MetricLogStore(dir, new int[]{8, 8, 8});
+        for (int i = 0; i < 200; i++) {
+            store.append(T0 + i * 10_000L, snapshot(1000, 300), 1000000000);
+        }
+        store.close();
+        long expected = MetricLogStore.HEADER_SIZE + 8L * MetricLogRecord.SIZE;
+        assertEquals(expected, new File(dir, "raw.bin").length());
+    }
+}
@@ -0,0 +1,53 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricSourceTest {
+
+    private static MetricSource source(long periodMs, long staleBudgetMs) {
+        return new MetricSource("memory", periodMs, staleBudgetMs) {
+            @Override
+            protected void sample(MetricSnapshot.Builder builder, long now) {
+            }
+        };
+    }
+
+    @Test
+    public void visible_tightensPeriodToStaleBudget() {
+        MetricSource s = source(10_000, 2_000);
+        assertEquals(10_000, s.effectivePeriod());
+        s.setVisible(true);
+        assertEquals(2_000, s.effectivePeriod());
+    }
+
+    @Test
+    public void isDue_allowsHalfTickOfSlack() {
+        MetricSource s = source(10_000, 0);
+        MetricSnapshot.Builder b = new MetricSnapshot.Builder();
+        assertTrue(s.sampleIfDue(b, 0, 1_000));
+        assertFalse(s.sampleIfDue(b, 9_000, 1_000));
+        assertTrue(s.sampleIfDue(b, 9_500, 1_000));
+    }
+
+    @Test
+    public void appendStatus_reportsAgeAndStaleness() {
+        MetricSource s = source(10_000, 0);
+        StringBuilder sb = new StringBuilder();
+        s.appendStatus(sb, 0, 1_000);
+        assertTrue(sb.toString(), sb.toString().contains("memory") && sb.toString().contains("never sampled"));
+
+        s.sampleIfDue(new MetricSnapshot.Builder(), 1_000, 1_000);
+        sb.setLength(0);
+        s.appendStatus(sb, 6_000, 1_000);
+        assertTrue(sb.toString(), sb.toString().contains("age   5000 ms"));
+        assertFalse(sb.toString(), sb.toString().contains("stale"));
+
+        sb.setLength(0);
+        s.appendStatus(sb, 13_000, 1_000);
+        assertTrue(sb.toString(), sb.toString().contains("stale"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class MonitorConfigTest {
+
+    @Test
+    public void defaults_matchSettingsPage() {
+        MonitorConfig c = MonitorConfig.DEFAULT;
+        assertEquals(3000, c.intervalMs);
+        assertEquals(64, c.bitmapSize);
+        assertEquals(32, c.fontSize);
+        assertEquals(15, c.offset);
+        assertEquals(-2, c.paddingX);
+        assertEquals(1000000000, c.divisor);
+        assertEquals(6, c.dashLength);
+        assertEquals(2, c.dashGap);
+        assertEquals(1, c.hysteresisDigits);
+        assertEquals(MetricKey.NONE, c.data1);
+        assertFalse(c.diagnostics);
+    }
+
+    @Test
+    public void outOfRangeValues_areClampedIndividually() {
+        MonitorConfig c = new MonitorConfig.Builder()
+                .interval(10)
+                .fontChoice(99)
+                .icon(4096, 9999, -9999, 3, 4)
+                .divisor(0)
+                .dash(true, 0, -1)
+                .hysteresis(42)
+                .build();
+        assertEquals(MonitorConfig.MIN_INTERVAL_MS, c.intervalMs);
+        assertEquals(0, c.fontChoice);
+        assertEquals(MonitorConfig.MAX_BITMAP_SIZE, c.bitmapSize);
+        assertEquals(c.bitmapSize, c.fontSize);
+        assertEquals(-c.bitmapSize, c.offset);
+        // 合法的项保持不变
+        assertEquals(3, c.paddingX);
+        assertEquals(4, c.paddingY);
+        assertEquals(1000000000, c.divisor);
+        assertEquals(1, c.dashLength);
+        assertEquals(0, c.dashGap);
+        assertEquals(MonitorConfig.MAX_HYSTERESIS_DIGITS, c.hysteresisDigits);
+    }
+
+    @Test
+    public void missingKeys_becomeNone() {
+        MonitorConfig c = new MonitorConfig.Builder().keys("watt", null, "", "current").build();
+        assertEquals(MetricKey.WATT, c.data1);
+        assertEquals(MetricKey.NONE, c.data2);
+        assertEquals(MetricKey.NONE, c.ring);
+        assertEquals(MetricKey.CURRENT, c.sparkline);
+    }
+
+    @Test
+    public void keysThatCannotBeRingOrSparkline_areDropped() {
+        MonitorConfig c = new MonitorConfig.Builder().keys("temperature_50", "percent", "watt", "storage_free").build();
+        // 只用于圆环的 key 放在图标行上时不输出文字，但保留原样
+        assertEquals(MetricKey.TEMPERATURE_50, c.data1);
+        assertEquals(MetricKey.BATTERY_PERCENT, c.data2);
+        assertEquals(MetricKey.NONE, c.ring);
+        assertEquals(MetricKey.NONE, c.sparkline);
+    }
+
+    @Test
+    public void spinnerPositions_mapSafely() {
+        assertEquals(1000, MonitorConfig.intervalForPosition(0));
+        assertEquals(5000, MonitorConfig.intervalForPosition(4));
+        assertEquals(3000, MonitorConfig.intervalForPosition(7));
+    }
+
+    @Test
+    public void parseInt_fallsBackOnGarbage() {
+        assertEquals(12, MonitorConfig.parseInt(" 12 ", 5));
+        assertEquals(5, MonitorConfig.parseInt("", 5));
+        assertEquals(5, MonitorConfig.parseInt("abc", 5));
+        assertEquals(5, MonitorConfig.parseInt(null, 5));
+    }
+
+    @Test
+    public void networkSpec_isScopeOrInterfaceName() {
+        assertEquals(NetworkThroughput.Scope.PHYSICAL, MonitorConfig.DEFAULT.netScope);
+        assertNull(MonitorConfig.DEFAULT.netInterface);
+
+        MonitorConfig vpn = new MonitorConfig.Builder().network(" vpn ").build();
+        assertEquals(NetworkThroughput.Scope.VPN, vpn.netScope);
+        assertNull(vpn.netInterface);
+
+        MonitorConfig wlan = new MonitorConfig.Builder().network("wlan0").build();
+        assertEquals("wlan0", wlan.netInterface);
+        assertEquals("wlan0", wlan.networkSpec());
+
+        // 超过 IFNAMSIZ 的不可能是接口名
+        assertNull(new MonitorConfig.Builder().network("a_very_long_interface").build().netInterface);
+        assertNull(new MonitorConfig.Builder().network("").build().netInterface);
+        assertNull(new MonitorConfig.Builder().network(null).build().netInterface);
+    }
+}
@@ -0,0 +1,116 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class NetworkThroughputTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static void sample(NetworkThroughput t, long nanos, Object... ifaces) {
+        t.begin(nanos);
+        for (int i = 0; i < ifaces.length; i += 3) {
+            t.offer((String) ifaces[i], (Long) ifaces[i + 1], (Long) ifaces[i + 2]);
+        }
+        t.end();
+    }
+
+    @Test
+    public void classify_byInterfaceName() {
+        assertEquals(NetworkThroughput.Kind.WIFI, NetworkThroughput.Kind.classify("wlan0"));
+        assertEquals(NetworkThroughput.Kind.MOBILE, NetworkThroughput.Kind.classify("rmnet_data0"));
+        assertEquals(NetworkThroughput.Kind.MOBILE, NetworkThroughput.Kind.classify("ccmni1"));
+        assertEquals(NetworkThroughput.Kind.VPN, NetworkThroughput.Kind.classify("tun0"));
+        assertEquals(NetworkThroughput.Kind.VIRTUAL, NetworkThroughput.Kind.classify("rmnet_ipa0"));
+        assertEquals(NetworkThroughput.Kind.VIRTUAL, NetworkThroughput.Kind.classify("v4-rmnet_data0"));
+        assertEquals(NetworkThroughput.Kind.VIRTUAL, NetworkThroughput.Kind.classify("dummy0"));
+        assertEquals(NetworkThroughput.Kind.ETHERNET, NetworkThroughput.Kind.classify("eth0"));
+        assertEquals(NetworkThroughput.Kind.OTHER, NetworkThroughput.Kind.classify("usb0"));
+    }
+
+    @Test
+    public void firstSample_onlyEstablishesBaseline() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 5000L, 1000L);
+        assertEquals(0, t.getRxRate());
+        sample(t, 2 * SECOND, "wlan0", 7048L, 1512L);
+        assertEquals(2048, t.getRxRate());
+        assertEquals(512, t.getTxRate());
+    }
+
+    @Test
+    public void rates_useNanosecondInterval() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 0L, 0L);
+        sample(t, SECOND + SECOND / 2, "wlan0", 3000L, 0L);
+        assertEquals(6000, t.getRxRate());
+    }
+
+    @Test
+    public void physicalScope_excludesVpnAndVirtual() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 0L, 0L, "rmnet_data0", 0L, 0L, "tun0", 0L, 0L, "dummy0", 0L, 0L);
+        sample(t, 2 * SECOND, "wlan0", 1000L, 10L, "rmnet_data0", 200L, 20L, "tun0", 900L, 9L, "dummy0", 5L, 5L);
+        assertEquals(1200, t.getRxRate());
+        assertEquals(30, t.getTxRate());
+        assertEquals(1000, t.getRxRate(NetworkThroughput.Kind.WIFI));
+        assertEquals(200, t.getRxRate(NetworkThroughput.Kind.MOBILE));
+
+        t.setSelection(NetworkThroughput.Scope.ALL, null);
+        sample(t, 3 * SECOND, "wlan0", 2000L, 10L, "rmnet_data0", 400L, 20L, "tun0", 1800L, 9L, "dummy0", 10L, 5L);
+        assertEquals(1000 + 200 + 900 + 5, t.getRxRate());
+
+        t.setSelection(NetworkThroughput.Scope.VPN, null);
+        sample(t, 4 * SECOND, "wlan0", 3000L, 10L, "rmnet_data0", 600L, 20L, "tun0", 2700L, 9L, "dummy0", 15L, 5L);
+        assertEquals(900, t.getRxRate());
+
+        // 指定接口名时忽略范围
+        t.setSelection(NetworkThroughput.Scope.VPN, "rmnet_data0");
+        sample(t, 5 * SECOND, "wlan0", 4000L, 10L, "rmnet_data0", 800L, 20L, "tun0", 3600L, 9L, "dummy0", 20L, 5L);
+        assertEquals(200, t.getRxRate());
+    }
+
+    @Test
+    public void counterDelta_treatsAnyDecreaseAsReset() {
+        assertEquals(100, NetworkThroughput.counterDelta(1000, 1100));
+        // 计数器是 64 位的，从 2~4 GiB 落到小值是接口重建，不是 32 位回绕
+        assertEquals(-1, NetworkThroughput.counterDelta(0xFFFFFF00L, 0x00000044L));
+        assertEquals(-1, NetworkThroughput.counterDelta(3L << 30, 10_000_000));
+        assertEquals(-1, NetworkThroughput.counterDelta(5_000_000, 1000));
+        assertEquals(-1, NetworkThroughput.counterDelta(1L << 40, 1000));
+    }
+
+    @Test
+    public void reset_contributesZeroAndRebaselines() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 5_000_000L, 0L);
+        sample(t, 2 * SECOND, "wlan0", 1000L, 0L);
+        assertEquals(0, t.getRxRate());
+        assertEquals(1, t.getResetCount());
+        sample(t, 3 * SECOND, "wlan0", 3000L, 0L);
+        assertEquals(2000, t.getRxRate());
+    }
+
+    @Test
+    public void vanishedInterface_restartsFromNewBaseline() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 0L, 0L, "rmnet_data0", 0L, 0L);
+        sample(t, 2 * SECOND, "wlan0", 100L, 0L);
+        assertEquals(100, t.getRxRate());
+        // 接口重新出现时计数已经很大，不能算进这一次
+        sample(t, 3 * SECOND, "wlan0", 200L, 0L, "rmnet_data0", 1_000_000L, 0L);
+        assertEquals(100, t.getRxRate());
+        sample(t, 4 * SECOND, "wlan0", 300L, 0L, "rmnet_data0", 1_000_050L, 0L);
+        assertEquals(150, t.getRxRate());
+    }
+
+    @Test
+    public void clear_dropsAllBaselines() {
+        NetworkThroughput t = new NetworkThroughput();
+        sample(t, SECOND, "wlan0", 0L, 0L);
+        t.clear();
+        sample(t, 2 * SECOND, "wlan0", 1_000_000L, 0L);
+        assertEquals(0, t.getRxRate());
+    }
+}
@@ -0,0 +1,215 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProcReaderTest {
+
+    private static File fixture(String name) throws Exception {
+        return new File(ProcReaderTest.class.getResource("/proc/" + name).toURI());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void memInfo_parsesTotalAndAvailable() throws Exception {
+        MemInfoReader reader = new MemInfoReader(fixture("meminfo"));
+        assertTrue(reader.read());
+        assertEquals(7672904L * 1024, reader.getTotalBytes());
+        assertEquals(2983144L * 1024, reader.getAvailableBytes());
+    }
+
+    @Test
+    public void netDev_sumsAllInterfacesExceptLoopback() throws Exception {
+        NetDevReader reader = new NetDevReader(fixture("net_dev"));
+        assertTrue(reader.read());
+        assertEquals(0L + 52428800L + 3221225472L + 1048576L, reader.getRxBytes());
+        assertEquals(2940L + 1048576L + 104857600L + 524288L, reader.getTxBytes());
+    }
+
+    @Test
+    public void netDev_recordsEachInterfaceWithStableNames() throws Exception {
+        NetDevReader reader = new NetDevReader(fixture("net_dev"));
+        assertTrue(reader.read());
+        assertEquals(4, reader.getInterfaceCount());
+        assertEquals("dummy0", reader.getName(0));
+        assertEquals("rmnet_data0", reader.getName(1));
+        assertEquals("wlan0", reader.getName(2));
+        assertEquals("tun0", reader.getName(3));
+        assertEquals(3221225472L, reader.getRxBytes(2));
+        assertEquals(104857600L, reader.getTxBytes(2));
+
+        String wlan = reader.getName(2);
+        assertTrue(reader.read());
+        assertSame(wlan, reader.getName(2));
+    }
+
+    @Test
+    public void procStat_parsesCpuLinesOnly() throws Exception {
+        CpuStatReader reader = new CpuStatReader(fixture("stat"));
+        assertTrue(reader.read());
+        assertEquals(5, reader.getSlotCount());
+        assertEquals(4705L + 356 + 584 + 3699 + 23 + 23, reader.getTotal(0));
+        assertEquals(3699L + 23, reader.getIdle(0));
+        assertEquals(1012L + 104 + 132 + 699 + 6 + 4, reader.getTotal(4));
+        assertTrue(reader.isOnline(3));
+    }
+
+    @Test
+    public void procStat_offlineCoreAndTruncatedRead() throws Exception {
+        File file = File.createTempFile("stat", null);
+        try {
+            // cpu1 离线；核心多到 cpu 行超出首次读取上限
+            StringBuilder sb = new StringBuilder("cpu  100 0 100 800 0 0 0 0 0 0\n");
+            sb.append("cpu0 10 0 10 80 0 0 0 0 0 0\n");
+            for (int cpu = 2; cpu < 300; cpu++) {
+                sb.append("cpu").append(cpu).append(" 10 0 10 80 0 0 0 0 0 0\n");
+            }
+            sb.append("intr 0 0 0\n");
+            write(file, sb.toString());
+
+            CpuStatReader reader = new CpuStatReader(file);
+            assertTrue(reader.read());
+            assertTrue(reader.getSlotCount() < 301);
+            // 每次截断后上限加倍，几次之内就能读全
+            for (int i = 0; i < 3; i++) {
+                assertTrue(reader.read());
+            }
+            assertEquals(301, reader.getSlotCount());
+            assertTrue(reader.isOnline(1));
+            assertFalse(reader.isOnline(2));
+            assertTrue(reader.isOnline(300));
+            reader.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void sysfs_parsesNegativeValue() throws Exception {
+        SysfsLongReader reader = new SysfsLongReader(fixture("current_now"));
+        assertTrue(reader.read());
+        assertEquals(-1234567L, reader.getValue());
+    }
+
+    @Test
+    public void unparsableFile_failsWithoutDisablingReader() throws Exception {
+        SysfsLongReader reader = new SysfsLongReader(fixture("current_garbage"));
+        assertFalse(reader.read());
+        assertTrue(reader.isAvailable());
+        reader.close();
+    }
+
+    @Test
+    public void failedRead_retriesWithBackoffThroughSameChannel() throws Exception {
+        File file = File.createTempFile("temp", null);
+        file.deleteOnExit();
+        SysfsLongReader reader = new SysfsLongReader(file);
+
+        // 传感器下电时读不出数字
+        write(file, "\n");
+        assertFalse(reader.read());
+        // 第一次失败后立即重试
+        write(file, "41000\n");
+        assertTrue(reader.read());
+        assertEquals(41000L, reader.getValue());
+
+        // 连续失败：第二次失败后跳过一次
+        write(file, "\n");
+        assertFalse(reader.read());
+        assertFalse(reader.read());
+        write(file, "42000\n");
+        assertFalse(reader.read());
+        assertTrue(reader.read());
+        assertEquals(42000L, reader.getValue());
+        reader.close();
+    }
+
+    @Test
+    public void missingFile_isRetriedLater() throws Exception {
+        File file = new File(System.getProperty("java.io.tmpdir"), "meminfo-" + System.nanoTime());
+        MemInfoReader reader = new MemInfoReader(file);
+        assertFalse(reader.read());
+        assertTrue(reader.isAvailable());
+        write(file, "MemTotal:        1000 kB\nMemAvailable:     250 kB\n");
+        try {
+            assertTrue(reader.read());
+            assertEquals(1000L * 1024, reader.getTotalBytes());
+        } finally {
+            reader.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void permissionDenied_isPermanent() {
+        assertTrue(ProcReader.isPermissionDenied(new SecurityException()));
+        assertTrue(ProcReader.isPermissionDenied(
+                new FileNotFoundException("/proc/stat (Permission denied)")));
+        assertFalse(ProcReader.isPermissionDenied(
+                new FileNotFoundException("/sys/x (No such file or directory)")));
+        assertFalse(ProcReader.isPermissionDenied(new IOException("Invalid argument")));
+    }
+
+    @Test
+    public void netDev_onlyLoopbackIsZeroReading() throws Exception {
+        File file = File.createTempFile("net_dev", null);
+        file.deleteOnExit();
+        write(file, "Inter-|   Receive |  Transmit\n face |bytes packets|bytes packets\n"
+                + "    lo: 1000 10 0 0 0 0 0 0 1000 10 0 0 0 0 0 0\n");
+        NetDevReader reader = new NetDevReader(file);
+        assertTrue(reader.read());
+        assertEquals(0, reader.getInterfaceCount());
+        assertEquals(0, reader.getRxBytes());
+        reader.close();
+    }
+
+    @Test
+    public void reread_seesNewContentThroughSameChannel() throws Exception {
+        File file = File.createTempFile("current_now", null);
+        file.deleteOnExit();
+        SysfsLongReader reader = new SysfsLongReader(file);
+
+        write(file, "250000\n");
+        assertTrue(reader.read());
+        assertEquals(250000L, reader.getValue());
+
+        write(file, "-98\n");
+        assertTrue(reader.read());
+        assertEquals(-98L, reader.getValue());
+        reader.close();
+    }
+
+    @Test
+    public void largeFile_growsBufferOnce() throws Exception {
+        File file = File.createTempFile("meminfo", null);
+        file.deleteOnExit();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            sb.append("Filler").append(i).append(":      123 kB\n");
+        }
+        sb.append("MemTotal:        1000 kB\nMemAvailable:     250 kB\n");
+        write(file, sb.toString());
+
+        MemInfoReader reader = new MemInfoReader(file);
+        assertTrue(reader.read());
+        assertTrue(reader.read());
+        assertEquals(1000L * 1024, reader.getTotalBytes());
+        assertEquals(250L * 1024, reader.getAvailableBytes());
+        reader.close();
+    }
+}
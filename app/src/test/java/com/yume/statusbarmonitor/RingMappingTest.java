@@ -0,0 +1,104 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RingMappingTest {
+
+    private static MetricSnapshot battery(int temperatureTenths, int percent) {
+        return new MetricSnapshot.Builder().battery(temperatureTenths, 4000, percent).build();
+    }
+
+    @Test
+    public void fromKey_unknownAndNullMeanNoRing() {
+        assertEquals(RingMapping.NONE, RingMapping.fromKey("none"));
+        assertEquals(RingMapping.NONE, RingMapping.fromKey("watt"));
+        assertEquals(RingMapping.NONE, RingMapping.fromKey(null));
+        assertEquals(RingMapping.NO_RING, RingMapping.NONE.progress(battery(300, 50)));
+    }
+
+    @Test
+    public void fromKey_roundTripsEveryMapping() {
+        for (RingMapping mapping : RingMapping.values()) {
+            assertEquals(mapping, RingMapping.fromKey(mapping.key));
+        }
+    }
+
+    @Test
+    public void percentMappings_passThrough() {
+        MetricSnapshot s = new MetricSnapshot.Builder()
+                .battery(0, 4000, 87)
+                .memory(100L << 20, 25L << 20)
+                .storage(1000, 400)
+                .build();
+        assertEquals(87, RingMapping.BATTERY_PERCENT.progress(s));
+        assertEquals(75, RingMapping.MEMORY_PERCENT.progress(s));
+        assertEquals(60, RingMapping.STORAGE_PERCENT.progress(s));
+    }
+
+    @Test
+    public void temperatureMappings_scaleToFullRange() {
+        assertEquals(50, RingMapping.TEMPERATURE_64.progress(battery(320, 0)));
+        assertEquals(50, RingMapping.TEMPERATURE_50.progress(battery(250, 0)));
+        assertEquals(50, RingMapping.TEMPERATURE_40.progress(battery(200, 0)));
+        // 0.1°C 的精度参与映射
+        assertEquals(92, RingMapping.TEMPERATURE_40.progress(battery(369, 0)));
+        assertEquals(57, RingMapping.TEMPERATURE_64.progress(battery(369, 0)));
+    }
+
+    @Test
+    public void progress_isClampedToRing() {
+        assertEquals(100, RingMapping.TEMPERATURE_40.progress(battery(455, 0)));
+        assertEquals(100, RingMapping.TEMPERATURE_50.progress(battery(500, 0)));
+        assertEquals(0, RingMapping.TEMPERATURE_64.progress(battery(-75, 0)));
+        assertEquals(100, RingMapping.BATTERY_PERCENT.progress(battery(0, 120)));
+    }
+
+    @Test
+    public void polyline_followsRectangleClockwise() {
+        float[] xy = new float[RingGeometry.MAX_POINTS * 2];
+        assertEquals(0, RingGeometry.polyline(100, 0, xy));
+
+        // 12.5% 走完上边的一半
+        assertEquals(2, RingGeometry.polyline(100, 12, xy));
+        assertPoint(xy, 1, 48, 0);
+
+        // 50% 走到右下角
+        assertEquals(3, RingGeometry.polyline(100, 50, xy));
+        assertPoint(xy, 1, 100, 0);
+        assertPoint(xy, 2, 100, 100);
+
+        // 75% 走到左下角
+        assertEquals(4, RingGeometry.polyline(100, 75, xy));
+        assertPoint(xy, 3, 0, 100);
+
+        // 满圈回到起点
+        assertEquals(5, RingGeometry.polyline(100, 100, xy));
+        assertPoint(xy, 4, 0, 0);
+        assertEquals(5, RingGeometry.polyline(100, 150, xy));
+    }
+
+    private static void assertPoint(float[] xy, int index, float x, float y) {
+        assertEquals(x, xy[index * 2], 1e-3);
+        assertEquals(y, xy[index * 2 + 1], 1e-3);
+    }
+
+    @Test
+    public void speedMappings_useLogScale() {
+        MetricSnapshot s = new MetricSnapshot.Builder().network(10 * 1024, 1024).build();
+        assertEquals(20, RingMapping.DOWNLOAD_LOG.progress(s));
+        assertEquals(0, RingMapping.UPLOAD_LOG.progress(s));
+        MetricSnapshot fast = new MetricSnapshot.Builder().network(200L << 20, 1L << 20).build();
+        assertEquals(100, RingMapping.DOWNLOAD_LOG.progress(fast));
+        assertEquals(60, RingMapping.UPLOAD_LOG.progress(fast));
+    }
+
+    @Test
+    public void thermalMappings_useHottestZone() {
+        MetricSnapshot s = new MetricSnapshot.Builder().thermal(600, 400, ThermalZones.UNKNOWN).build();
+        assertEquals(60, RingMapping.THERMAL_100.progress(s));
+        assertEquals(75, RingMapping.THERMAL_80.progress(s));
+        assertEquals(0, RingMapping.THERMAL_80.progress(new MetricSnapshot.Builder().build()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RunningStatsTest {
+
+    @Test
+    public void empty_reportsZeros() {
+        RunningStats stats = new RunningStats();
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.mean());
+        assertEquals(0, stats.min());
+        assertEquals(0, stats.max());
+        assertEquals(0, stats.peakMagnitude());
+    }
+
+    @Test
+    public void accumulatesSumMinMaxAndRoundedMean() {
+        RunningStats stats = new RunningStats();
+        stats.add(5);
+        stats.add(-3);
+        stats.add(10);
+        stats.add(2);
+        assertEquals(4, stats.count());
+        assertEquals(14, stats.sum());
+        assertEquals(-3, stats.min());
+        assertEquals(10, stats.max());
+        // 3.5 四舍五入
+        assertEquals(4, stats.mean());
+    }
+
+    @Test
+    public void peakMagnitude_keepsSignOfLargestSample() {
+        RunningStats stats = new RunningStats();
+        stats.add(-1_200_000);
+        stats.add(-300_000);
+        stats.add(900_000);
+        assertEquals(-1_200_000, stats.peakMagnitude());
+    }
+
+    @Test
+    public void reset_startsNewWindow() {
+        RunningStats stats = new RunningStats();
+        stats.add(100);
+        stats.reset();
+        stats.add(-7);
+        assertEquals(1, stats.count());
+        assertEquals(-7, stats.min());
+        assertEquals(-7, stats.max());
+        assertEquals(-7, stats.mean());
+    }
+}
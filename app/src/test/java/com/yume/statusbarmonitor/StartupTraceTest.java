@@ -0,0 +1,57 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupTraceTest {
+
+    @Test
+    public void marks_recordFirstOccurrenceRelativeToProcessStart() {
+        StartupTrace trace = new StartupTrace();
+        assertEquals(-1, trace.elapsed(StartupTrace.Mark.FIRST_ICON));
+        trace.begin(10_000, "boot");
+        assertTrue(trace.mark(StartupTrace.Mark.FOREGROUND, 10_120));
+        assertFalse(trace.mark(StartupTrace.Mark.FOREGROUND, 10_500));
+        assertTrue(trace.mark(StartupTrace.Mark.FIRST_ICON, 10_400));
+        assertEquals(120, trace.elapsed(StartupTrace.Mark.FOREGROUND));
+        assertEquals(400, trace.elapsed(StartupTrace.Mark.FIRST_ICON));
+        assertFalse(trace.has(StartupTrace.Mark.CONFIG));
+        // 服务在同一进程里再次启动不改起点
+        trace.begin(20_000, "settings");
+        assertEquals(400, trace.elapsed(StartupTrace.Mark.FIRST_ICON));
+    }
+
+    @Test
+    public void reset_startsNewRound() {
+        StartupTrace trace = new StartupTrace();
+        trace.begin(1_000, "boot");
+        trace.mark(StartupTrace.Mark.FIRST_ICON, 1_300);
+        trace.reset();
+        assertFalse(trace.has(StartupTrace.Mark.FIRST_ICON));
+        trace.begin(50_000, "settings");
+        assertTrue(trace.mark(StartupTrace.Mark.FIRST_ICON, 50_120));
+        assertEquals(120, trace.elapsed(StartupTrace.Mark.FIRST_ICON));
+        StringBuilder sb = new StringBuilder();
+        trace.appendSummary(sb);
+        assertTrue(sb.toString(), sb.toString().startsWith("startup (settings):"));
+    }
+
+    @Test
+    public void summary_listsEveryMark() {
+        StartupTrace trace = new StartupTrace();
+        trace.begin(1_000, "restart");
+        trace.mark(StartupTrace.Mark.START_COMMAND, 1_050);
+        trace.mark(StartupTrace.Mark.FIRST_ICON, 1_300);
+        StringBuilder sb = new StringBuilder();
+        trace.appendSummary(sb);
+        String summary = sb.toString();
+        assertTrue(summary, summary.startsWith("startup (restart):"));
+        assertTrue(summary, summary.contains("first icon      300  +250"));
+        for (StartupTrace.Mark mark : StartupTrace.Mark.values()) {
+            assertTrue(mark.label, summary.contains(mark.label));
+        }
+    }
+}
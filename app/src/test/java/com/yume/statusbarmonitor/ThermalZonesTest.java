@@ -0,0 +1,191 @@
+package com.yume.statusbarmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ThermalZonesTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("thermal").toFile();
+        zone(0, "battery", "31000");
+        zone(1, "cpu-0-0", "48200");
+        zone(2, "skin-therm", "36500");
+        zone(10, "cpu-1-0", "55900");
+        // 关闭的传感器
+        zone(3, "gpu", "-273000");
+        new File(dir, "cooling_device0").mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private void zone(int n, String type, String temp) throws IOException {
+        File zone = new File(dir, "thermal_zone" + n);
+        zone.mkdirs();
+        write(new File(zone, "type"), type + "\n");
+        write(new File(zone, "temp"), temp + "\n");
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    @Test
+    public void discovery_ordersZonesByNumber() {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.update();
+        assertArrayEquals(new String[]{"battery", "cpu-0-0", "skin-therm", "gpu", "cpu-1-0"}, zones.getAllTypes());
+        zones.close();
+    }
+
+    @Test
+    public void allZones_hottestIgnoresInvalidReadings() {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.update();
+        assertEquals(5, zones.getSelectedCount());
+        assertEquals(559, zones.getHottestTenths());
+        assertEquals("cpu-1-0", zones.getHottestType());
+        assertEquals(ThermalZones.UNKNOWN, zones.getTenths(3));
+        zones.close();
+    }
+
+    @Test
+    public void selection_matchesTypePrefixes() throws IOException {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.select(" Skin , battery");
+        zones.update();
+        assertEquals(2, zones.getSelectedCount());
+        assertEquals("battery", zones.getType(0));
+        assertEquals(310, zones.getTenths(0));
+        assertEquals(365, zones.getTenths(1));
+        assertEquals(365, zones.getHottestTenths());
+
+        // 打开的文件每次重读
+        write(new File(dir, "thermal_zone0/temp"), "40100\n");
+        zones.update();
+        assertEquals(401, zones.getHottestTenths());
+
+        zones.select("cpu");
+        zones.update();
+        assertEquals(2, zones.getSelectedCount());
+        assertEquals(559, zones.getHottestTenths());
+        zones.close();
+    }
+
+    @Test
+    public void failedRead_zoneRecovers() throws IOException {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.select("skin");
+        zones.update();
+        assertEquals(365, zones.getTenths(0));
+
+        // 传感器下电，读不出数字
+        write(new File(dir, "thermal_zone2/temp"), "\n");
+        zones.update();
+        assertEquals(ThermalZones.UNKNOWN, zones.getTenths(0));
+        assertEquals(ThermalZones.UNKNOWN, zones.getHottestTenths());
+
+        write(new File(dir, "thermal_zone2/temp"), "37200\n");
+        zones.update();
+        assertEquals(372, zones.getTenths(0));
+        assertEquals(372, zones.getHottestTenths());
+        zones.close();
+    }
+
+    @Test
+    public void noMatch_isUnknown() {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.select("modem");
+        zones.update();
+        assertEquals(ThermalZones.UNKNOWN, zones.getHottestTenths());
+        assertNull(zones.getHottestType());
+        assertEquals(ThermalZones.UNKNOWN, zones.getTenths(0));
+        zones.close();
+    }
+
+    @Test
+    public void appendAllZones_listsTypesSelectionAndHottest() {
+        ThermalZones zones = new ThermalZones(dir);
+        zones.select("skin");
+        zones.update();
+        StringBuilder sb = new StringBuilder();
+        zones.appendAllZones(sb);
+        String[] lines = sb.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("  battery  31.0°C", lines[0]);
+        assertEquals("* skin-therm  36.5°C", lines[2]);
+        assertEquals("  gpu  -", lines[3]);
+        assertEquals("  cpu-1-0  55.9°C  <- hottest", lines[4]);
+        zones.close();
+    }
+
+    @Test
+    public void toTenths_usesZoneUnit() {
+        assertEquals(452, ThermalZones.toTenths(45_200, ThermalZones.UNIT_MILLI));
+        // 毫度热区降到 1°C 以下仍是毫度
+        assertEquals(5, ThermalZones.toTenths(500, ThermalZones.UNIT_MILLI));
+        assertEquals(350, ThermalZones.toTenths(350, ThermalZones.UNIT_DECI));
+        assertEquals(450, ThermalZones.toTenths(45, ThermalZones.UNIT_DEGREE));
+        assertEquals(-50, ThermalZones.toTenths(-5_000, ThermalZones.UNIT_MILLI));
+    }
+
+    @Test
+    public void unitOf_guessesFromDiscoveryReading() {
+        assertEquals(ThermalZones.UNIT_MILLI, ThermalZones.unitOf(31_000));
+        assertEquals(ThermalZones.UNIT_MILLI, ThermalZones.unitOf(-273_000));
+        assertEquals(ThermalZones.UNIT_MILLI, ThermalZones.unitOf(0));
+        assertEquals(ThermalZones.UNIT_DECI, ThermalZones.unitOf(350));
+        assertEquals(ThermalZones.UNIT_DEGREE, ThermalZones.unitOf(45));
+        assertEquals(ThermalZones.UNIT_DEGREE, ThermalZones.unitOf(-273));
+    }
+
+    @Test
+    public void update_keepsUnitPerZoneAndRejectsImplausibleValues() throws IOException {
+        zone(4, "pa-therm", "350");
+        zone(5, "bogus", "45");
+        ThermalZones zones = new ThermalZones(dir);
+        zones.select("battery,pa,bogus");
+        zones.update();
+        assertEquals(310, zones.getTenths(0));
+        // 0.1°C 为单位的热区
+        assertEquals(350, zones.getTenths(1));
+        assertEquals(450, zones.getTenths(2));
+
+        // 毫度热区降到 0.5°C，不能被当成 500°C
+        write(new File(dir, "thermal_zone0/temp"), "500\n");
+        // 摄氏度热区报出 200°C，超过上限
+        write(new File(dir, "thermal_zone5/temp"), "200\n");
+        zones.update();
+        assertEquals(5, zones.getTenths(0));
+        assertEquals(ThermalZones.UNKNOWN, zones.getTenths(2));
+        assertEquals(350, zones.getHottestTenths());
+        assertEquals("pa-therm", zones.getHottestType());
+        zones.close();
+    }
+}
@@ -0,0 +1,59 @@
+// 纯 JVM 的 JMH 基准模块：直接编译 app 中不依赖 Android 的源文件，
+// 在普通 Linux JVM 上测量 tick 热路径的耗时和分配。
+// 运行：./gradlew :benchmark:jmh，结果在 build/results/jmh/
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+// 只收录纯 Java 的类；新增的热路径类若不引用 android.*，可以加到这里
+val pureSources = listOf(
+    "CpuStatReader.java",
+    "CpuUsage.java",
+    "Hysteresis.java",
+    "HistorySeries.java",
+    "MemInfoReader.java",
+    "MetricFormatter.java",
+    "MetricHistory.java",
+    "MetricKey.java",
+    "MetricSnapshot.java",
+    "NetDevReader.java",
+    "ProcReader.java",
+    "PublishGate.java",
+    "RingMapping.java",
+    "SysfsLongReader.java",
+    "ThermalZones.java",
+)
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include(pureSources.map { "com/yume/statusbarmonitor/$it" })
+        }
+    }
+    named("jmh") {
+        // /proc 解析器使用与单元测试相同的样本文件
+        resources.srcDir("../app/src/test/resources")
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    timeOnIteration = "1s"
+    // gc 分析器给出 gc.alloc.rate.norm (B/op)，热路径应保持为 0
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
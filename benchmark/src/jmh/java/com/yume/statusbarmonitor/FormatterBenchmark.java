@@ -0,0 +1,82 @@
+package com.yume.statusbarmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图标文字与下拉详情的格式化，对应 tick 的第 2 步。
+ * legacy* 为原先基于 String.format 的写法，作为对照。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormatterBenchmark {
+
+    @Param({"watt", "temperature", "voltage", "memory_mb", "download_speed", "storage_free"})
+    public String key;
+    private MetricKey metric;
+
+    private final MetricFormatter formatter = new MetricFormatter(Locale.US);
+    private final StringBuilder sb = new StringBuilder(256);
+    private MetricSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        metric = MetricKey.fromKey(key);
+        snapshot = new MetricSnapshot.Builder()
+                .battery(365, 4123, 76)
+                .current(-1_234_567)
+                .memory(12L << 30, 5L << 30)
+                .storage(MetricSnapshot.marketedCapacity(238L << 30), 97L << 30)
+                .network(3_456_789, 45_678)
+                .build();
+    }
+
+    @Benchmark
+    public StringBuilder value() {
+        sb.setLength(0);
+        formatter.appendValue(sb, metric, snapshot, 1000000000);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder allInfo() {
+        sb.setLength(0);
+        formatter.appendAllInfo(sb, snapshot, 1000000000);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder speed() {
+        sb.setLength(0);
+        formatter.appendSpeed(sb, snapshot.downloadSpeed);
+        formatter.appendSpeedShort(sb, snapshot.uploadSpeed);
+        return sb;
+    }
+
+    @Benchmark
+    public String legacyAllInfo() {
+        MetricSnapshot s = snapshot;
+        StringBuilder b = new StringBuilder();
+        b.append("电量: ").append(s.batteryPercent).append("%  ");
+        b.append("温度: ").append(String.format(Locale.US, "%.1f", s.temperatureTenths / 10.0)).append("°C\n");
+        b.append("功率: ").append(String.format(Locale.US, "%.2fW", s.watts(1000000000))).append("  ");
+        b.append("电压: ").append(String.format(Locale.US, "%.2fV", s.voltage / 1000f)).append("  ");
+        b.append("电流: ").append(s.currentNow).append("\n");
+        b.append("内存: ").append(s.memUsedMB).append("M (").append(s.memPercent).append("%)\n");
+        b.append("存储: ").append(s.storagePercent).append("% 已用 ")
+                .append(String.format(Locale.US, "%.2f", s.storageFreeGiB)).append("GiB 空闲\n");
+        b.append("网速: ↓").append(String.format(Locale.US, "%.2f MB/s", s.downloadSpeed / 1024f / 1024f))
+                .append("  ↑").append(s.uploadSpeed / 1024).append(" KB/s");
+        return b.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.yume.statusbarmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /proc、/sys 读取器：在复用的文件通道上重读并解析单元测试用的样本文件。
+ * 样本放在临时文件里，测到的是 read + parse，不含真实 procfs 的内核开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcParserBenchmark {
+
+    private File dir;
+    private MemInfoReader memInfo;
+    private NetDevReader netDev;
+    private SysfsLongReader current;
+    private CpuStatReader procStat;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("proc-bench").toFile();
+        memInfo = new MemInfoReader(copyFixture("meminfo"));
+        netDev = new NetDevReader(copyFixture("net_dev"));
+        current = new SysfsLongReader(copyFixture("current_now"));
+        procStat = new CpuStatReader(copyFixture("stat"));
+    }
+
+    private File copyFixture(String name) throws IOException {
+        File file = new File(dir, name);
+        try (InputStream in = ProcParserBenchmark.class.getResourceAsStream("/proc/" + name)) {
+            if (in == null) throw new IOException("Missing fixture " + name);
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        memInfo.close();
+        netDev.close();
+        current.close();
+        procStat.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public long memInfo() {
+        memInfo.read();
+        return memInfo.getAvailableBytes();
+    }
+
+    @Benchmark
+    public long netDev() {
+        netDev.read();
+        return netDev.getRxBytes() + netDev.getTxBytes();
+    }
+
+    @Benchmark
+    public long currentNow() {
+        current.read();
+        return current.getValue();
+    }
+
+    @Benchmark
+    public long procStat() {
+        procStat.read();
+        return procStat.getTotal(0) - procStat.getIdle(0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.yume.statusbarmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采样结果的组装与派生计算：快照构建、存储档位取整、圆环映射、变化检测、历史记录。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotBenchmark {
+
+    private final MetricSnapshot.Builder builder = new MetricSnapshot.Builder();
+    private final MetricHistory history = new MetricHistory();
+    private final PublishGate gate = new PublishGate();
+    private final StringBuilder line = new StringBuilder("12.3");
+    private long tick;
+
+    // 圆环映射在 tick 中只在配置变化时解析一次，这里同样预先解析；
+    // 快照预先构建好，只让温度变化，测的只是 progress() 本身
+    private RingMapping temperatureRing;
+    private final MetricSnapshot[] temperatures = new MetricSnapshot[512];
+
+    @Setup
+    public void setUp() {
+        temperatureRing = RingMapping.fromKey("temperature_50");
+        for (int i = 0; i < temperatures.length; i++) {
+            temperatures[i] = new MetricSnapshot.Builder().battery(i, 4000, 50).build();
+        }
+    }
+
+    @Benchmark
+    public MetricSnapshot buildSnapshot() {
+        tick++;
+        return builder
+                .battery(365, 4123, 76)
+                .current(-1_234_567 - (tick & 1023))
+                .memory(12L << 30, (5L << 30) + tick)
+                .storage(MetricSnapshot.marketedCapacity(238L << 30), 97L << 30)
+                .network(3_456_789, 45_678)
+                .build();
+    }
+
+    @Benchmark
+    public long marketedCapacity() {
+        tick++;
+        return MetricSnapshot.marketedCapacity((119L << 30) + tick);
+    }
+
+    @Benchmark
+    public int ringProgress() {
+        tick++;
+        return temperatureRing.progress(temperatures[(int) (tick & 511)]);
+    }
+
+    @Benchmark
+    public boolean publishGateSuppressed() {
+        return gate.shouldPublish(line, null, "title", "body", 50, -1, 0);
+    }
+
+    @Benchmark
+    public long historyRecord() {
+        tick++;
+        MetricSnapshot s = builder.current(tick * 1000).build();
+        history.record(s, 1000000000);
+        HistorySeries watt = history.get(MetricHistory.Series.WATT);
+        return watt.max() - watt.min();
+    }
+}